@@ -0,0 +1,74 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential pass against a forced fork/join split of the same range, around {@link ParallelRange#THRESHOLD}. Lives in
+ * the library's package to reach the package private {@link ParallelRange#forkJoin(int, ParallelRange.Body)}. The
+ * body is a dp to px scale, as cheap as the conversions the threshold is tuned for.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ParallelRangeBenchmark {
+    @Param({"16384", "32768", "65536", "131072", "262144"})
+    public int size;
+
+    private float[] values;
+    private ParallelRange.Body body;
+
+    @Setup
+    public void setup() {
+        values = new float[size];
+
+        for (int i = 0; i < size; i++)
+            values[i] = i % 1024;
+
+        final float[] v = values;
+        body = new ParallelRange.Body() {
+            @Override
+            public void run(final int start, final int end) {
+                for (int i = start; i < end; i++)
+                    v[i] *= 1.0001f;
+            }
+        };
+    }
+
+    @Benchmark
+    public float[] sequential() {
+        body.run(0, size);
+        return values;
+    }
+
+    @Benchmark
+    public float[] forkJoin() {
+        ParallelRange.forkJoin(size, body);
+        return values;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device.benchmark;
+
+import com.airg.android.device.DimensionExpression;
+import com.airg.android.device.DimensionConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_DIP;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_MM;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_PX;
+
+/**
+ * Single value conversions. The inputs are fields (not constants) so the JIT cannot fold the conversion away.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class DimensionConverterBenchmark {
+    private DimensionConverter converter;
+    private DimensionExpression expression;
+
+    private float dp = 16f;
+    private float fractionalDp = 16.25f;
+    private int integralDp = 16;
+    private float mm = 3.5f;
+    private int px = 42;
+
+    @Setup
+    public void setup() {
+        converter = new DimensionConverter(new FixedMetrics());
+        expression = DimensionExpression.compile("12dp + 4sp - 1px");
+    }
+
+    @Benchmark
+    public float convertDpToPx() {
+        return converter.convert(dp, COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX);
+    }
+
+    @Benchmark
+    public float convertMmToDp() {
+        return converter.convert(mm, COMPLEX_UNIT_MM, COMPLEX_UNIT_DIP);
+    }
+
+    @Benchmark
+    public int dp2pxIntegral() {
+        return converter.dp2px(dp);
+    }
+
+    @Benchmark
+    public int dp2pxFractional() {
+        return converter.dp2px(fractionalDp);
+    }
+
+    @Benchmark
+    public int dp2pxFixed() {
+        return converter.dp2pxFixed(integralDp);
+    }
+
+    @Benchmark
+    public float px2dp() {
+        return converter.px2dp(px);
+    }
+
+    @Benchmark
+    public float evaluateCompiled() {
+        return expression.evaluate(converter);
+    }
+
+    @Benchmark
+    public float evaluateString() {
+        return converter.evaluate("12dp + 4sp - 1px");
+    }
+}
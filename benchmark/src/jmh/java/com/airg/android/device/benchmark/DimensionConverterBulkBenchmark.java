@@ -0,0 +1,124 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device.benchmark;
+
+import com.airg.android.device.DimensionConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_DIP;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_PX;
+
+/**
+ * Array and buffer conversions over a range of sizes. The in-place benchmarks alternate direction so values stay in a
+ * sane range across invocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class DimensionConverterBulkBenchmark {
+    @Param({"1000", "16384", "32768", "65536", "131072", "262144", "10000000"})
+    public int size;
+
+    private DimensionConverter converter;
+    private float[] values;
+    private float[] out;
+    private int[] pxs;
+    private FloatBuffer heap;
+    private FloatBuffer direct;
+    private boolean toPx;
+
+    @Setup
+    public void setup() {
+        converter = new DimensionConverter(new FixedMetrics());
+        values = new float[size];
+        out = new float[size];
+        pxs = new int[size];
+
+        for (int i = 0; i < size; i++)
+            values[i] = i % 1024;
+
+        heap = FloatBuffer.allocate(size);
+        heap.put(values).clear();
+        direct = ByteBuffer.allocateDirect(size * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        direct.put(values).clear();
+    }
+
+    @Benchmark
+    public int[] dps2pxsVarargs() {
+        return converter.dps2pxs(values);
+    }
+
+    @Benchmark
+    public int[] dps2pxsOffset() {
+        converter.dps2pxs(values, 0, pxs, 0, size);
+        return pxs;
+    }
+
+    @Benchmark
+    public float[] convertInPlace() {
+        converter.convert(values, 0, size, from(), to());
+        return values;
+    }
+
+    @Benchmark
+    public float[] convertToArray() {
+        converter.convert(values, 0, out, 0, size, COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX);
+        return out;
+    }
+
+    @Benchmark
+    public float[] convertParallel() {
+        converter.convertParallel(values, 0, size, from(), to());
+        return values;
+    }
+
+    @Benchmark
+    public FloatBuffer convertHeapBuffer() {
+        converter.convert(heap, from(), to());
+        return heap;
+    }
+
+    @Benchmark
+    public FloatBuffer convertDirectBuffer() {
+        converter.convert(direct, from(), to());
+        return direct;
+    }
+
+    private int from() {
+        toPx = !toPx;
+        return toPx ? COMPLEX_UNIT_DIP : COMPLEX_UNIT_PX;
+    }
+
+    private int to() {
+        return toPx ? COMPLEX_UNIT_PX : COMPLEX_UNIT_DIP;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device.benchmark;
+
+import com.airg.android.device.CpuTopology;
+import com.airg.android.device.InstrumentedExecutor;
+import com.airg.android.device.WorkerPools;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to run a batch of CPU bound tasks on:
+ * <ul>
+ * <li><code>naive</code>: a fixed pool of <code>availableProcessors()</code> threads with an unbounded queue, the way
+ * pools used to be sized from <code>Device.CPU_COUNT</code></li>
+ * <li><code>instrumented</code>: an {@link InstrumentedExecutor} of the same size, to isolate the cost of the metrics
+ * and the bounded queue</li>
+ * <li><code>topology</code>: {@link WorkerPools#cpuBound(String)}, sized from this machine's {@link CpuTopology}</li>
+ * </ul>
+ * Sizing only differs from <code>naive</code> on heterogeneous CPUs (e.g. big.LITTLE); on a typical desktop JVM the
+ * last two measure the same pool. Batches larger than {@link WorkerPools#CPU_QUEUE_CAPACITY} make the bounded pools
+ * run the overflow on the submitting thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ExecutorThroughputBenchmark {
+    @Param({"naive", "instrumented", "topology"})
+    public String pool;
+
+    @Param({"64", "1024"})
+    public int tasks;
+
+    @Param({"2000"})
+    public int work;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        final int cores = Runtime.getRuntime().availableProcessors();
+
+        switch (pool) {
+            case "naive":
+                executor = Executors.newFixedThreadPool(cores);
+                break;
+            case "instrumented":
+                executor = new InstrumentedExecutor("bench", cores, WorkerPools.CPU_QUEUE_CAPACITY,
+                        Thread.NORM_PRIORITY, new ThreadPoolExecutor.CallerRunsPolicy());
+                break;
+            default:
+                executor = WorkerPools.cpuBound("bench");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void batch() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(tasks);
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                Blackhole.consumeCPU(work);
+                done.countDown();
+            }
+        };
+
+        for (int i = 0; i < tasks; i++)
+            executor.execute(task);
+
+        done.await();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device.benchmark;
+
+import com.airg.android.device.MetricsSource;
+
+/**
+ * Metrics of a typical 420dpi phone with linear font scaling
+ */
+final class FixedMetrics implements MetricsSource {
+    @Override
+    public float getDensity() {
+        return 2.625f;
+    }
+
+    @Override
+    public float getScaledDensity() {
+        return 2.625f;
+    }
+
+    @Override
+    public float getXdpi() {
+        return 403.411f;
+    }
+
+    @Override
+    public boolean isFontScalingNonLinear() {
+        return false;
+    }
+
+    @Override
+    public float applyFontScaling(final float sp) {
+        // linear scaling, so the same result as the regular sp path
+        return sp * getScaledDensity();
+    }
+}
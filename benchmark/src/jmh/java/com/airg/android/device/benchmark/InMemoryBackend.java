@@ -0,0 +1,60 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device.benchmark;
+
+import com.airg.android.device.KeyValueBackend;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link KeyValueBackend} kept in a map. Like <code>SharedPreferences</code>, access is synchronized.
+ */
+final class InMemoryBackend implements KeyValueBackend, KeyValueBackend.Writer {
+    private final Map<String, Object> values = new HashMap<>();
+
+    @Override
+    public synchronized boolean contains(final String key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public synchronized String getString(final String key, final String defValue) {
+        final Object value = values.get(key);
+        return null == value ? defValue : (String) value;
+    }
+
+    @Override
+    public synchronized long getLong(final String key, final long defValue) {
+        final Object value = values.get(key);
+        return null == value ? defValue : (Long) value;
+    }
+
+    @Override
+    public synchronized Writer putString(final String key, final String value) {
+        values.put(key, value);
+        return this;
+    }
+
+    @Override
+    public synchronized Writer putLong(final String key, final long value) {
+        values.put(key, value);
+        return this;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device.benchmark;
+
+import com.airg.android.device.KeyValueCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link KeyValueCodec} encoding and decoding (double bits, JSON string collections) over an in-memory backend. This
+ * is only the encoding <code>PreferenceStore</code> uses; neither the store nor <code>SharedPreferences</code> and its
+ * disk I/O are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class KeyValueCodecBenchmark {
+    private InMemoryBackend backend;
+    private List<String> list;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        backend = new InMemoryBackend();
+        list = new ArrayList<>(Arrays.asList("alpha", "beta", "gamma", "delta", "epsilon"));
+        final Set<String> set = new HashSet<>(list);
+
+        KeyValueCodec.putDouble(backend, "double", Math.PI);
+        KeyValueCodec.putStrings(backend, "list", list);
+        KeyValueCodec.putStrings(backend, "set", set);
+    }
+
+    @Benchmark
+    public double decodeDouble() {
+        return KeyValueCodec.getDouble(backend, "double", 0);
+    }
+
+    @Benchmark
+    public void encodeDouble() {
+        KeyValueCodec.putDouble(backend, "double", counter++);
+    }
+
+    @Benchmark
+    public List<String> decodeStringList() {
+        return KeyValueCodec.getStringList(backend, "list", null);
+    }
+
+    @Benchmark
+    public void encodeStringList() {
+        KeyValueCodec.putStrings(backend, "list", list);
+    }
+
+    @Benchmark
+    public Set<String> decodeStringSet() {
+        return KeyValueCodec.getStringSet(backend, "set", null);
+    }
+}
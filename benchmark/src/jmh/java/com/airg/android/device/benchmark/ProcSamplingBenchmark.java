@@ -0,0 +1,69 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device.benchmark;
+
+import com.airg.android.device.CpuUsageSampler;
+import com.airg.android.device.MemoryInfo;
+import com.airg.android.device.MemoryInfoReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one procfs sample on the machine running the benchmark. Run with <code>-prof gc</code> to confirm a sample
+ * allocates nothing. These need Linux; elsewhere they measure the fallback of a missing file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ProcSamplingBenchmark {
+    private MemoryInfoReader memoryReader;
+    private MemoryInfo memoryInfo;
+    private CpuUsageSampler cpuSampler;
+
+    @Setup
+    public void setup() {
+        memoryReader = new MemoryInfoReader();
+        memoryInfo = new MemoryInfo();
+        cpuSampler = new CpuUsageSampler(250);
+    }
+
+    @TearDown
+    public void tearDown() {
+        memoryReader.close();
+        cpuSampler.close();
+    }
+
+    @Benchmark
+    public boolean memoryInfo() {
+        return memoryReader.read(memoryInfo);
+    }
+
+    @Benchmark
+    public boolean cpuUsage() {
+        return cpuSampler.sample();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device.benchmark;
+
+import com.airg.android.device.SnapshotPublisher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads of the mobile country and network codes from many threads, the way telemetry calls them. <code>locked</code>
+ * is the accessor <code>Device</code> used to have: a lazily cached value behind one global lock (Lombok's
+ * <code>@Synchronized</code>). <code>published</code> is the current one: a field of the snapshot held by a
+ * {@link SnapshotPublisher}. The <code>*WhilePublishing</code> groups add a thread that keeps replacing the value,
+ * like a SIM swap would.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SnapshotReadBenchmark {
+    private final Object lock = new Object();
+    private final SnapshotPublisher<Codes> publisher = new SnapshotPublisher<>();
+
+    private Integer mcc;
+    private Integer mnc;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        publisher.publish(new Codes(302, 720));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int locked() {
+        return lockedMcc() + lockedMnc();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int published() {
+        final Codes codes = publisher.get();
+        return codes.mcc + codes.mnc;
+    }
+
+    @Benchmark
+    @Group("lockedWhilePublishing")
+    @GroupThreads(7)
+    public int lockedReader() {
+        return locked();
+    }
+
+    @Benchmark
+    @Group("lockedWhilePublishing")
+    @GroupThreads(1)
+    public void lockedWriter() {
+        synchronized (lock) {
+            mcc = 300 + (counter++ & 7);
+            mnc = 720;
+        }
+    }
+
+    @Benchmark
+    @Group("publishedWhilePublishing")
+    @GroupThreads(7)
+    public int publishedReader() {
+        return published();
+    }
+
+    @Benchmark
+    @Group("publishedWhilePublishing")
+    @GroupThreads(1)
+    public int publishedWriter() {
+        return publisher.publish(new Codes(300 + (counter++ & 7), 720));
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    private int lockedMcc() {
+        synchronized (lock) {
+            if (null == mcc)
+                mcc = 302;
+
+            return mcc;
+        }
+    }
+
+    private int lockedMnc() {
+        synchronized (lock) {
+            if (null == mnc)
+                mnc = 720;
+
+            return mnc;
+        }
+    }
+
+    private static final class Codes {
+        final int mcc;
+        final int mnc;
+
+        Codes(final int countryCode, final int networkCode) {
+            mcc = countryCode;
+            mnc = networkCode;
+        }
+    }
+}
@@ -20,22 +20,32 @@ package com.airg.android.device;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
-import static android.os.Build.VERSION.SDK_INT;
-
 /**
- This class provides some basic API level checks
+ This class provides some basic API level checks. The level comes from a {@link SdkLevelProvider}, by default
+ {@link SdkLevelProvider#PLATFORM}.
  */
 @NoArgsConstructor (access = AccessLevel.PRIVATE)
 @SuppressWarnings ( {"UnusedDeclaration", "WeakerAccess"})
 public final class ApiLevel {
 
+    // the level can't change while the process runs, so it is read once rather than on every check
+    private static volatile int level = SdkLevelProvider.PLATFORM.getSdkLevel();
+
+    /**
+     Replace the source of the API level. Only for tests, to exercise version dependent code paths on the JVM.
+     @param provider API level source
+     */
+    static void setProvider(final SdkLevelProvider provider) {
+        level = provider.getSdkLevel();
+    }
+
     /**
      Current API level is equal to or greater than the given version
      @param version version to test against
      @return true if the current api version is equal to or newer than the test version
      */
     public static boolean atLeast (final int version) {
-        return SDK_INT >= version;
+        return level >= version;
     }
 
     /**
@@ -44,7 +54,7 @@ public final class ApiLevel {
      @return true if the current api version is equal to or older than the test version
      */
     public static boolean atMost (final int version) {
-        return SDK_INT <= version;
+        return level <= version;
     }
 
     /**
@@ -53,7 +63,7 @@ public final class ApiLevel {
      @return true if the current api version is older than, but not equal to the test version
      */
     public static boolean below (final int version) {
-        return SDK_INT < version;
+        return level < version;
     }
 
     /**
@@ -62,7 +72,7 @@ public final class ApiLevel {
      @return true if the current api version is or newer than, but not equal to the test version
      */
     public static boolean above (final int version) {
-        return SDK_INT > version;
+        return level > version;
     }
 
     /**
@@ -71,10 +81,10 @@ public final class ApiLevel {
      @return true if the current api version is equal to the test version
      */
     public static boolean is (final int version) {
-        return SDK_INT == version;
+        return level == version;
     }
 
     public static int get () {
-        return SDK_INT;
+        return level;
     }
 }
@@ -18,8 +18,6 @@
 
 package com.airg.android.device;
 
-import android.text.TextUtils;
-
 import java.util.Collection;
 
 import lombok.AccessLevel;
@@ -64,7 +62,7 @@ public final class Assert {
      * @throws IllegalStateException if provided string is not empty
      */
     public static void isEmpty(final CharSequence cs) {
-        if (TextUtils.isEmpty(cs)) return;
+        if (isEmptyText(cs)) return;
         throw new IllegalStateException("IsEmpty assertion failed");
     }
 
@@ -85,7 +83,7 @@ public final class Assert {
      * @throws IllegalStateException if provided string is empty or <code>null</code>
      */
     public static void notEmpty(final CharSequence cs) {
-        if (!TextUtils.isEmpty(cs)) return;
+        if (!isEmptyText(cs)) return;
 
         throw new IllegalStateException("NotEmpty assertion failed");
     }
@@ -178,4 +176,8 @@ public final class Assert {
         if (!expression) return;
         throw new IllegalStateException("expression not false");
     }
+
+    private static boolean isEmptyText(final CharSequence cs) {
+        return null == cs || cs.length() == 0;
+    }
 }
@@ -0,0 +1,467 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * The CPU cores of the device, grouped into clusters, as described by sysfs (<code>/sys/devices/system/cpu</code>).
+ * {@link Runtime#availableProcessors()} only counts cores; on big.LITTLE devices some of those are much slower than
+ * others and some may be offline. Cores that share a frequency policy (<code>cpufreq/related_cpus</code>) form a
+ * cluster; without cpufreq the kernel's <code>topology/cluster_id</code> is used, and failing that the maximum
+ * frequency. Clusters are ordered from slowest to fastest.
+ * <p>
+ * {@link #get()} reads sysfs once per process. The online state of each core is as of that read; cores may be
+ * switched on or off later by the kernel. Where sysfs can't be read, the topology is a single cluster of
+ * {@link Runtime#availableProcessors()} online cores of unknown frequency.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class CpuTopology {
+    /**
+     * Where the kernel describes the CPUs
+     */
+    public static final String SYSFS_CPU = "/sys/devices/system/cpu";
+
+    /**
+     * Maximum frequency of a core whose frequency isn't known
+     */
+    public static final int FREQUENCY_UNKNOWN = 0;
+
+    // sysfs attributes are tiny; anything longer isn't one of them
+    private static final int MAX_ATTRIBUTE = 4096;
+
+    private final boolean[] online;
+    private final int[] maxFrequency;
+    private final int[] clusterOf;
+
+    /**
+     * Clusters, ordered by maximum frequency from slowest to fastest
+     */
+    @Getter
+    private final List<Cluster> clusters;
+
+    /**
+     * <code>true</code> if the topology was read from sysfs, <code>false</code> if it is the
+     * {@link Runtime#availableProcessors()} fallback
+     */
+    @Getter
+    private final boolean fromSysfs;
+
+    CpuTopology(final boolean[] coreOnline, final int[] coreMaxFrequency, final int[][] clusterCores,
+                final boolean sysfs) {
+        online = coreOnline;
+        maxFrequency = coreMaxFrequency;
+        fromSysfs = sysfs;
+        clusterOf = new int[online.length];
+        Arrays.fill(clusterOf, -1);
+
+        final List<Cluster> list = new ArrayList<>(clusterCores.length);
+
+        for (final int[] cores : clusterCores) {
+            int max = FREQUENCY_UNKNOWN;
+            int up = 0;
+
+            for (final int cpu : cores) {
+                max = Math.max(max, maxFrequency[cpu]);
+                if (online[cpu])
+                    up++;
+            }
+
+            // offline cores may have no cpufreq of their own, but they run as fast as the rest of their cluster
+            for (final int cpu : cores)
+                if (FREQUENCY_UNKNOWN == maxFrequency[cpu])
+                    maxFrequency[cpu] = max;
+
+            list.add(new Cluster(cores, max, up));
+        }
+
+        Collections.sort(list, new Comparator<Cluster>() {
+            @Override
+            public int compare(final Cluster a, final Cluster b) {
+                final int byFrequency = Integer.compare(a.maxFrequencyKHz, b.maxFrequencyKHz);
+                return 0 != byFrequency ? byFrequency : Integer.compare(a.cpus[0], b.cpus[0]);
+            }
+        });
+
+        for (int i = 0; i < list.size(); i++)
+            for (final int cpu : list.get(i).cpus)
+                clusterOf[cpu] = i;
+
+        clusters = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @return the topology of this device, read from sysfs on first use
+     */
+    public static CpuTopology get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Read a topology from a sysfs-like tree. {@link #get()} should be used for the device's own topology; this is for
+     * fresh reads (e.g. to see cores that came online since) and for tests.
+     *
+     * @param root directory laid out like {@link #SYSFS_CPU}
+     * @return topology described by <code>root</code>, or the {@link Runtime#availableProcessors()} fallback if there
+     * is none
+     */
+    public static CpuTopology read(final File root) {
+        int[] possible = parseList(readAttribute(new File(root, "possible")));
+
+        if (null == possible)
+            possible = parseList(readAttribute(new File(root, "present")));
+
+        if (null == possible)
+            possible = listCpuDirectories(root);
+
+        if (null == possible || possible.length == 0)
+            return fallback();
+
+        final int count = possible[possible.length - 1] + 1;
+        final boolean[] online = new boolean[count];
+        final int[] maxFrequency = new int[count];
+        final String[] clusterKey = new String[count];
+        final int[] onlineList = parseList(readAttribute(new File(root, "online")));
+
+        if (null != onlineList)
+            for (final int cpu : onlineList)
+                if (cpu < count)
+                    online[cpu] = true;
+
+        for (final int cpu : possible) {
+            final File dir = new File(root, "cpu" + cpu);
+
+            // cpu0 usually can't be switched off and has no online attribute
+            if (null == onlineList)
+                online[cpu] = !"0".equals(readAttribute(new File(dir, "online")));
+
+            maxFrequency[cpu] = parseInt(readAttribute(new File(dir, "cpufreq/cpuinfo_max_freq")), FREQUENCY_UNKNOWN);
+
+            // a policy lists every core it covers, including offline ones that have no cpufreq directory of their own
+            final String related = readAttribute(new File(dir, "cpufreq/related_cpus"));
+            final int[] siblings = parseList(related);
+
+            if (null != siblings)
+                for (final int sibling : siblings)
+                    if (sibling < count && null == clusterKey[sibling])
+                        clusterKey[sibling] = "policy:" + siblings[0];
+        }
+
+        for (final int cpu : possible) {
+            if (null != clusterKey[cpu])
+                continue;
+
+            final int clusterId = parseInt(readAttribute(new File(root, "cpu" + cpu + "/topology/cluster_id")), -1);
+
+            clusterKey[cpu] = clusterId >= 0
+                    ? "cluster:" + clusterId
+                    : "frequency:" + maxFrequency[cpu];
+        }
+
+        final Map<String, List<Integer>> groups = new LinkedHashMap<>();
+
+        for (final int cpu : possible) {
+            List<Integer> group = groups.get(clusterKey[cpu]);
+
+            if (null == group) {
+                group = new ArrayList<>();
+                groups.put(clusterKey[cpu], group);
+            }
+
+            group.add(cpu);
+        }
+
+        final int[][] clusterCores = new int[groups.size()][];
+        int index = 0;
+
+        for (final List<Integer> group : groups.values()) {
+            final int[] cores = new int[group.size()];
+
+            for (int i = 0; i < cores.length; i++)
+                cores[i] = group.get(i);
+
+            clusterCores[index++] = cores;
+        }
+
+        return new CpuTopology(online, maxFrequency, clusterCores, true);
+    }
+
+    /**
+     * @return number of cores, online or not. Cores missing from a sparse numbering (e.g. <code>0-3,6-7</code>)
+     * count as offline cores that belong to no cluster.
+     */
+    public int getCoreCount() {
+        return online.length;
+    }
+
+    /**
+     * @return number of cores that were online when the topology was read
+     */
+    public int getOnlineCount() {
+        int count = 0;
+
+        for (final boolean up : online)
+            if (up)
+                count++;
+
+        return count;
+    }
+
+    /**
+     * @param cpu core number
+     * @return <code>true</code> if the core was online when the topology was read
+     * @throws IllegalArgumentException if there is no such core
+     */
+    public boolean isOnline(final int cpu) {
+        return online[checkCpu(cpu)];
+    }
+
+    /**
+     * @param cpu core number
+     * @return maximum frequency of the core in kHz, or {@link #FREQUENCY_UNKNOWN}
+     * @throws IllegalArgumentException if there is no such core
+     */
+    public int getMaxFrequencyKHz(final int cpu) {
+        return maxFrequency[checkCpu(cpu)];
+    }
+
+    /**
+     * @return maximum frequency of the fastest core in kHz, or {@link #FREQUENCY_UNKNOWN}
+     */
+    public int getMaxFrequencyKHz() {
+        return getFastestCluster().maxFrequencyKHz;
+    }
+
+    /**
+     * @param cpu core number
+     * @return the cluster the core belongs to
+     * @throws IllegalArgumentException if there is no such core, or it is missing from a sparse numbering
+     */
+    public Cluster getCluster(final int cpu) {
+        final int cluster = clusterOf[checkCpu(cpu)];
+
+        if (cluster < 0)
+            throw new IllegalArgumentException("cpu " + cpu + " is not present");
+
+        return clusters.get(cluster);
+    }
+
+    /**
+     * @return the cluster with the fastest cores (the "big" cores on big.LITTLE devices)
+     */
+    public Cluster getFastestCluster() {
+        return clusters.get(clusters.size() - 1);
+    }
+
+    /**
+     * @return <code>true</code> if the clusters run at different maximum frequencies (e.g. big.LITTLE)
+     */
+    public boolean isHeterogeneous() {
+        return clusters.get(0).maxFrequencyKHz != getFastestCluster().maxFrequencyKHz;
+    }
+
+    @Override
+    public String toString() {
+        return "CpuTopology" + clusters;
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    private int checkCpu(final int cpu) {
+        if (cpu < 0 || cpu >= online.length)
+            throw new IllegalArgumentException("No cpu " + cpu);
+
+        return cpu;
+    }
+
+    private static CpuTopology fallback() {
+        final int count = Runtime.getRuntime().availableProcessors();
+        final boolean[] online = new boolean[count];
+        final int[] cores = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            online[i] = true;
+            cores[i] = i;
+        }
+
+        return new CpuTopology(online, new int[count], new int[][]{cores}, false);
+    }
+
+    private static int[] listCpuDirectories(final File root) {
+        final String[] names = root.list();
+
+        if (null == names)
+            return null;
+
+        final List<Integer> cpus = new ArrayList<>();
+
+        for (final String name : names)
+            if (name.startsWith("cpu")) {
+                final int cpu = parseInt(name.substring(3), -1);
+                if (cpu >= 0)
+                    cpus.add(cpu);
+            }
+
+        final int[] sorted = new int[cpus.size()];
+
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = cpus.get(i);
+
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Parse a kernel cpu list, e.g. <code>0-3,5,7-8</code>
+     *
+     * @return sorted cpu numbers, or <code>null</code> if <code>list</code> is <code>null</code> or malformed
+     */
+    static int[] parseList(final String list) {
+        if (null == list || list.isEmpty())
+            return null;
+
+        final List<Integer> cpus = new ArrayList<>();
+
+        for (final String part : list.split(",")) {
+            final int dash = part.indexOf('-');
+            final int first = parseInt(dash < 0 ? part : part.substring(0, dash), -1);
+            final int last = dash < 0 ? first : parseInt(part.substring(dash + 1), -1);
+
+            if (first < 0 || last < first)
+                return null;
+
+            for (int cpu = first; cpu <= last; cpu++)
+                cpus.add(cpu);
+        }
+
+        final int[] sorted = new int[cpus.size()];
+
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = cpus.get(i);
+
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static int parseInt(final String value, final int defValue) {
+        if (null == value || value.isEmpty())
+            return defValue;
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defValue;
+        }
+    }
+
+    /**
+     * @return trimmed contents of a sysfs attribute, or <code>null</code> if it can't be read
+     */
+    private static String readAttribute(final File file) {
+        if (!file.isFile())
+            return null;
+
+        final byte[] buffer = new byte[MAX_ATTRIBUTE];
+        int length = 0;
+
+        try {
+            final InputStream in = new FileInputStream(file);
+
+            try {
+                int read;
+
+                while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) > 0)
+                    length += read;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+
+        return new String(buffer, 0, length, StandardCharsets.US_ASCII).trim();
+    }
+
+    private static final class Holder {
+        static final CpuTopology INSTANCE = read(new File(SYSFS_CPU));
+    }
+
+    /**
+     * Cores that share a frequency policy
+     */
+    public static final class Cluster {
+        private final int[] cpus;
+
+        /**
+         * Maximum frequency of the cluster's cores in kHz, or {@link #FREQUENCY_UNKNOWN}
+         */
+        @Getter
+        private final int maxFrequencyKHz;
+
+        /**
+         * Number of the cluster's cores that were online when the topology was read
+         */
+        @Getter
+        private final int onlineCount;
+
+        Cluster(final int[] cores, final int frequency, final int up) {
+            cpus = cores;
+            maxFrequencyKHz = frequency;
+            onlineCount = up;
+        }
+
+        /**
+         * @return the cluster's core numbers, in ascending order
+         */
+        public int[] getCpus() {
+            return cpus.clone();
+        }
+
+        /**
+         * @return number of cores in the cluster, online or not
+         */
+        public int size() {
+            return cpus.length;
+        }
+
+        /**
+         * @param cpu core number
+         * @return <code>true</code> if the core belongs to this cluster
+         */
+        public boolean contains(final int cpu) {
+            return Arrays.binarySearch(cpus, cpu) >= 0;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(cpus) + "@" + maxFrequencyKHz + "kHz";
+        }
+    }
+}
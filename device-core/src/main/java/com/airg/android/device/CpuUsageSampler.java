@@ -0,0 +1,459 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+
+import lombok.Getter;
+
+/**
+ * CPU utilization from the deltas between successive reads of <code>/proc/stat</code> (whole device and per core)
+ * and <code>/proc/self/stat</code> (this process). Both files stay open and are parsed in place from a reused buffer,
+ * so a sample allocates nothing and costs a few microseconds; sampling every 250ms is fine. Loads are fractions from
+ * <code>0</code> to <code>1</code>, or {@link #UNKNOWN} until there are two samples to compare.
+ * <p>
+ * Android 8 (api 26) and up don't let apps read <code>/proc/stat</code>. There only the process load is available;
+ * it is then measured against wall clock time and {@link Runtime#availableProcessors()}.
+ * <p>
+ * Sample on demand with {@link #sample()}, or on a background thread with {@link #start()}. The getters may be called
+ * from any thread.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class CpuUsageSampler implements Closeable {
+    /**
+     * Device wide and per core CPU times
+     */
+    public static final String PROC_STAT = "/proc/stat";
+
+    /**
+     * CPU times of this process
+     */
+    public static final String PROC_SELF_STAT = "/proc/self/stat";
+
+    /**
+     * Load that isn't known (yet)
+     */
+    public static final float UNKNOWN = -1f;
+
+    /**
+     * Default weight of the newest sample in the smoothed loads
+     */
+    public static final float DEFAULT_SMOOTHING = 0.25f;
+
+    /**
+     * USER_HZ, the unit of procfs CPU times. 100 on every Linux architecture Android runs on.
+     */
+    static final int CLOCK_TICKS_PER_SECOND = 100;
+
+    private static final String THREAD_NAME = "CpuUsageSampler";
+    private static final int INITIAL_BUFFER = 4096;
+
+    // user, nice, system, idle, iowait, irq, softirq, steal; guest time is already part of user time
+    private static final int TIME_FIELDS = 8;
+    private static final int IDLE = 3;
+    private static final int IOWAIT = 4;
+
+    // in /proc/self/stat, counted from the field after the command name: state is 0, utime 11 and stime 12
+    private static final int UTIME = 11;
+    private static final int STIME = 12;
+
+    private static final byte[] CPU = ProcFile.keys("cpu")[0];
+
+    private final ProcFile stat;
+    private final ProcFile selfStat;
+    private final float smoothing;
+    private final Listener listener;
+    private final int processors = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Time between samples taken by {@link #start()}, in milliseconds
+     */
+    @Getter
+    private final long intervalMillis;
+
+    // index 0 is the aggregate "cpu" line, index i + 1 is core i. Negative previous totals mean "no previous sample"
+    private long[] total = new long[0];
+    private long[] idle = new long[0];
+    private boolean[] seen = new boolean[0];
+    private long aggregateDelta = -1;
+    private long lastProcessTicks = -1;
+    private long lastProcessNanos;
+
+    private volatile float systemLoad = UNKNOWN;
+    private volatile float smoothedSystemLoad = UNKNOWN;
+    private volatile float processLoad = UNKNOWN;
+    private volatile float smoothedProcessLoad = UNKNOWN;
+    private volatile float[] coreLoads = new float[0];
+
+    private ScheduledExecutorService scheduler;
+    private boolean closed; // guarded by stat
+
+    /**
+     * @param interval time between samples taken by {@link #start()}, in milliseconds
+     */
+    public CpuUsageSampler(final long interval) {
+        this(new File(PROC_STAT), new File(PROC_SELF_STAT), interval, DEFAULT_SMOOTHING, null);
+    }
+
+    /**
+     * @param statFile       file laid out like {@link #PROC_STAT}
+     * @param selfStatFile   file laid out like {@link #PROC_SELF_STAT}
+     * @param interval       time between samples taken by {@link #start()}, in milliseconds
+     * @param smoothingAlpha weight of the newest sample in the smoothed loads, <code>(0, 1]</code>
+     * @param sampleListener called after every sample on the sampling thread, may be <code>null</code>
+     * @throws IllegalArgumentException if <code>interval</code> is not positive or <code>smoothingAlpha</code> is out
+     *                                  of range
+     */
+    public CpuUsageSampler(final File statFile,
+                           final File selfStatFile,
+                           final long interval,
+                           final float smoothingAlpha,
+                           final Listener sampleListener) {
+        if (!(smoothingAlpha > 0f && smoothingAlpha <= 1f))
+            throw new IllegalArgumentException("Invalid smoothing factor " + smoothingAlpha);
+
+        stat = new ProcFile(statFile, INITIAL_BUFFER);
+        selfStat = new ProcFile(selfStatFile, INITIAL_BUFFER);
+        intervalMillis = Sampling.checkInterval(interval);
+        smoothing = smoothingAlpha;
+        listener = sampleListener;
+    }
+
+    /**
+     * Take a sample now
+     *
+     * @return <code>false</code> if neither file could be read, or the sampler is closed
+     */
+    public boolean sample() {
+        return sample(System.nanoTime());
+    }
+
+    /**
+     * Start sampling every {@link #getIntervalMillis()} on a low priority daemon thread. Does nothing if already
+     * started or closed.
+     */
+    public synchronized void start() {
+        if (null != scheduler || isClosed())
+            return;
+
+        scheduler = Sampling.schedule(THREAD_NAME, intervalMillis, new Runnable() {
+            @Override
+            public void run() {
+                sample();
+            }
+        });
+    }
+
+    /**
+     * Stop sampling. It can be started again.
+     */
+    public synchronized void stop() {
+        if (null == scheduler)
+            return;
+
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * @return <code>true</code> between {@link #start()} and {@link #stop()}
+     */
+    public synchronized boolean isRunning() {
+        return null != scheduler;
+    }
+
+    /**
+     * Stop sampling and close the files. A sample that is already running finishes first; later ones do nothing.
+     */
+    @Override
+    public void close() {
+        stop();
+
+        synchronized (stat) {
+            // a sample still running on the sampler thread would otherwise open the files again
+            closed = true;
+            stat.close();
+            selfStat.close();
+        }
+    }
+
+    /**
+     * @return share of all cores' time spent busy over the last interval, or {@link #UNKNOWN}
+     */
+    public float getSystemLoad() {
+        return systemLoad;
+    }
+
+    /**
+     * @return exponential moving average of {@link #getSystemLoad()}, or {@link #UNKNOWN}
+     */
+    public float getSmoothedSystemLoad() {
+        return smoothedSystemLoad;
+    }
+
+    /**
+     * @return share of all cores' time spent running this process over the last interval, or {@link #UNKNOWN}
+     */
+    public float getProcessLoad() {
+        return processLoad;
+    }
+
+    /**
+     * @return exponential moving average of {@link #getProcessLoad()}, or {@link #UNKNOWN}
+     */
+    public float getSmoothedProcessLoad() {
+        return smoothedProcessLoad;
+    }
+
+    /**
+     * @return number of cores {@link #getCoreLoad(int)} knows about, <code>0</code> if <code>/proc/stat</code> can't be
+     * read
+     */
+    public int getCoreCount() {
+        return coreLoads.length;
+    }
+
+    /**
+     * @param cpu core number
+     * @return share of the core's time spent busy over the last interval; <code>0</code> for an offline core,
+     * {@link #UNKNOWN} if not known yet
+     * @throws IllegalArgumentException if <code>cpu</code> is not less than {@link #getCoreCount()}
+     */
+    public float getCoreLoad(final int cpu) {
+        final float[] loads = coreLoads;
+
+        if (cpu < 0 || cpu >= loads.length)
+            throw new IllegalArgumentException("No cpu " + cpu);
+
+        return loads[cpu];
+    }
+
+    /**
+     * Copy the per core loads
+     *
+     * @param out array to copy into
+     * @return number of loads copied: {@link #getCoreCount()} or <code>out.length</code>, whichever is less
+     */
+    public int getCoreLoads(final float[] out) {
+        final float[] loads = coreLoads;
+        final int count = Math.min(out.length, loads.length);
+        System.arraycopy(loads, 0, out, 0, count);
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "CpuUsage{system=" + systemLoad
+                + ", smoothed=" + smoothedSystemLoad
+                + ", process=" + processLoad
+                + ", cores=" + Arrays.toString(coreLoads) + "}";
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    boolean sample(final long nowNanos) {
+        final boolean system;
+        final boolean process;
+
+        synchronized (stat) {
+            if (closed)
+                return false;
+
+            aggregateDelta = -1;
+            system = stat.read() && parseStat();
+            process = selfStat.read() && parseSelfStat(nowNanos);
+        }
+
+        if (null != listener && (system || process))
+            listener.onSample(this);
+
+        return system || process;
+    }
+
+    private boolean isClosed() {
+        synchronized (stat) {
+            return closed;
+        }
+    }
+
+    private boolean parseStat() {
+        Arrays.fill(seen, false);
+        int line = 0;
+
+        while (line < stat.length) {
+            final int end = stat.lineEnd(line);
+
+            // the cpu lines come first
+            if (!stat.matches(line, Math.min(line + 3, end), CPU))
+                break;
+
+            final long cpu = stat.parseLong(line + 3, end);
+            final int index = cpu < 0 ? 0 : (int) cpu + 1;
+            long sum = 0;
+            long idleSum = 0;
+            int p = stat.skipToken(line, end);
+
+            for (int field = 0; field < TIME_FIELDS; field++) {
+                p = stat.skipBlanks(p, end);
+                final long value = stat.parseLong(p, end);
+
+                if (value < 0)
+                    break;
+
+                sum += value;
+                if (field == IDLE || field == IOWAIT)
+                    idleSum += value;
+
+                p = stat.skipToken(p, end);
+            }
+
+            ensureCapacity(index + 1);
+            seen[index] = true;
+
+            if (0 == index && total[0] >= 0)
+                aggregateDelta = sum - total[0];
+
+            final float load = load(index, sum, idleSum);
+
+            if (0 == index) {
+                systemLoad = load;
+                smoothedSystemLoad = smooth(smoothedSystemLoad, load);
+            } else {
+                coreLoads[index - 1] = load;
+            }
+
+            line = end + 1;
+        }
+
+        if (seen.length == 0 || !seen[0])
+            return false;
+
+        // cores missing from the file are offline; their next appearance starts over
+        for (int i = 1; i < seen.length; i++)
+            if (!seen[i]) {
+                total[i] = -1;
+                coreLoads[i - 1] = 0f;
+            }
+
+        return true;
+    }
+
+    /**
+     * Grow the per line arrays to hold <code>size</code> lines. Only allocates when a core shows up for the first time.
+     */
+    private void ensureCapacity(final int size) {
+        if (total.length >= size)
+            return;
+
+        final int old = total.length;
+        total = Arrays.copyOf(total, size);
+        idle = Arrays.copyOf(idle, size);
+        seen = Arrays.copyOf(seen, size);
+        Arrays.fill(total, old, size, -1);
+
+        final float[] loads = Arrays.copyOf(coreLoads, size - 1);
+        Arrays.fill(loads, Math.max(0, old - 1), size - 1, UNKNOWN);
+        coreLoads = loads;
+    }
+
+    private float load(final int index, final long sum, final long idleSum) {
+        final long previousTotal = total[index];
+        final long previousIdle = idle[index];
+        total[index] = sum;
+        idle[index] = idleSum;
+
+        if (previousTotal < 0)
+            return UNKNOWN;
+
+        final long elapsed = sum - previousTotal;
+        return elapsed <= 0 ? 0f : clamp((float) (elapsed - (idleSum - previousIdle)) / elapsed);
+    }
+
+    private boolean parseSelfStat(final long nowNanos) {
+        final int end = selfStat.lineEnd(0);
+        int p = end;
+
+        // the command name is in parentheses and may itself contain spaces and parentheses
+        while (p > 0 && selfStat.buffer[p - 1] != ')')
+            p--;
+
+        if (0 == p)
+            return false;
+
+        long utime = -1;
+        long stime = -1;
+
+        for (int field = 0; field <= STIME && p < end; field++) {
+            p = selfStat.skipBlanks(p, end);
+
+            if (field == UTIME)
+                utime = selfStat.parseLong(p, end);
+            else if (field == STIME)
+                stime = selfStat.parseLong(p, end);
+
+            p = selfStat.skipToken(p, end);
+        }
+
+        if (utime < 0 || stime < 0)
+            return false;
+
+        final long ticks = utime + stime;
+        final long previousTicks = lastProcessTicks;
+        final long previousNanos = lastProcessNanos;
+        lastProcessTicks = ticks;
+        lastProcessNanos = nowNanos;
+
+        if (previousTicks < 0)
+            return true;
+
+        // the aggregate cpu line's delta covers every online core over the same interval; without it, use the clock
+        final double capacity = aggregateDelta >= 0
+                ? aggregateDelta
+                : (nowNanos - previousNanos) / 1e9 * CLOCK_TICKS_PER_SECOND * processors;
+
+        final float load = capacity <= 0 ? 0f : clamp((float) ((ticks - previousTicks) / capacity));
+        processLoad = load;
+        smoothedProcessLoad = smooth(smoothedProcessLoad, load);
+        return true;
+    }
+
+    private float smooth(final float average, final float sample) {
+        if (UNKNOWN == sample)
+            return average;
+
+        return UNKNOWN == average ? sample : average + smoothing * (sample - average);
+    }
+
+    private static float clamp(final float load) {
+        return load < 0f ? 0f : load > 1f ? 1f : load;
+    }
+
+    /**
+     * Told about every sample
+     */
+    public interface Listener {
+        /**
+         * Called on the sampling thread after each sample
+         *
+         * @param sampler the sampler, to read the new loads from
+         */
+        void onSample(CpuUsageSampler sampler);
+    }
+}
@@ -0,0 +1,1114 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import lombok.Getter;
+
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_DIP;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_IN;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_MM;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_PT;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_PX;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_SP;
+
+/**
+ * Converts between dimension units (see {@link DimensionUnit}) using the densities of a {@link MetricsSource}. This is
+ * the platform independent part of <code>UnitConverter</code> and runs on any JVM.
+ */
+
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public class DimensionConverter {
+
+    private static final int FLOAT_SIGNIFICAND_BITS = 24;
+    private static final int FIXED_POINT_LIMIT = 1 << FLOAT_SIGNIFICAND_BITS;
+
+    /**
+     * Integral dp and sp values from 0 up to this value (inclusive) are converted to pixels through a lookup table
+     */
+    public static final int LOOKUP_MAX = 512;
+
+    /**
+     * Source of the densities this converter works with. It is read again whenever a conversion starts, so metrics
+     * that change (e.g. on a configuration change) are picked up.
+     */
+    @Getter
+    private final MetricsSource metricsSource;
+
+    private volatile Factors factors;
+
+    /**
+     * Whether {@link #dp2px(float)} and {@link #sp2px(float)} count lookup hits, fills and bypasses. Off by default so
+     * the hot path doesn't write shared counters; see {@link #setLookupStatsEnabled(boolean)}.
+     */
+    @Getter
+    private boolean lookupStatsEnabled;
+
+    // lookup statistics, updated without synchronization so only approximate under concurrent use
+    private long lookupHits;
+    private long lookupFills;
+    private long lookupBypasses;
+    private long lookupInvalidations;
+
+    public DimensionConverter(final MetricsSource source) {
+        metricsSource = source;
+        factors = new Factors(source);
+    }
+
+    /* ----------------- Instance Methods ----------------- */
+
+    /**
+     * Convert a dimension to a complex size
+     *
+     * @param f        dimension value
+     * @param fromUnit source dimension unit
+     * @param toUnit   target dimension unit
+     * @return converted dimension value (in pixels or portions thereof)
+     */
+    public float convert(final float f, final int fromUnit, final int toUnit) {
+        validateUnits(fromUnit, toUnit);
+
+        return convert(factors(), f, fromUnit, toUnit);
+    }
+
+    /**
+     * Convert an array of dimensions in place. See {@link #convert(float, int, int)}.
+     *
+     * @param values   dimension values to convert
+     * @param offset   index of the first value to convert
+     * @param length   number of values to convert
+     * @param fromUnit source dimension unit
+     * @param toUnit   target dimension unit
+     */
+    public void convert(final float[] values,
+                        final int offset,
+                        final int length,
+                        final int fromUnit,
+                        final int toUnit) {
+        convert(values, offset, values, offset, length, fromUnit, toUnit);
+    }
+
+    /**
+     * Convert a range of dimensions into a caller supplied array without allocating. See
+     * {@link #convert(float, int, int)}. Overlapping ranges of the same array are handled like
+     * {@link System#arraycopy(Object, int, Object, int, int)}.
+     *
+     * @param src       source dimension values
+     * @param srcOffset index of the first source value
+     * @param dst       array to write converted values to
+     * @param dstOffset index in <code>dst</code> of the first converted value
+     * @param length    number of values to convert
+     * @param fromUnit  source dimension unit
+     * @param toUnit    target dimension unit
+     */
+    public void convert(final float[] src,
+                        final int srcOffset,
+                        final float[] dst,
+                        final int dstOffset,
+                        final int length,
+                        final int fromUnit,
+                        final int toUnit) {
+        validateUnits(fromUnit, toUnit);
+
+        checkRange(src.length, srcOffset, length);
+        checkRange(dst.length, dstOffset, length);
+
+        final Factors table = factors();
+
+        if (src == dst && dstOffset > srcOffset) {
+            for (int i = length - 1; i >= 0; i--)
+                dst[dstOffset + i] = convert(table, src[srcOffset + i], fromUnit, toUnit);
+        } else {
+            for (int i = 0; i < length; i++)
+                dst[dstOffset + i] = convert(table, src[srcOffset + i], fromUnit, toUnit);
+        }
+    }
+
+    /**
+     * Convert the remaining dimensions of a heap or direct buffer in place. The buffer's position and limit are not
+     * modified. See {@link #convert(float, int, int)}.
+     *
+     * @param buffer   dimension values to convert, from its position to its limit
+     * @param fromUnit source dimension unit
+     * @param toUnit   target dimension unit
+     */
+    public void convert(final FloatBuffer buffer, final int fromUnit, final int toUnit) {
+        if (buffer.hasArray()) {
+            final int offset = buffer.arrayOffset() + buffer.position();
+            convert(buffer.array(), offset, buffer.remaining(), fromUnit, toUnit);
+            return;
+        }
+
+        validateUnits(fromUnit, toUnit);
+
+        final Factors table = factors();
+
+        for (int i = buffer.position(), limit = buffer.limit(); i < limit; i++)
+            buffer.put(i, convert(table, buffer.get(i), fromUnit, toUnit));
+    }
+
+    /**
+     * Convert the remaining dimensions of a buffer in place, rounding each result to the nearest integer like
+     * {@link #dp2px(float)}. The buffer's position and limit are not modified. See {@link #convert(float, int, int)}.
+     *
+     * @param buffer   dimension values to convert, from its position to its limit
+     * @param fromUnit source dimension unit
+     * @param toUnit   target dimension unit
+     */
+    public void convert(final IntBuffer buffer, final int fromUnit, final int toUnit) {
+        validateUnits(fromUnit, toUnit);
+
+        final Factors table = factors();
+
+        if (buffer.hasArray()) {
+            final int[] array = buffer.array();
+
+            for (int i = buffer.arrayOffset() + buffer.position(), end = i + buffer.remaining(); i < end; i++)
+                array[i] = Math.round(convert(table, array[i], fromUnit, toUnit));
+
+            return;
+        }
+
+        for (int i = buffer.position(), limit = buffer.limit(); i < limit; i++)
+            buffer.put(i, Math.round(convert(table, buffer.get(i), fromUnit, toUnit)));
+    }
+
+    /**
+     * Convert the remaining dimensions of <code>src</code> into <code>dst</code>. Like
+     * {@link FloatBuffer#put(FloatBuffer)}, both buffers' positions are advanced by the number of converted values.
+     *
+     * @param src      dimension values to convert
+     * @param dst      buffer to write the converted values to
+     * @param fromUnit source dimension unit
+     * @param toUnit   target dimension unit
+     * @throws BufferOverflowException if <code>dst</code> has less room than <code>src</code> has remaining values
+     */
+    public void convert(final FloatBuffer src, final FloatBuffer dst, final int fromUnit, final int toUnit) {
+        final int length = transferLength(src, dst);
+
+        if (src.hasArray() && dst.hasArray()) {
+            convert(src.array(), src.arrayOffset() + src.position(),
+                    dst.array(), dst.arrayOffset() + dst.position(),
+                    length, fromUnit, toUnit);
+        } else {
+            validateUnits(fromUnit, toUnit);
+
+            final Factors table = factors();
+            final int srcPosition = src.position();
+            final int dstPosition = dst.position();
+
+            for (int i = 0; i < length; i++)
+                dst.put(dstPosition + i, convert(table, src.get(srcPosition + i), fromUnit, toUnit));
+        }
+
+        advance(src, dst, length);
+    }
+
+    /**
+     * Convert the remaining integral dimensions of <code>src</code> (e.g. pixels) into <code>dst</code>. Both buffers'
+     * positions are advanced by the number of converted values.
+     *
+     * @param src      dimension values to convert
+     * @param dst      buffer to write the converted values to
+     * @param fromUnit source dimension unit
+     * @param toUnit   target dimension unit
+     * @throws BufferOverflowException if <code>dst</code> has less room than <code>src</code> has remaining values
+     */
+    public void convert(final IntBuffer src, final FloatBuffer dst, final int fromUnit, final int toUnit) {
+        validateUnits(fromUnit, toUnit);
+
+        final int length = transferLength(src, dst);
+        final Factors table = factors();
+        final int srcPosition = src.position();
+        final int dstPosition = dst.position();
+
+        for (int i = 0; i < length; i++)
+            dst.put(dstPosition + i, convert(table, src.get(srcPosition + i), fromUnit, toUnit));
+
+        advance(src, dst, length);
+    }
+
+    /**
+     * Convert the remaining dimensions of <code>src</code> into <code>dst</code>, rounding each result to the nearest
+     * integer like {@link #dp2px(float)}. Both buffers' positions are advanced by the number of converted values.
+     *
+     * @param src      dimension values to convert
+     * @param dst      buffer to write the converted values to
+     * @param fromUnit source dimension unit
+     * @param toUnit   target dimension unit
+     * @throws BufferOverflowException if <code>dst</code> has less room than <code>src</code> has remaining values
+     */
+    public void convert(final FloatBuffer src, final IntBuffer dst, final int fromUnit, final int toUnit) {
+        validateUnits(fromUnit, toUnit);
+
+        final int length = transferLength(src, dst);
+        final Factors table = factors();
+        final int srcPosition = src.position();
+        final int dstPosition = dst.position();
+
+        for (int i = 0; i < length; i++)
+            dst.put(dstPosition + i, Math.round(convert(table, src.get(srcPosition + i), fromUnit, toUnit)));
+
+        advance(src, dst, length);
+    }
+
+    /**
+     * Evaluate a dimension expression such as <code>"16dp + 2px"</code> in pixels. Expressions are compiled once and
+     * cached, see {@link DimensionExpression#compile(String)}.
+     *
+     * @param expression dimension expression
+     * @return value of the expression in pixels
+     * @throws IllegalArgumentException if the expression is malformed or uses an unknown unit
+     */
+    public float evaluate(final String expression) {
+        return DimensionExpression.compile(expression).evaluate(this);
+    }
+
+    /**
+     * Convert a dimension to points (pt)
+     *
+     * @param f simension value
+     * @return converted to points
+     */
+    public float f2pt(final float f) {
+        return 0f == f ? 0f : (f * 72f) / metricsSource.getXdpi();
+    }
+
+    /**
+     * Convert a dimension to device independent pixels (dips)
+     *
+     * @param f dimension size
+     * @return dimension size in dips
+     */
+    public float f2dp(final float f) {
+        return 0f == f ? 0f : f / metricsSource.getDensity();
+    }
+
+    /**
+     * Convert a dimension to scaled pixels
+     *
+     * @param f dimension size
+     * @return dimension size in sps
+     */
+    public float f2sp(final float f) {
+        return 0f == f ? 0f : f / metricsSource.getScaledDensity();
+    }
+
+    /**
+     * Convert a dimension to inches
+     *
+     * @param f dimension size
+     * @return dimension size in inches
+     */
+    public float f2in(final float f) {
+        return 0f == f ? 0f : f / metricsSource.getXdpi();
+    }
+
+    /**
+     * Convert a dimension to millimeters
+     *
+     * @param f dimension size
+     * @return dimension size in millimeters
+     */
+    public float f2mm(final float f) {
+        return 0f == f ? 0f : f2in(f) * 25.4f;
+    }
+
+    /**
+     * Convert a dimension to centimeters
+     *
+     * @param f dimension size
+     * @return dimension size in centimeters
+     */
+    public float f2cm(final float f) {
+        return 0f == f ? 0f : f2in(f) * 2.54f;
+    }
+
+    /**
+     * Convert a pixel size to dps
+     *
+     * @param px pixel size
+     * @return dp equivalent of the given pixel size.
+     */
+    public float px2dp(final int px) {
+        return f2dp((float) px);
+    }
+
+    /**
+     * Convert a single dp value to pixels
+     *
+     * @param dp dp size
+     * @return pixel equivalent of provided dps
+     */
+    public int dp2px(final float dp) {
+        return lookupPx(dp, COMPLEX_UNIT_DIP);
+    }
+
+    /**
+     * Convert a pixel size to sps
+     *
+     * @param px pixel size
+     * @return sp equivalent of the given pixel size.
+     */
+    public float px2sp(final int px) {
+        return 0 == px ? 0f : px / metricsSource.getScaledDensity();
+    }
+
+    /**
+     * Convert a single sp value to pixels
+     *
+     * @param sp sp size
+     * @return pixel equivalent of provided sps
+     */
+    public int sp2px(final float sp) {
+        return lookupPx(sp, COMPLEX_UNIT_SP);
+    }
+
+    /**
+     * Count lookup table hits, fills and bypasses from now on, e.g. while profiling. The counters are plain fields
+     * written on every conversion, so leave this off in production. Counting starts from wherever it was left off.
+     *
+     * @param enabled <code>true</code> to count, <code>false</code> to stop
+     */
+    public void setLookupStatsEnabled(final boolean enabled) {
+        lookupStatsEnabled = enabled;
+    }
+
+    /**
+     * Statistics for the integral dp/sp lookup tables used by {@link #dp2px(float)} and {@link #sp2px(float)}. Hits,
+     * fills and bypasses are only counted while {@link #setLookupStatsEnabled(boolean) enabled}; invalidations always
+     * are. The counters aren't synchronized, so with several converting threads the counts are approximate.
+     *
+     * @return a snapshot of the current lookup statistics
+     */
+    public LookupStats getLookupStats() {
+        final Factors table = factors;
+        int bytes = 0;
+
+        for (final int[] lookup : table.lookups)
+            if (null != lookup)
+                bytes += LookupStats.TABLE_BYTES;
+
+        return new LookupStats(lookupHits, lookupFills, lookupBypasses, lookupInvalidations, bytes);
+    }
+
+    /**
+     * Convert an integral dp value to pixels using integer arithmetic only. The density is kept as a scaled integer, so
+     * the result is identical to {@link #dp2px(float)}, including its rounding, without any floating point math.
+     *
+     * @param dp dp size
+     * @return pixel equivalent of provided dps
+     */
+    public int dp2pxFixed(final int dp) {
+        final Factors table = factors();
+
+        return 0 == table.densityMantissa || !fixedPointExact(dp)
+                ? dp2px((float) dp)
+                : fixedPointRound(dp, table.densityMantissa, table.densityShift);
+    }
+
+    /**
+     * Convert an integral sp value to pixels using integer arithmetic only. The result is identical to
+     * {@link #sp2px(float)}. See {@link #dp2pxFixed(int)}.
+     *
+     * @param sp sp size
+     * @return pixel equivalent of provided sps
+     */
+    public int sp2pxFixed(final int sp) {
+        final Factors table = factors();
+
+        return 0 == table.scaledDensityMantissa || !fixedPointExact(sp)
+                ? sp2px((float) sp)
+                : fixedPointRound(sp, table.scaledDensityMantissa, table.scaledDensityShift);
+    }
+
+    /**
+     * Convert a range of integral dp sizes to pixels without allocating or using floating point math. See
+     * {@link #dp2pxFixed(int)}.
+     *
+     * @param dps       dp sizes
+     * @param dpsOffset index of the first value in <code>dps</code> to convert
+     * @param pxs       array to write the converted equivalent pixel values to
+     * @param pxsOffset index in <code>pxs</code> of the first converted value
+     * @param length    number of values to convert
+     */
+    public void dps2pxsFixed(final int[] dps,
+                             final int dpsOffset,
+                             final int[] pxs,
+                             final int pxsOffset,
+                             final int length) {
+        checkRange(dps.length, dpsOffset, length);
+        checkRange(pxs.length, pxsOffset, length);
+
+        for (int i = 0; i < length; i++)
+            pxs[pxsOffset + i] = dp2pxFixed(dps[dpsOffset + i]);
+    }
+
+    /**
+     * Convert a range of integral sp sizes to pixels without allocating or using floating point math. See
+     * {@link #sp2pxFixed(int)}.
+     *
+     * @param sps       sp sizes
+     * @param spsOffset index of the first value in <code>sps</code> to convert
+     * @param pxs       array to write the converted equivalent pixel values to
+     * @param pxsOffset index in <code>pxs</code> of the first converted value
+     * @param length    number of values to convert
+     */
+    public void sps2pxsFixed(final int[] sps,
+                             final int spsOffset,
+                             final int[] pxs,
+                             final int pxsOffset,
+                             final int length) {
+        checkRange(sps.length, spsOffset, length);
+        checkRange(pxs.length, pxsOffset, length);
+
+        for (int i = 0; i < length; i++)
+            pxs[pxsOffset + i] = sp2pxFixed(sps[spsOffset + i]);
+    }
+
+    /**
+     * Convert packed rectangles in dps (<code>left, top, right, bottom</code> per rectangle) to pixels, in place. The
+     * left and top edges are rounded and the width and height are rounded separately, so two rectangles with the same
+     * size in dps always get the same size in pixels.
+     *
+     * @param rects  packed rectangles
+     * @param offset index of the first rectangle's left edge
+     * @param count  number of rectangles to convert
+     */
+    public void dpRects2px(final int[] rects, final int offset, final int count) {
+        checkRange(rects.length, offset, count * 4);
+
+        for (int i = offset, end = offset + count * 4; i < end; i += 4) {
+            final int left = dp2px((float) rects[i]);
+            final int top = dp2px((float) rects[i + 1]);
+            rects[i + 2] = left + dp2px((float) (rects[i + 2] - rects[i]));
+            rects[i + 3] = top + dp2px((float) (rects[i + 3] - rects[i + 1]));
+            rects[i] = left;
+            rects[i + 1] = top;
+        }
+    }
+
+    /**
+     * Convert packed rectangles in pixels (<code>left, top, right, bottom</code> per rectangle) to whole dps, in place.
+     * Each rectangle is rounded like {@link #dpRects2px(int[], int, int)}.
+     *
+     * @param rects  packed rectangles
+     * @param offset index of the first rectangle's left edge
+     * @param count  number of rectangles to convert
+     */
+    public void pxRects2dp(final int[] rects, final int offset, final int count) {
+        checkRange(rects.length, offset, count * 4);
+
+        for (int i = offset, end = offset + count * 4; i < end; i += 4) {
+            final int left = px2dpRounded(rects[i]);
+            final int top = px2dpRounded(rects[i + 1]);
+            rects[i + 2] = left + px2dpRounded(rects[i + 2] - rects[i]);
+            rects[i + 3] = top + px2dpRounded(rects[i + 3] - rects[i + 1]);
+            rects[i] = left;
+            rects[i + 1] = top;
+        }
+    }
+
+    /**
+     * Convert packed insets in dps (<code>left, top, right, bottom</code> per quad) to pixels, in place. Unlike
+     * {@link #dpRects2px(int[], int, int)}, each side is an independent distance and is rounded on its own.
+     *
+     * @param insets packed insets
+     * @param offset index of the first quad's left inset
+     * @param count  number of quads to convert
+     */
+    public void dpInsets2px(final int[] insets, final int offset, final int count) {
+        checkRange(insets.length, offset, count * 4);
+
+        for (int i = offset, end = offset + count * 4; i < end; i++)
+            insets[i] = dp2px((float) insets[i]);
+    }
+
+    /**
+     * Convert at an array of pixel sizes to dps
+     *
+     * @param pxs pixel sizes
+     * @return converted equivalent dp values
+     */
+    public float[] pxs2dps(final int... pxs) {
+        if (null == pxs) return null;
+        if (pxs.length == 0) return new float[0];
+
+        final float[] dps = new float[pxs.length];
+        pxs2dps(pxs, 0, dps, 0, pxs.length);
+        return dps;
+    }
+
+    /**
+     * Convert a range of pixel sizes to dp values into a caller supplied array without allocating
+     *
+     * @param pxs       pixel sizes
+     * @param pxsOffset index of the first value in <code>pxs</code> to convert
+     * @param dps       array to write the converted equivalent dp values to
+     * @param dpsOffset index in <code>dps</code> of the first converted value
+     * @param length    number of values to convert
+     */
+    public void pxs2dps(final int[] pxs,
+                        final int pxsOffset,
+                        final float[] dps,
+                        final int dpsOffset,
+                        final int length) {
+        checkRange(pxs.length, pxsOffset, length);
+        checkRange(dps.length, dpsOffset, length);
+
+        for (int i = 0; i < length; i++)
+            dps[dpsOffset + i] = px2dp(pxs[pxsOffset + i]);
+    }
+
+    /**
+     * Convert at an array of dp sizes to pixels
+     *
+     * @param dps dp sizes
+     * @return converted equivalent pixel values
+     */
+    public int[] dps2pxs(final float... dps) {
+        if (null == dps) return null;
+        if (dps.length == 0) return new int[0];
+
+        final int[] pxs = new int[dps.length];
+        dps2pxs(dps, 0, pxs, 0, dps.length);
+        return pxs;
+    }
+
+    /**
+     * Convert a range of dp sizes to pixel values into a caller supplied array without allocating
+     *
+     * @param dps       dp sizes
+     * @param dpsOffset index of the first value in <code>dps</code> to convert
+     * @param pxs       array to write the converted equivalent pixel values to
+     * @param pxsOffset index in <code>pxs</code> of the first converted value
+     * @param length    number of values to convert
+     */
+    public void dps2pxs(final float[] dps,
+                        final int dpsOffset,
+                        final int[] pxs,
+                        final int pxsOffset,
+                        final int length) {
+        checkRange(dps.length, dpsOffset, length);
+        checkRange(pxs.length, pxsOffset, length);
+
+        for (int i = 0; i < length; i++)
+            pxs[pxsOffset + i] = dp2px(dps[dpsOffset + i]);
+    }
+
+    /**
+     * Convert at an array of pixel sizes to sps
+     *
+     * @param pxs pixel sizes
+     * @return converted equivalent sp values
+     */
+    public float[] pxs2sps(final int... pxs) {
+        if (null == pxs) return null;
+        if (pxs.length == 0) return new float[0];
+
+        final float[] sps = new float[pxs.length];
+        pxs2sps(pxs, 0, sps, 0, pxs.length);
+        return sps;
+    }
+
+    /**
+     * Convert a range of pixel sizes to sp values into a caller supplied array without allocating
+     *
+     * @param pxs       pixel sizes
+     * @param pxsOffset index of the first value in <code>pxs</code> to convert
+     * @param sps       array to write the converted equivalent sp values to
+     * @param spsOffset index in <code>sps</code> of the first converted value
+     * @param length    number of values to convert
+     */
+    public void pxs2sps(final int[] pxs,
+                        final int pxsOffset,
+                        final float[] sps,
+                        final int spsOffset,
+                        final int length) {
+        checkRange(pxs.length, pxsOffset, length);
+        checkRange(sps.length, spsOffset, length);
+
+        for (int i = 0; i < length; i++)
+            sps[spsOffset + i] = px2sp(pxs[pxsOffset + i]);
+    }
+
+    /**
+     * Convert at an array of sp sizes to pixels
+     *
+     * @param sps sp sizes
+     * @return converted equivalent pixel values
+     */
+    public int[] sps2pxs(final float... sps) {
+        if (null == sps) return null;
+        if (sps.length == 0) return new int[0];
+
+        final int[] pxs = new int[sps.length];
+        sps2pxs(sps, 0, pxs, 0, sps.length);
+        return pxs;
+    }
+
+    /**
+     * Convert a range of sp sizes to pixel values into a caller supplied array without allocating
+     *
+     * @param sps       sp sizes
+     * @param spsOffset index of the first value in <code>sps</code> to convert
+     * @param pxs       array to write the converted equivalent pixel values to
+     * @param pxsOffset index in <code>pxs</code> of the first converted value
+     * @param length    number of values to convert
+     */
+    public void sps2pxs(final float[] sps,
+                        final int spsOffset,
+                        final int[] pxs,
+                        final int pxsOffset,
+                        final int length) {
+        checkRange(sps.length, spsOffset, length);
+        checkRange(pxs.length, pxsOffset, length);
+
+        for (int i = 0; i < length; i++)
+            pxs[pxsOffset + i] = sp2px(sps[spsOffset + i]);
+    }
+
+    /**
+     * Parallel version of {@link #convert(float[], int, float[], int, int, int, int)} for very large arrays. Work is
+     * split across a shared pool sized from the number of available processors once <code>length</code> is large
+     * enough to be worth it, otherwise (and for overlapping ranges of the same array) the conversion runs on the
+     * calling thread.
+     * Results are identical to the sequential method.
+     */
+    public void convertParallel(final float[] src,
+                                final int srcOffset,
+                                final float[] dst,
+                                final int dstOffset,
+                                final int length,
+                                final int fromUnit,
+                                final int toUnit) {
+        if (src == dst && srcOffset != dstOffset && Math.abs(srcOffset - dstOffset) < length) {
+            convert(src, srcOffset, dst, dstOffset, length, fromUnit, toUnit);
+            return;
+        }
+
+        validateUnits(fromUnit, toUnit);
+
+        checkRange(src.length, srcOffset, length);
+        checkRange(dst.length, dstOffset, length);
+
+        final Factors table = factors();
+
+        ParallelRange.forEach(length, new ParallelRange.Body() {
+            @Override
+            public void run(final int start, final int end) {
+                for (int i = start; i < end; i++)
+                    dst[dstOffset + i] = convert(table, src[srcOffset + i], fromUnit, toUnit);
+            }
+        });
+    }
+
+    /**
+     * Parallel version of {@link #convert(float[], int, int, int, int)}. See
+     * {@link #convertParallel(float[], int, float[], int, int, int, int)}.
+     */
+    public void convertParallel(final float[] values,
+                                final int offset,
+                                final int length,
+                                final int fromUnit,
+                                final int toUnit) {
+        convertParallel(values, offset, values, offset, length, fromUnit, toUnit);
+    }
+
+    /**
+     * Parallel version of {@link #pxs2dps(int[], int, float[], int, int)}. See
+     * {@link #convertParallel(float[], int, float[], int, int, int, int)}.
+     */
+    public void pxs2dpsParallel(final int[] pxs,
+                                final int pxsOffset,
+                                final float[] dps,
+                                final int dpsOffset,
+                                final int length) {
+        checkRange(pxs.length, pxsOffset, length);
+        checkRange(dps.length, dpsOffset, length);
+
+        ParallelRange.forEach(length, new ParallelRange.Body() {
+            @Override
+            public void run(final int start, final int end) {
+                for (int i = start; i < end; i++)
+                    dps[dpsOffset + i] = px2dp(pxs[pxsOffset + i]);
+            }
+        });
+    }
+
+    /**
+     * Parallel version of {@link #dps2pxs(float[], int, int[], int, int)}. See
+     * {@link #convertParallel(float[], int, float[], int, int, int, int)}.
+     */
+    public void dps2pxsParallel(final float[] dps,
+                                final int dpsOffset,
+                                final int[] pxs,
+                                final int pxsOffset,
+                                final int length) {
+        checkRange(dps.length, dpsOffset, length);
+        checkRange(pxs.length, pxsOffset, length);
+
+        ParallelRange.forEach(length, new ParallelRange.Body() {
+            @Override
+            public void run(final int start, final int end) {
+                for (int i = start; i < end; i++)
+                    pxs[pxsOffset + i] = dp2px(dps[dpsOffset + i]);
+            }
+        });
+    }
+
+    /**
+     * Parallel version of {@link #pxs2sps(int[], int, float[], int, int)}. See
+     * {@link #convertParallel(float[], int, float[], int, int, int, int)}.
+     */
+    public void pxs2spsParallel(final int[] pxs,
+                                final int pxsOffset,
+                                final float[] sps,
+                                final int spsOffset,
+                                final int length) {
+        checkRange(pxs.length, pxsOffset, length);
+        checkRange(sps.length, spsOffset, length);
+
+        ParallelRange.forEach(length, new ParallelRange.Body() {
+            @Override
+            public void run(final int start, final int end) {
+                for (int i = start; i < end; i++)
+                    sps[spsOffset + i] = px2sp(pxs[pxsOffset + i]);
+            }
+        });
+    }
+
+    /**
+     * Parallel version of {@link #sps2pxs(float[], int, int[], int, int)}. See
+     * {@link #convertParallel(float[], int, float[], int, int, int, int)}.
+     */
+    public void sps2pxsParallel(final float[] sps,
+                                final int spsOffset,
+                                final int[] pxs,
+                                final int pxsOffset,
+                                final int length) {
+        checkRange(sps.length, spsOffset, length);
+        checkRange(pxs.length, pxsOffset, length);
+
+        ParallelRange.forEach(length, new ParallelRange.Body() {
+            @Override
+            public void run(final int start, final int end) {
+                for (int i = start; i < end; i++)
+                    pxs[pxsOffset + i] = sp2px(sps[spsOffset + i]);
+            }
+        });
+    }
+
+    /* ----------------- Helper Methods ----------------- */
+    private float convert(final Factors table, final float f, final int fromUnit, final int toUnit) {
+        if (0f == f) return 0;
+        if (fromUnit == toUnit) return f;
+
+        final float value = table.nonLinearSp && COMPLEX_UNIT_SP == fromUnit
+                ? metricsSource.applyFontScaling(f)
+                : f * table.toPx[fromUnit] * table.toPxScale[fromUnit];
+
+        if (COMPLEX_UNIT_PX == toUnit) return value;
+
+        // inverting applyDimension, basically
+        return 0f == value
+                ? 0f
+                : value * table.fromPxScale[toUnit] / table.fromPx[toUnit] * table.fromPxPost[toUnit];
+    }
+
+    private static void validateUnits(final int fromUnit, final int toUnit) {
+        if (!validUnit(fromUnit))
+            throw new IllegalArgumentException("Unknown source unit");
+
+        if (!validUnit(toUnit))
+            throw new IllegalArgumentException("Unknown target unit");
+    }
+
+    /**
+     * {@link #px2dp(int)} rounded to whole dps, as used for each edge and size of a rectangle
+     */
+    protected int px2dpRounded(final int px) {
+        return Math.round(px2dp(px));
+    }
+
+    /**
+     * Integers beyond +/- 2<sup>24</sup> lose precision when converted to float, so the float path has to round them
+     * first. Those are left to the float path.
+     */
+    private static boolean fixedPointExact(final int value) {
+        return value >= -FIXED_POINT_LIMIT && value <= FIXED_POINT_LIMIT;
+    }
+
+    /**
+     * Integer equivalent of <code>Math.round(value * scale)</code> where <code>scale</code> is
+     * <code>mantissa / 2<sup>shift</sup></code>. The exact product is first rounded to 24 significant bits (ties to
+     * even) like a float multiply, then rounded half up like {@link Math#round(float)}.
+     */
+    private static int fixedPointRound(final int value, final int mantissa, final int shift) {
+        final long magnitude = Math.abs((long) value) * mantissa;
+        final int bits = 64 - Long.numberOfLeadingZeros(magnitude);
+        long rounded = magnitude;
+
+        if (bits > FLOAT_SIGNIFICAND_BITS) {
+            final int drop = bits - FLOAT_SIGNIFICAND_BITS;
+            final long half = 1L << (drop - 1);
+            final long remainder = magnitude & ((1L << drop) - 1);
+            long significand = magnitude >>> drop;
+
+            if (remainder > half || (remainder == half && (significand & 1) != 0))
+                significand++;
+
+            rounded = significand << drop;
+        }
+
+        final long product = value < 0 ? -rounded : rounded;
+        return (int) ((product + (1L << (shift - 1))) >> shift);
+    }
+
+    private static int transferLength(final Buffer src, final Buffer dst) {
+        final int length = src.remaining();
+
+        if (length > dst.remaining())
+            throw new BufferOverflowException();
+
+        return length;
+    }
+
+    private static void advance(final Buffer src, final Buffer dst, final int length) {
+        src.position(src.position() + length);
+        dst.position(dst.position() + length);
+    }
+
+    protected static void checkRange(final int arrayLength, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length)
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length
+                    + ", array length " + arrayLength);
+    }
+
+    private static boolean validUnit(final int toUnit) {
+        // COMPLEX_UNIT_PX through COMPLEX_UNIT_MM are contiguous (0 - 5). Everything else is a mask or unknown.
+        return toUnit >= COMPLEX_UNIT_PX && toUnit <= COMPLEX_UNIT_MM;
+    }
+
+    /**
+     * Get the conversion table for the current display metrics, rebuilding it if the metrics have changed since it was
+     * last built.
+     */
+    private Factors factors() {
+        final Factors current = factors;
+
+        if (current.matches(metricsSource))
+            return current;
+
+        final Factors rebuilt = new Factors(metricsSource);
+        factors = rebuilt;
+        lookupInvalidations++;
+        return rebuilt;
+    }
+
+    /**
+     * <code>Math.round(f * scale)</code> for dp (density) or sp (scaledDensity), answered from a lazily filled table
+     * for integral values from 0 to {@link #LOOKUP_MAX}. Entries are stored as <code>~px</code> so a zero (the array
+     * default) means "not filled yet" and a table published by a racing thread is always safe to read.
+     */
+    private int lookupPx(final float f, final int unit) {
+        if (0f == f) return 0;
+
+        final Factors table = factors();
+        final float scale = table.toPx[unit];
+        final int index = (int) f;
+
+        if (index != f || index < 0 || index > LOOKUP_MAX || !(scale > 0f)) {
+            if (lookupStatsEnabled) lookupBypasses++;
+            return Math.round(f * scale);
+        }
+
+        int[] lookup = table.lookups[unit];
+
+        if (null == lookup) {
+            lookup = new int[LOOKUP_MAX + 1];
+            table.lookups[unit] = lookup;
+        }
+
+        final int entry = lookup[index];
+
+        if (0 != entry) {
+            if (lookupStatsEnabled) lookupHits++;
+            return ~entry;
+        }
+
+        if (lookupStatsEnabled) lookupFills++;
+        final int px = Math.round(f * scale);
+        lookup[index] = ~px;
+        return px;
+    }
+
+    /**
+     * A snapshot of {@link DimensionConverter} lookup table statistics
+     */
+    public static final class LookupStats {
+        static final int TABLE_BYTES = 4 * (LOOKUP_MAX + 1) + 16;
+
+        /**
+         * Conversions answered from a lookup table
+         */
+        @Getter
+        private final long hits;
+
+        /**
+         * In-range conversions that had to be computed to fill a table entry
+         */
+        @Getter
+        private final long fills;
+
+        /**
+         * Conversions that could not use a table (fractional, negative or larger than {@link #LOOKUP_MAX})
+         */
+        @Getter
+        private final long bypasses;
+
+        /**
+         * Number of times the tables were discarded because the display metrics changed
+         */
+        @Getter
+        private final long invalidations;
+
+        /**
+         * Approximate heap used by the current tables
+         */
+        @Getter
+        private final int memoryBytes;
+
+        LookupStats(final long h, final long f, final long b, final long i, final int bytes) {
+            hits = h;
+            fills = f;
+            bypasses = b;
+            invalidations = i;
+            memoryBytes = bytes;
+        }
+
+        /**
+         * @return fraction of dp/sp to px conversions answered from a table, or 0 if there were none
+         */
+        public float getHitRate() {
+            final long total = hits + fills + bypasses;
+            return 0 == total ? 0f : (float) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "LookupStats{hits=" + hits + ", fills=" + fills + ", bypasses=" + bypasses
+                    + ", invalidations=" + invalidations + ", memoryBytes=" + memoryBytes + "}";
+        }
+    }
+
+    /**
+     * Per-unit conversion factors, indexed by <code>COMPLEX_UNIT_*</code>. Every conversion to pixels is
+     * <code>f * toPx * toPxScale</code> and every conversion from pixels is
+     * <code>px * fromPxScale / fromPx * fromPxPost</code>. Unused factors are <code>1f</code>, which keeps each step
+     * exact, so the results are identical to Android's <code>TypedValue.applyDimension()</code> followed by the
+     * matching <code>f2*</code> method. A single fused factor per unit pair would round differently.
+     */
+    private static final class Factors {
+        private static final int UNIT_COUNT = COMPLEX_UNIT_MM + 1;
+
+        final float density;
+        final float scaledDensity;
+        final float xdpi;
+        final boolean nonLinearSp;
+
+        // density and scaledDensity as mantissa / 2^shift, or a 0 mantissa if they can't be used as fixed point
+        final int densityMantissa;
+        final int densityShift;
+        final int scaledDensityMantissa;
+        final int scaledDensityShift;
+
+        final float[] toPx = new float[UNIT_COUNT];
+        final float[] toPxScale = new float[UNIT_COUNT];
+        final float[] fromPxScale = new float[UNIT_COUNT];
+        final float[] fromPx = new float[UNIT_COUNT];
+        final float[] fromPxPost = new float[UNIT_COUNT];
+
+        // integral dp/sp to px lookup tables, indexed by unit and allocated on first use
+        final int[][] lookups = new int[UNIT_COUNT][];
+
+        Factors(final MetricsSource source) {
+            density = source.getDensity();
+            scaledDensity = source.getScaledDensity();
+            xdpi = source.getXdpi();
+            nonLinearSp = source.isFontScalingNonLinear();
+
+            densityMantissa = mantissa(density);
+            densityShift = shift(density);
+            scaledDensityMantissa = mantissa(scaledDensity);
+            scaledDensityShift = shift(scaledDensity);
+
+            set(COMPLEX_UNIT_PX, 1f, 1f, 1f, 1f, 1f);
+            set(COMPLEX_UNIT_DIP, density, 1f, 1f, density, 1f);
+            set(COMPLEX_UNIT_SP, scaledDensity, 1f, 1f, scaledDensity, 1f);
+            set(COMPLEX_UNIT_PT, xdpi, 1.0f / 72, 72f, xdpi, 1f);
+            set(COMPLEX_UNIT_IN, xdpi, 1f, 1f, xdpi, 1f);
+            set(COMPLEX_UNIT_MM, xdpi, 1.0f / 25.4f, 1f, xdpi, 25.4f);
+        }
+
+        private void set(final int unit,
+                         final float to,
+                         final float toScale,
+                         final float fromScale,
+                         final float from,
+                         final float fromPost) {
+            toPx[unit] = to;
+            toPxScale[unit] = toScale;
+            fromPxScale[unit] = fromScale;
+            fromPx[unit] = from;
+            fromPxPost[unit] = fromPost;
+        }
+
+        /**
+         * @return the 24 bit significand of a positive, normal float whose value is below 2<sup>23</sup>; 0 otherwise
+         */
+        private static int mantissa(final float f) {
+            final int bits = Float.floatToRawIntBits(f);
+            final int exponent = (bits >>> 23) & 0xff;
+
+            if (bits <= 0 || exponent == 0 || exponent == 0xff || shift(f) < 1 || shift(f) > 62)
+                return 0;
+
+            return (bits & 0x7fffff) | 0x800000;
+        }
+
+        /**
+         * @return n such that <code>f == mantissa(f) / 2<sup>n</sup></code>
+         */
+        private static int shift(final float f) {
+            final int exponent = (Float.floatToRawIntBits(f) >>> 23) & 0xff;
+            return 127 + 23 - exponent;
+        }
+
+        boolean matches(final MetricsSource source) {
+            return density == source.getDensity()
+                    && scaledDensity == source.getScaledDensity()
+                    && xdpi == source.getXdpi();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Getter;
+
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_DIP;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_IN;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_MM;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_PT;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_PX;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_SP;
+
+/**
+ * A dimension expression such as <code>"12dp"</code>, <code>"1.5sp"</code> or <code>"12dp + 4sp - 1px"</code>,
+ * parsed once and evaluated any number of times against a {@link DimensionConverter}. Supported units are
+ * <code>px</code>, <code>dp</code> (or <code>dip</code>), <code>sp</code>, <code>pt</code>, <code>in</code> and
+ * <code>mm</code>. Evaluating does not allocate.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class DimensionExpression {
+    /**
+     * Maximum number of compiled expressions kept by {@link #compile(String)}
+     */
+    public static final int CACHE_SIZE = 256;
+
+    private static final Map<String, DimensionExpression> CACHE =
+            new LinkedHashMap<String, DimensionExpression>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, DimensionExpression> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    /**
+     * The expression this instance was parsed from
+     */
+    @Getter
+    private final String source;
+
+    private final float[] values;
+    private final int[] units;
+
+    private DimensionExpression(final String s, final float[] v, final int[] u) {
+        source = s;
+        values = v;
+        units = u;
+    }
+
+    /**
+     * Get the compiled form of an expression, parsing it only if it is not already in the (bounded, least recently
+     * used) cache.
+     *
+     * @param source expression to compile
+     * @return compiled expression
+     * @throws IllegalArgumentException if the expression is malformed or uses an unknown unit
+     */
+    public static DimensionExpression compile(final String source) {
+        synchronized (CACHE) {
+            final DimensionExpression cached = CACHE.get(source);
+            if (null != cached) return cached;
+        }
+
+        final DimensionExpression parsed = parse(source);
+
+        synchronized (CACHE) {
+            CACHE.put(source, parsed);
+        }
+
+        return parsed;
+    }
+
+    /**
+     * Parse an expression without consulting or populating the cache.
+     *
+     * @param source expression to parse
+     * @return compiled expression
+     * @throws IllegalArgumentException if the expression is malformed or uses an unknown unit
+     */
+    public static DimensionExpression parse(final String source) {
+        if (null == source)
+            throw new IllegalArgumentException("No expression specified");
+
+        final int length = source.length();
+        final float[] values = new float[length / 2 + 1];
+        final int[] units = new int[values.length];
+        int terms = 0;
+        int i = skipSpaces(source, 0);
+        float sign = 1f;
+
+        if (i < length && (source.charAt(i) == '+' || source.charAt(i) == '-')) {
+            sign = source.charAt(i) == '-' ? -1f : 1f;
+            i = skipSpaces(source, i + 1);
+        }
+
+        while (true) {
+            final int numberStart = i;
+
+            while (i < length && (Character.isDigit(source.charAt(i)) || source.charAt(i) == '.'))
+                i++;
+
+            if (numberStart == i)
+                throw new IllegalArgumentException("Expected a number at " + numberStart + " in '" + source + "'");
+
+            final float value;
+
+            try {
+                value = Float.parseFloat(source.substring(numberStart, i));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad number at " + numberStart + " in '" + source + "'", e);
+            }
+
+            i = skipSpaces(source, i);
+            final int unitStart = i;
+
+            while (i < length && Character.isLetter(source.charAt(i)))
+                i++;
+
+            values[terms] = sign * value;
+            units[terms] = unit(source, unitStart, i);
+            terms++;
+
+            i = skipSpaces(source, i);
+
+            if (i == length)
+                break;
+
+            final char operator = source.charAt(i);
+
+            if (operator != '+' && operator != '-')
+                throw new IllegalArgumentException("Expected '+' or '-' at " + i + " in '" + source + "'");
+
+            sign = operator == '-' ? -1f : 1f;
+            i = skipSpaces(source, i + 1);
+        }
+
+        final float[] v = new float[terms];
+        final int[] u = new int[terms];
+        System.arraycopy(values, 0, v, 0, terms);
+        System.arraycopy(units, 0, u, 0, terms);
+        return new DimensionExpression(source, v, u);
+    }
+
+    /**
+     * Evaluate this expression in pixels. Each term is converted with
+     * {@link DimensionConverter#convert(float, int, int)} and the results are summed left to right.
+     *
+     * @param converter converter holding the display metrics to evaluate against
+     * @return value of this expression in pixels
+     */
+    public float evaluate(final DimensionConverter converter) {
+        float px = 0f;
+
+        for (int i = 0; i < values.length; i++)
+            px += converter.convert(values[i], units[i], COMPLEX_UNIT_PX);
+
+        return px;
+    }
+
+    /**
+     * Evaluate this expression in the specified unit.
+     *
+     * @param converter converter holding the display metrics to evaluate against
+     * @param toUnit    target dimension unit (e.g. {@link DimensionUnit#COMPLEX_UNIT_DIP})
+     * @return value of this expression in <code>toUnit</code>
+     */
+    public float evaluate(final DimensionConverter converter, final int toUnit) {
+        return converter.convert(evaluate(converter), COMPLEX_UNIT_PX, toUnit);
+    }
+
+    /**
+     * Evaluate this expression as a whole number of pixels, rounded like {@link DimensionConverter#dp2px(float)}.
+     *
+     * @param converter converter holding the display metrics to evaluate against
+     * @return value of this expression in pixels, rounded to the nearest pixel
+     */
+    public int evaluatePx(final DimensionConverter converter) {
+        return Math.round(evaluate(converter));
+    }
+
+    /**
+     * @return number of terms in this expression
+     */
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    static int cacheSize() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    private static int skipSpaces(final String source, int i) {
+        while (i < source.length() && Character.isWhitespace(source.charAt(i)))
+            i++;
+
+        return i;
+    }
+
+    private static int unit(final String source, final int start, final int end) {
+        switch (source.substring(start, end)) {
+            case "px":
+                return COMPLEX_UNIT_PX;
+            case "dp":
+            case "dip":
+                return COMPLEX_UNIT_DIP;
+            case "sp":
+                return COMPLEX_UNIT_SP;
+            case "pt":
+                return COMPLEX_UNIT_PT;
+            case "in":
+                return COMPLEX_UNIT_IN;
+            case "mm":
+                return COMPLEX_UNIT_MM;
+            default:
+                throw new IllegalArgumentException("Unknown unit at " + start + " in '" + source + "'");
+        }
+    }
+}
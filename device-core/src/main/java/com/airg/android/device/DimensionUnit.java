@@ -0,0 +1,60 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Dimension units understood by {@link DimensionConverter}. The values are the same as Android's
+ * <code>TypedValue.COMPLEX_UNIT_*</code> constants, so either set can be used.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE) // no instances
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class DimensionUnit {
+    /**
+     * Raw pixels
+     */
+    public static final int COMPLEX_UNIT_PX = 0;
+
+    /**
+     * Device independent pixels
+     */
+    public static final int COMPLEX_UNIT_DIP = 1;
+
+    /**
+     * Scaled (font) pixels
+     */
+    public static final int COMPLEX_UNIT_SP = 2;
+
+    /**
+     * Points, 1/72 of an inch
+     */
+    public static final int COMPLEX_UNIT_PT = 3;
+
+    /**
+     * Inches
+     */
+    public static final int COMPLEX_UNIT_IN = 4;
+
+    /**
+     * Millimeters
+     */
+    public static final int COMPLEX_UNIT_MM = 5;
+}
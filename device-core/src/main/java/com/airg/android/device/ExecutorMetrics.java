@@ -0,0 +1,136 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import lombok.Getter;
+
+/**
+ * A point in time copy of an {@link InstrumentedExecutor}'s counters. Wait time is the time a task spent in the queue,
+ * latency the time it spent running. Times are in nanoseconds.
+ */
+@Getter
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class ExecutorMetrics {
+    /**
+     * Executor name, also the prefix of its thread names
+     */
+    private final String name;
+
+    /**
+     * Current number of threads
+     */
+    private final int poolSize;
+
+    /**
+     * Number of threads running a task
+     */
+    private final int activeCount;
+
+    /**
+     * Number of tasks waiting in the queue
+     */
+    private final int queueDepth;
+
+    /**
+     * Largest queue depth seen after a task was queued
+     */
+    private final int maxQueueDepth;
+
+    /**
+     * Number of tasks that finished running, including those that threw and those the rejection policy ran on the
+     * submitting thread
+     */
+    private final long completedCount;
+
+    /**
+     * Number of tasks turned away and never run: the rejection policy threw (e.g. <code>AbortPolicy</code>) or dropped
+     * them (e.g. <code>DiscardPolicy</code>, or <code>CallerRunsPolicy</code> after shutdown). Tasks the policy ran
+     * itself are counted in {@link #callerRunCount} instead.
+     */
+    private final long rejectedCount;
+
+    /**
+     * Number of tasks the rejection policy ran on the submitting thread because the queue was full, e.g. with
+     * <code>CallerRunsPolicy</code>. They are also counted as completed.
+     */
+    private final long callerRunCount;
+
+    /**
+     * Total time completed tasks spent queued
+     */
+    private final long totalWaitNanos;
+
+    /**
+     * Longest time a task spent queued
+     */
+    private final long maxWaitNanos;
+
+    /**
+     * Total time completed tasks spent running
+     */
+    private final long totalLatencyNanos;
+
+    /**
+     * Longest time a task spent running
+     */
+    private final long maxLatencyNanos;
+
+    ExecutorMetrics(final String name, final int poolSize, final int activeCount, final int queueDepth,
+                    final int maxQueueDepth, final long completedCount, final long rejectedCount,
+                    final long callerRunCount, final long totalWaitNanos, final long maxWaitNanos,
+                    final long totalLatencyNanos, final long maxLatencyNanos) {
+        this.name = name;
+        this.poolSize = poolSize;
+        this.activeCount = activeCount;
+        this.queueDepth = queueDepth;
+        this.maxQueueDepth = maxQueueDepth;
+        this.completedCount = completedCount;
+        this.rejectedCount = rejectedCount;
+        this.callerRunCount = callerRunCount;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.totalLatencyNanos = totalLatencyNanos;
+        this.maxLatencyNanos = maxLatencyNanos;
+    }
+
+    /**
+     * @return average time a completed task spent queued, <code>0</code> if none completed
+     */
+    public long getAverageWaitNanos() {
+        return 0 == completedCount ? 0 : totalWaitNanos / completedCount;
+    }
+
+    /**
+     * @return average time a completed task spent running, <code>0</code> if none completed
+     */
+    public long getAverageLatencyNanos() {
+        return 0 == completedCount ? 0 : totalLatencyNanos / completedCount;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{threads=" + poolSize
+                + ", active=" + activeCount
+                + ", queued=" + queueDepth + " (max " + maxQueueDepth + ")"
+                + ", completed=" + completedCount
+                + ", rejected=" + rejectedCount
+                + ", callerRuns=" + callerRunCount
+                + ", wait=" + getAverageWaitNanos() + "ns (max " + maxWaitNanos + "ns)"
+                + ", latency=" + getAverageLatencyNanos() + "ns (max " + maxLatencyNanos + "ns)}";
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+
+/**
+ * A fixed size thread pool with a bounded queue, named threads and counters for queue depth, wait time and task
+ * latency (see {@link #getMetrics()}). Idle threads time out, so an unused pool holds no threads. Use
+ * {@link WorkerPools} to create one sized for the device.
+ * <p>
+ * Tasks are wrapped to time them, so the tasks returned by {@link #shutdownNow()} and seen by a custom
+ * {@link RejectedExecutionHandler} are the wrappers, not the submitted tasks.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public class InstrumentedExecutor extends ThreadPoolExecutor {
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Executor name, also the prefix of its thread names
+     */
+    @Getter
+    private final String name;
+
+    /**
+     * Maximum number of queued tasks
+     */
+    @Getter
+    private final int queueCapacity;
+
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong callerRuns = new AtomicLong();
+    private final AtomicLong totalWait = new AtomicLong();
+    private final AtomicLong maxWait = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * @param name          executor name; threads are named <code>name-1</code>, <code>name-2</code>, ...
+     * @param threads       number of threads
+     * @param queueCapacity maximum number of queued tasks
+     * @param priority      thread priority, e.g. {@link Thread#MIN_PRIORITY} for background work
+     * @param handler       what to do with tasks when the queue is full
+     * @throws IllegalArgumentException if <code>threads</code> or <code>queueCapacity</code> is less than 1
+     */
+    public InstrumentedExecutor(final String name,
+                                final int threads,
+                                final int queueCapacity,
+                                final int priority,
+                                final RejectedExecutionHandler handler) {
+        super(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new NamedThreadFactory(name, priority), handler);
+
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        setRejectedExecutionHandler(new CountingHandler(handler));
+        allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        if (null == command)
+            throw new NullPointerException();
+
+        super.execute(new Timed(command));
+
+        final int depth = getQueue().size();
+        int max;
+
+        while (depth > (max = maxQueueDepth.get()))
+            if (maxQueueDepth.compareAndSet(max, depth))
+                break;
+    }
+
+    /**
+     * @return a copy of the current counters
+     */
+    public ExecutorMetrics getMetrics() {
+        return new ExecutorMetrics(name, getPoolSize(), getActiveCount(), getQueue().size(), maxQueueDepth.get(),
+                completed.get(), rejected.get(), callerRuns.get(),
+                totalWait.get(), maxWait.get(),
+                totalLatency.get(), maxLatency.get());
+    }
+
+    /**
+     * Reset the counters, e.g. between measurement periods
+     */
+    public void resetMetrics() {
+        maxQueueDepth.set(0);
+        completed.set(0);
+        rejected.set(0);
+        callerRuns.set(0);
+        totalWait.set(0);
+        maxWait.set(0);
+        totalLatency.set(0);
+        maxLatency.set(0);
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    private static void max(final AtomicLong target, final long value) {
+        long current;
+
+        while (value > (current = target.get()))
+            if (target.compareAndSet(current, value))
+                return;
+    }
+
+    private final class Timed implements Runnable {
+        private final Runnable task;
+        private final long queued = System.nanoTime();
+        private volatile boolean started;
+
+        Timed(final Runnable command) {
+            task = command;
+        }
+
+        @Override
+        public void run() {
+            final long start = System.nanoTime();
+            final long wait = start - queued;
+            started = true;
+
+            try {
+                task.run();
+            } finally {
+                final long latency = System.nanoTime() - start;
+
+                completed.incrementAndGet();
+                totalWait.addAndGet(wait);
+                max(maxWait, wait);
+                totalLatency.addAndGet(latency);
+                max(maxLatency, latency);
+            }
+        }
+    }
+
+    private final class CountingHandler implements RejectedExecutionHandler {
+        private final RejectedExecutionHandler handler;
+
+        CountingHandler(final RejectedExecutionHandler delegate) {
+            handler = delegate;
+        }
+
+        @Override
+        public void rejectedExecution(final Runnable task, final ThreadPoolExecutor executor) {
+            try {
+                handler.rejectedExecution(task, executor);
+            } catch (RuntimeException e) {
+                rejected.incrementAndGet();
+                throw e;
+            }
+
+            // e.g. CallerRunsPolicy: the task ran here and was counted as completed, so it wasn't lost
+            if (task instanceof Timed && ((Timed) task).started)
+                callerRuns.incrementAndGet();
+            else
+                rejected.incrementAndGet();
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final int priority;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(final String name, final int threadPriority) {
+            prefix = name + "-";
+            priority = threadPriority;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+/**
+ * The subset of a key-value store (e.g. Android's <code>SharedPreferences</code>) that {@link KeyValueCodec} needs
+ * to store typed values as strings and longs.
+ */
+public interface KeyValueBackend {
+    /**
+     * @param key value key
+     * @return <code>true</code> if a value is stored with the specified key
+     */
+    boolean contains(String key);
+
+    /**
+     * @param key      value key
+     * @param defValue value to return if none is stored
+     * @return stored string or <code>defValue</code>
+     */
+    String getString(String key, String defValue);
+
+    /**
+     * @param key      value key
+     * @param defValue value to return if none is stored
+     * @return stored long or <code>defValue</code>
+     */
+    long getLong(String key, long defValue);
+
+    /**
+     * Write side of a {@link KeyValueBackend}
+     */
+    interface Writer {
+        /**
+         * @param key   value key
+         * @param value value to store
+         * @return this writer
+         */
+        Writer putString(String key, String value);
+
+        /**
+         * @param key   value key
+         * @param value value to store
+         * @return this writer
+         */
+        Writer putLong(String key, long value);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stores values a plain key-value store has no type for: string collections as JSON arrays and doubles as their raw
+ * long bits (see
+ * http://stackoverflow.com/questions/16319237/cant-put-double-sharedpreferences/18098090#18098090).
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE) // no instances
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class KeyValueCodec {
+    // Gson instances are thread safe
+    private static final Gson GSON = new Gson();
+
+    private static final Type STRING_SET = new TypeToken<Set<String>>() {
+    }.getType();
+
+    private static final Type STRING_LIST = new TypeToken<List<String>>() {
+    }.getType();
+
+    /**
+     * Read a set of strings stored by {@link #putStrings(KeyValueBackend.Writer, String, Collection)}
+     *
+     * @param backend   store to read from
+     * @param key       value key
+     * @param defValues value to return if none is stored
+     * @return stored set or <code>defValues</code>
+     */
+    public static Set<String> getStringSet(final KeyValueBackend backend,
+                                           final String key,
+                                           final Set<String> defValues) {
+        final String array = backend.getString(key, null);
+        return null == array ? defValues : GSON.<Set<String>>fromJson(array, STRING_SET);
+    }
+
+    /**
+     * Read a list of strings stored by {@link #putStrings(KeyValueBackend.Writer, String, Collection)}, in the order it
+     * was stored
+     *
+     * @param backend   store to read from
+     * @param key       value key
+     * @param defValues value to return if none is stored
+     * @return stored list or <code>defValues</code>
+     */
+    public static List<String> getStringList(final KeyValueBackend backend,
+                                             final String key,
+                                             final List<String> defValues) {
+        final String array = backend.getString(key, null);
+        return null == array ? defValues : GSON.<List<String>>fromJson(array, STRING_LIST);
+    }
+
+    /**
+     * Store a collection of strings as a JSON array, preserving its iteration order
+     *
+     * @param writer store to write to
+     * @param key    value key
+     * @param values values to store
+     */
+    public static void putStrings(final KeyValueBackend.Writer writer,
+                                  final String key,
+                                  final Collection<String> values) {
+        writer.putString(key, GSON.toJson(values));
+    }
+
+    /**
+     * Read a double stored by {@link #putDouble(KeyValueBackend.Writer, String, double)}
+     *
+     * @param backend  store to read from
+     * @param key      value key
+     * @param defValue value to return if none is stored
+     * @return stored double or <code>defValue</code>
+     */
+    public static double getDouble(final KeyValueBackend backend, final String key, final double defValue) {
+        return backend.contains(key)
+                ? Double.longBitsToDouble(backend.getLong(key, 0))
+                : defValue;
+    }
+
+    /**
+     * Store a double without losing precision
+     *
+     * @param writer store to write to
+     * @param key    value key
+     * @param value  value to store
+     */
+    public static void putDouble(final KeyValueBackend.Writer writer, final String key, final double value) {
+        writer.putLong(key, Double.doubleToRawLongBits(value));
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import java.util.Arrays;
+
+/**
+ * System and process memory figures from <code>/proc/meminfo</code> and <code>/proc/self/status</code>, in kB. The
+ * object is meant to be reused: {@link MemoryInfoReader#read(MemoryInfo)} overwrites every field, so sampling
+ * doesn't allocate. Figures the kernel didn't report are {@link #UNKNOWN}.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class MemoryInfo {
+    /**
+     * Value of a figure the kernel didn't report
+     */
+    public static final long UNKNOWN = -1;
+
+    // indices into values; the order matches MemoryInfoReader's key tables
+    static final int MEM_TOTAL = 0;
+    static final int MEM_FREE = 1;
+    static final int MEM_AVAILABLE = 2;
+    static final int BUFFERS = 3;
+    static final int CACHED = 4;
+    static final int SWAP_TOTAL = 5;
+    static final int SWAP_FREE = 6;
+    static final int VM_SIZE = 7;
+    static final int VM_RSS = 8;
+    static final int VM_HWM = 9;
+    static final int VM_SWAP = 10;
+    static final int THREADS = 11;
+    static final int FIELDS = 12;
+
+    final long[] values = new long[FIELDS];
+    long timestampNanos;
+
+    public MemoryInfo() {
+        clear();
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when the figures were read
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * @return total usable RAM in kB
+     */
+    public long getTotalKb() {
+        return values[MEM_TOTAL];
+    }
+
+    /**
+     * @return unused RAM in kB
+     */
+    public long getFreeKb() {
+        return values[MEM_FREE];
+    }
+
+    /**
+     * Memory available to start new applications without swapping. Kernels before 3.14 don't report it; there the
+     * estimate is free memory plus buffers and page cache.
+     *
+     * @return available RAM in kB
+     */
+    public long getAvailableKb() {
+        final long available = values[MEM_AVAILABLE];
+
+        if (UNKNOWN != available || UNKNOWN == values[MEM_FREE])
+            return available;
+
+        return values[MEM_FREE] + Math.max(0, values[BUFFERS]) + Math.max(0, values[CACHED]);
+    }
+
+    /**
+     * @return RAM used for block device buffers in kB
+     */
+    public long getBuffersKb() {
+        return values[BUFFERS];
+    }
+
+    /**
+     * @return RAM used for the page cache in kB
+     */
+    public long getCachedKb() {
+        return values[CACHED];
+    }
+
+    /**
+     * @return total swap (zram on most Android devices) in kB
+     */
+    public long getSwapTotalKb() {
+        return values[SWAP_TOTAL];
+    }
+
+    /**
+     * @return unused swap in kB
+     */
+    public long getSwapFreeKb() {
+        return values[SWAP_FREE];
+    }
+
+    /**
+     * @return virtual memory size of this process in kB
+     */
+    public long getProcessVirtualKb() {
+        return values[VM_SIZE];
+    }
+
+    /**
+     * @return resident set size of this process in kB
+     */
+    public long getProcessRssKb() {
+        return values[VM_RSS];
+    }
+
+    /**
+     * @return peak resident set size of this process in kB
+     */
+    public long getProcessPeakRssKb() {
+        return values[VM_HWM];
+    }
+
+    /**
+     * @return swapped out memory of this process in kB
+     */
+    public long getProcessSwapKb() {
+        return values[VM_SWAP];
+    }
+
+    /**
+     * @return number of threads in this process
+     */
+    public long getProcessThreads() {
+        return values[THREADS];
+    }
+
+    /**
+     * @return available RAM as a fraction of total RAM, or <code>-1</code> if either is unknown
+     */
+    public float getAvailableFraction() {
+        final long total = getTotalKb();
+        final long available = getAvailableKb();
+        return total <= 0 || available < 0 ? -1f : (float) available / total;
+    }
+
+    /**
+     * @param other memory info to copy the figures of
+     */
+    public void set(final MemoryInfo other) {
+        System.arraycopy(other.values, 0, values, 0, FIELDS);
+        timestampNanos = other.timestampNanos;
+    }
+
+    void clear() {
+        Arrays.fill(values, UNKNOWN);
+        timestampNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryInfo{total=" + getTotalKb() + "kB"
+                + ", available=" + getAvailableKb() + "kB"
+                + ", free=" + getFreeKb() + "kB"
+                + ", swapFree=" + getSwapFreeKb() + "kB"
+                + ", rss=" + getProcessRssKb() + "kB"
+                + ", threads=" + getProcessThreads() + "}";
+    }
+}
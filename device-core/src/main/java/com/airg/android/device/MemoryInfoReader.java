@@ -0,0 +1,127 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import java.io.Closeable;
+import java.io.File;
+
+/**
+ * Reads {@link MemoryInfo} from <code>/proc/meminfo</code> and <code>/proc/self/status</code>. Both files stay open
+ * and are read into reused buffers and parsed in place, so a read allocates nothing once the buffers have grown to
+ * fit. A reader is not thread safe; use one per sampling thread, or {@link MemorySampler}.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class MemoryInfoReader implements Closeable {
+    /**
+     * System memory figures
+     */
+    public static final String PROC_MEMINFO = "/proc/meminfo";
+
+    /**
+     * Process memory figures
+     */
+    public static final String PROC_SELF_STATUS = "/proc/self/status";
+
+    // both files are around 1.5kB on current kernels
+    private static final int INITIAL_BUFFER = 4096;
+
+    // indexed from MemoryInfo.MEM_TOTAL and MemoryInfo.VM_SIZE respectively
+    private static final byte[][] MEMINFO_KEYS = ProcFile.keys(
+            "MemTotal", "MemFree", "MemAvailable", "Buffers", "Cached", "SwapTotal", "SwapFree");
+    private static final byte[][] STATUS_KEYS = ProcFile.keys(
+            "VmSize", "VmRSS", "VmHWM", "VmSwap", "Threads");
+
+    private final ProcFile meminfo;
+    private final ProcFile status;
+
+    public MemoryInfoReader() {
+        this(new File(PROC_MEMINFO), new File(PROC_SELF_STATUS));
+    }
+
+    /**
+     * @param meminfoFile file laid out like {@link #PROC_MEMINFO}
+     * @param statusFile  file laid out like {@link #PROC_SELF_STATUS}
+     */
+    public MemoryInfoReader(final File meminfoFile, final File statusFile) {
+        this(meminfoFile, statusFile, INITIAL_BUFFER);
+    }
+
+    MemoryInfoReader(final File meminfoFile, final File statusFile, final int initialBuffer) {
+        meminfo = new ProcFile(meminfoFile, initialBuffer);
+        status = new ProcFile(statusFile, initialBuffer);
+    }
+
+    /**
+     * Read the current figures. Figures that can't be read are set to {@link MemoryInfo#UNKNOWN}.
+     *
+     * @param out memory info to overwrite
+     * @return <code>true</code> if at least one of the files could be read
+     */
+    public boolean read(final MemoryInfo out) {
+        out.clear();
+        out.timestampNanos = System.nanoTime();
+
+        final boolean system = meminfo.read();
+        final boolean process = status.read();
+
+        if (system)
+            parse(meminfo, MEMINFO_KEYS, MemoryInfo.MEM_TOTAL, out.values);
+
+        if (process)
+            parse(status, STATUS_KEYS, MemoryInfo.VM_SIZE, out.values);
+
+        return system || process;
+    }
+
+    /**
+     * Close the files. A later {@link #read(MemoryInfo)} opens them again.
+     */
+    @Override
+    public void close() {
+        meminfo.close();
+        status.close();
+    }
+
+    /* ----------------- Private helpers ----------------- */
+
+    /**
+     * Parse <code>Key:   value [kB]</code> lines, storing the values of <code>keys</code> from <code>offset</code>
+     */
+    private static void parse(final ProcFile file, final byte[][] keys, final int offset, final long[] values) {
+        int found = 0;
+        int line = 0;
+
+        while (line < file.length && found < keys.length) {
+            final int end = file.lineEnd(line);
+            int colon = line;
+
+            while (colon < end && file.buffer[colon] != ':')
+                colon++;
+
+            for (int k = 0; k < keys.length; k++) {
+                if (file.matches(line, colon, keys[k])) {
+                    values[offset + k] = file.parseLong(file.skipBlanks(colon + 1, end), end);
+                    found++;
+                    break;
+                }
+            }
+
+            line = end + 1;
+        }
+    }
+}
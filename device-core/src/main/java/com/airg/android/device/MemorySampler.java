@@ -0,0 +1,153 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import java.io.Closeable;
+import java.util.concurrent.ScheduledExecutorService;
+
+import lombok.Getter;
+
+/**
+ * Reads {@link MemoryInfo} at a fixed interval on its own low priority daemon thread. Each sample is read into the same
+ * {@link MemoryInfo}, so sampling doesn't allocate. The listener gets that object; it is only valid during the call
+ * and must be copied ({@link MemoryInfo#set(MemoryInfo)}) to be kept. {@link #getLatest(MemoryInfo)} copies the latest
+ * sample from any thread.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class MemorySampler implements Closeable {
+    private static final String THREAD_NAME = "MemorySampler";
+
+    private final MemoryInfoReader reader;
+    private final Listener listener;
+    private final MemoryInfo sample = new MemoryInfo();
+    private final MemoryInfo latest = new MemoryInfo();
+
+    /**
+     * Time between samples in milliseconds
+     */
+    @Getter
+    private final long intervalMillis;
+
+    private ScheduledExecutorService scheduler;
+    private boolean closed; // guarded by sample
+
+    /**
+     * @param memoryInfoReader reader to sample; the sampler owns it from now on
+     * @param interval         time between samples in milliseconds
+     * @param sampleListener   gets every sample on the sampler thread; may be <code>null</code> to only poll
+     *                         {@link #getLatest(MemoryInfo)}
+     * @throws IllegalArgumentException if <code>interval</code> is not positive
+     */
+    public MemorySampler(final MemoryInfoReader memoryInfoReader, final long interval, final Listener sampleListener) {
+        reader = memoryInfoReader;
+        intervalMillis = Sampling.checkInterval(interval);
+        listener = sampleListener;
+    }
+
+    /**
+     * Start sampling. The first sample is taken right away. Does nothing if already started or closed.
+     */
+    public synchronized void start() {
+        if (null != scheduler || isClosed())
+            return;
+
+        scheduler = Sampling.schedule(THREAD_NAME, intervalMillis, new Runnable() {
+            @Override
+            public void run() {
+                sample();
+            }
+        });
+    }
+
+    /**
+     * Stop sampling. It can be started again.
+     */
+    public synchronized void stop() {
+        if (null == scheduler)
+            return;
+
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * @return <code>true</code> between {@link #start()} and {@link #stop()}
+     */
+    public synchronized boolean isRunning() {
+        return null != scheduler;
+    }
+
+    /**
+     * Copy the latest sample
+     *
+     * @param out memory info to overwrite
+     * @return <code>false</code> if there is no sample yet
+     */
+    public boolean getLatest(final MemoryInfo out) {
+        synchronized (latest) {
+            out.set(latest);
+            return 0 != latest.timestampNanos;
+        }
+    }
+
+    /**
+     * Stop sampling and close the reader. A sample that is already running finishes first; later ones do nothing.
+     */
+    @Override
+    public void close() {
+        stop();
+
+        synchronized (sample) {
+            // a sample still running on the sampler thread would otherwise open the files again
+            closed = true;
+            reader.close();
+        }
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    private void sample() {
+        // the reader and the sample are only touched here and in close()
+        synchronized (sample) {
+            if (closed || !reader.read(sample))
+                return;
+
+            synchronized (latest) {
+                latest.set(sample);
+            }
+
+            if (null != listener)
+                listener.onSample(sample);
+        }
+    }
+
+    private boolean isClosed() {
+        synchronized (sample) {
+            return closed;
+        }
+    }
+
+    /**
+     * Receives memory samples
+     */
+    public interface Listener {
+        /**
+         * @param info the sample; only valid during this call
+         */
+        void onSample(MemoryInfo info);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+/**
+ * Display densities for a {@link DimensionConverter}. On Android this is backed by a
+ * <code>DisplayMetrics</code> instance; elsewhere it can be any fixed or test set of values.
+ */
+public interface MetricsSource {
+    /**
+     * @return logical density (pixels per dp)
+     */
+    float getDensity();
+
+    /**
+     * @return font density (pixels per sp), i.e. the density multiplied by the user's font scale
+     */
+    float getScaledDensity();
+
+    /**
+     * @return physical pixels per inch along the x axis
+     */
+    float getXdpi();
+
+    /**
+     * @return <code>true</code> if sp values have to go through {@link #applyFontScaling(float)} instead of being
+     * multiplied by {@link #getScaledDensity()}
+     */
+    boolean isFontScalingNonLinear();
+
+    /**
+     * Convert an sp value to pixels on platforms with non-linear font scaling. Only called if
+     * {@link #isFontScalingNonLinear()} returns <code>true</code>.
+     *
+     * @param sp sp size
+     * @return size in pixels
+     */
+    float applyFontScaling(float sp);
+}
@@ -0,0 +1,109 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Splits an index range across a shared fork-join pool sized from the number of available processors. Ranges below
+ * {@link #THRESHOLD}, single-core devices and API levels without {@link ForkJoinPool} (below 21) run sequentially on
+ * the calling thread.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class ParallelRange {
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * First API level with {@link ForkJoinPool} (Lollipop)
+     */
+    private static final int LOLLIPOP = 21;
+
+    /**
+     * Smallest range worth splitting. ParallelRangeBenchmark puts the fork/join overhead at about 3us and a scale at
+     * about 0.08ns per element, so two cores only break even from roughly 80K elements; a unit conversion below this
+     * runs faster sequentially.
+     */
+    static final int THRESHOLD = 1 << 17;
+
+    /**
+     * Work to run over part of a range
+     */
+    interface Body {
+        /**
+         * @param start first index, inclusive
+         * @param end   last index, exclusive
+         */
+        void run(int start, int end);
+    }
+
+    /**
+     * Run <code>body</code> over <code>[0, length)</code>, in parallel if the range is large enough. Each index is
+     * visited exactly once, so the result is the same as a single sequential pass as long as <code>body</code> treats
+     * every index independently.
+     */
+    static void forEach(final int length, final Body body) {
+        if (length < THRESHOLD || CPU_COUNT < 2 || ApiLevel.below(LOLLIPOP)) {
+            body.run(0, length);
+            return;
+        }
+
+        forkJoin(length, body);
+    }
+
+    static void forkJoin(final int length, final Body body) {
+        // a few leaves per core lets faster cores pick up the slack on big.LITTLE devices
+        final int leaf = Math.max(THRESHOLD / 2, length / (CPU_COUNT * 4));
+        Pool.INSTANCE.invoke(new Task(body, 0, length, leaf));
+    }
+
+    private static final class Pool {
+        static final ForkJoinPool INSTANCE = new ForkJoinPool(CPU_COUNT);
+    }
+
+    private static final class Task extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Body body;
+        private final int start;
+        private final int end;
+        private final int leaf;
+
+        Task(final Body b, final int s, final int e, final int l) {
+            body = b;
+            start = s;
+            end = e;
+            leaf = l;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= leaf) {
+                body.run(start, end);
+                return;
+            }
+
+            final int middle = (start + end) >>> 1;
+            invokeAll(new Task(body, start, middle, leaf), new Task(body, middle, end, leaf));
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Places a device in a coarse performance tier ({@link #TIER_LOW}, {@link #TIER_MID} or {@link #TIER_HIGH}) from its
+ * hardware, to pick things like animation quality, prefetch depth or image decode sizes. {@link #score(Inputs)} is a
+ * pure function of the {@link Inputs}, so the same device always lands in the same tier and the thresholds can be
+ * tested with synthetic devices. Each input is mapped onto <code>[0, 1]</code> between a floor and a ceiling, and the
+ * known inputs are averaged by weight; unknown inputs don't count either way.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class PerformanceClassifier {
+    /**
+     * Entry level devices: keep work and memory use to a minimum
+     */
+    public static final int TIER_LOW = 0;
+
+    /**
+     * Mainstream devices
+     */
+    public static final int TIER_MID = 1;
+
+    /**
+     * Devices that can afford the richest experience
+     */
+    public static final int TIER_HIGH = 2;
+
+    /**
+     * Value of an input that isn't known
+     */
+    public static final int UNKNOWN = 0;
+
+    /**
+     * Lowest score of {@link #TIER_MID}
+     */
+    public static final int MID_SCORE = 35;
+
+    /**
+     * Lowest score of {@link #TIER_HIGH}
+     */
+    public static final int HIGH_SCORE = 65;
+
+    /**
+     * Devices with at most this much RAM (in kB) are {@link #TIER_LOW} whatever else they have. This is Android's own
+     * low RAM device threshold.
+     */
+    public static final long LOW_RAM_KB = 1024 * 1024;
+
+    /**
+     * {@link #calibrate()} result at which the benchmark input saturates. A JIT compiled run on a desktop class core
+     * does well over this (around 350000); an interpreted one does under a tenth of it.
+     */
+    public static final int CALIBRATION_REFERENCE = 200000;
+
+    /**
+     * Version of the scoring; persisted tiers should be recomputed when it changes
+     */
+    public static final int VERSION = 2;
+
+    // relative input weights; the score divides by the sum of the weights of the known inputs (115 with all of them)
+    private static final int CPU_WEIGHT = 35;
+    private static final int RAM_WEIGHT = 30;
+    private static final int MEMORY_CLASS_WEIGHT = 15;
+    private static final int DENSITY_WEIGHT = 5;
+    private static final int CALIBRATION_WEIGHT = 30;
+
+    private static final int CALIBRATION_ITERATIONS = 1 << 16;
+    private static final int CALIBRATION_ROUNDS = 5;
+
+    // keeps the calibration workload from being optimized away
+    private static volatile int sink;
+
+    /**
+     * @param inputs device characteristics
+     * @return score from <code>0</code> (weakest) to <code>100</code>; <code>0</code> if no input is known
+     */
+    public static int score(final Inputs inputs) {
+        int weights = 0;
+        double sum = 0;
+
+        if (inputs.cores > 0) {
+            // more cores and faster big cores both help; with an unknown frequency only the cores count
+            final double cores = scale(inputs.cores, 2, 8);
+            final double cpu = UNKNOWN == inputs.maxFrequencyKHz
+                    ? cores
+                    : (cores + scale(inputs.maxFrequencyKHz, 1200000, 3000000)) / 2;
+
+            sum += CPU_WEIGHT * cpu;
+            weights += CPU_WEIGHT;
+        }
+
+        if (inputs.totalRamKb > 0) {
+            sum += RAM_WEIGHT * scale(inputs.totalRamKb, 1024 * 1024, 8 * 1024 * 1024);
+            weights += RAM_WEIGHT;
+        }
+
+        if (inputs.memoryClassMb > 0) {
+            sum += MEMORY_CLASS_WEIGHT * scale(inputs.memoryClassMb, 64, 512);
+            weights += MEMORY_CLASS_WEIGHT;
+        }
+
+        if (inputs.densityDpi > 0) {
+            sum += DENSITY_WEIGHT * scale(inputs.densityDpi, 160, 480);
+            weights += DENSITY_WEIGHT;
+        }
+
+        if (inputs.calibration > 0) {
+            sum += CALIBRATION_WEIGHT * scale(inputs.calibration, 0, CALIBRATION_REFERENCE);
+            weights += CALIBRATION_WEIGHT;
+        }
+
+        return 0 == weights ? 0 : (int) Math.round(100 * sum / weights);
+    }
+
+    /**
+     * @param score score from {@link #score(Inputs)}
+     * @return tier of the score
+     */
+    public static int tier(final int score) {
+        return score >= HIGH_SCORE ? TIER_HIGH : score >= MID_SCORE ? TIER_MID : TIER_LOW;
+    }
+
+    /**
+     * @param inputs device characteristics
+     * @return tier of the device
+     */
+    public static int classify(final Inputs inputs) {
+        if (inputs.totalRamKb > 0 && inputs.totalRamKb <= LOW_RAM_KB)
+            return TIER_LOW;
+
+        return tier(score(inputs));
+    }
+
+    /**
+     * Time a short, fixed integer and floating point workload on the calling thread. It runs for a few milliseconds
+     * on current phones, so call it off the main thread. The best of several rounds is used to filter out
+     * interruptions; the result still varies a little between runs and with thermal state.
+     *
+     * @return iterations per millisecond; higher is faster
+     */
+    public static int calibrate() {
+        long best = Long.MAX_VALUE;
+
+        for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+            final long start = System.nanoTime();
+            sink += workload(CALIBRATION_ITERATIONS);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        return (int) Math.min(Integer.MAX_VALUE, CALIBRATION_ITERATIONS * 1000000L / Math.max(1, best));
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    private static double scale(final double value, final double floor, final double ceiling) {
+        return Math.max(0, Math.min(1, (value - floor) / (ceiling - floor)));
+    }
+
+    private static int workload(final int iterations) {
+        int hash = 0x9e3779b9;
+        float f = 1f;
+
+        for (int i = 0; i < iterations; i++) {
+            hash ^= hash << 13;
+            hash ^= hash >>> 17;
+            hash ^= hash << 5;
+            f = f * 0.999f + (hash & 0xff) * 0.001f;
+        }
+
+        return hash + Float.floatToIntBits(f);
+    }
+
+    /**
+     * What the classifier knows about a device. Use {@link #UNKNOWN} for anything that couldn't be measured.
+     */
+    @Getter
+    public static final class Inputs {
+        /**
+         * Number of cores, online or not
+         */
+        private final int cores;
+
+        /**
+         * Maximum frequency of the fastest core in kHz
+         */
+        private final int maxFrequencyKHz;
+
+        /**
+         * Total RAM in kB
+         */
+        private final long totalRamKb;
+
+        /**
+         * Per application heap limit in MB (<code>ActivityManager.getMemoryClass()</code>)
+         */
+        private final int memoryClassMb;
+
+        /**
+         * Screen density
+         */
+        private final int densityDpi;
+
+        /**
+         * {@link #calibrate()} result
+         */
+        private final int calibration;
+
+        public Inputs(final int cores,
+                      final int maxFrequencyKHz,
+                      final long totalRamKb,
+                      final int memoryClassMb,
+                      final int densityDpi,
+                      final int calibration) {
+            this.cores = cores;
+            this.maxFrequencyKHz = maxFrequencyKHz;
+            this.totalRamKb = totalRamKb;
+            this.memoryClassMb = memoryClassMb;
+            this.densityDpi = densityDpi;
+            this.calibration = calibration;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+/**
+ * Reads <code>Build.VERSION.SDK_INT</code> reflectively so the core module does not depend on the Android framework.
+ */
+final class PlatformSdkLevel implements SdkLevelProvider {
+    /**
+     * Level reported off Android. Higher than any release, so version checks for code that only needs the JDK (e.g.
+     * fork/join) pass.
+     */
+    static final int JVM = Integer.MAX_VALUE;
+
+    @Override
+    public int getSdkLevel() {
+        try {
+            return Class.forName("android.os.Build$VERSION").getField("SDK_INT").getInt(null);
+        } catch (ClassNotFoundException e) {
+            return JVM;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to read the API level", e);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+/**
+ * A procfs file that is read over and over. The file stays open and is read from the start into the same buffer each
+ * time, so after the first read neither the file nor the buffer is allocated again. The parse helpers work on the raw
+ * bytes, so reading numbers doesn't create Strings either. Not thread safe.
+ */
+final class ProcFile implements Closeable {
+    private final File file;
+
+    private RandomAccessFile in;
+    private boolean missing;
+
+    /**
+     * Contents of the last {@link #read()}, valid up to {@link #length}
+     */
+    byte[] buffer;
+    int length;
+
+    ProcFile(final File procFile, final int initialCapacity) {
+        file = procFile;
+        buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Read the whole file into {@link #buffer}, growing the buffer if it is too small
+     *
+     * @return <code>false</code> if the file can't be read (e.g. not on Linux)
+     */
+    boolean read() {
+        length = 0;
+
+        if (missing)
+            return false;
+
+        try {
+            if (null == in)
+                in = new RandomAccessFile(file, "r");
+
+            // procfs regenerates the contents on every read from offset 0
+            in.seek(0);
+            int read;
+
+            while ((read = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += read;
+
+                if (length == buffer.length)
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+
+            return true;
+        } catch (FileNotFoundException e) {
+            missing = true;
+            return false;
+        } catch (IOException e) {
+            length = 0;
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (null == in)
+            return;
+
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // nothing was written, so there is nothing to lose
+        }
+
+        in = null;
+    }
+
+    /**
+     * @return index of the end of the line starting at <code>from</code> (the '\n' or {@link #length})
+     */
+    int lineEnd(final int from) {
+        int i = from;
+
+        while (i < length && buffer[i] != '\n')
+            i++;
+
+        return i;
+    }
+
+    /**
+     * @return index of the first byte at or after <code>from</code> that isn't a space or tab, at most <code>to</code>
+     */
+    int skipBlanks(final int from, final int to) {
+        int i = from;
+
+        while (i < to && (buffer[i] == ' ' || buffer[i] == '\t'))
+            i++;
+
+        return i;
+    }
+
+    /**
+     * @return index of the first byte at or after <code>from</code> that is a space or tab, at most <code>to</code>
+     */
+    int skipToken(final int from, final int to) {
+        int i = from;
+
+        while (i < to && buffer[i] != ' ' && buffer[i] != '\t')
+            i++;
+
+        return i;
+    }
+
+    /**
+     * Parse the unsigned decimal number starting at <code>from</code>
+     *
+     * @return the number, or <code>-1</code> if there are no digits at <code>from</code>
+     */
+    long parseLong(final int from, final int to) {
+        long value = 0;
+        int i = from;
+
+        while (i < to && buffer[i] >= '0' && buffer[i] <= '9')
+            value = value * 10 + (buffer[i++] - '0');
+
+        return i == from ? -1 : value;
+    }
+
+    /**
+     * @return <code>true</code> if the bytes in <code>[from, to)</code> are exactly <code>key</code>
+     */
+    boolean matches(final int from, final int to, final byte[] key) {
+        if (to - from != key.length)
+            return false;
+
+        for (int i = 0; i < key.length; i++)
+            if (buffer[from + i] != key[i])
+                return false;
+
+        return true;
+    }
+
+    /**
+     * @return ASCII bytes of each key, for {@link #matches(int, int, byte[])}
+     */
+    static byte[][] keys(final String... keys) {
+        final byte[][] bytes = new byte[keys.length][];
+
+        for (int i = 0; i < keys.length; i++) {
+            bytes[i] = new byte[keys[i].length()];
+
+            for (int j = 0; j < bytes[i].length; j++)
+                bytes[i][j] = (byte) keys[i].charAt(j);
+        }
+
+        return bytes;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Background threads for the procfs samplers
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class Sampling {
+    private static final Logger LOG = Logger.getLogger(Sampling.class.getName());
+
+    /**
+     * Run <code>task</code> now and then every <code>intervalMillis</code> after it finishes, on a new low priority
+     * daemon thread. Shut the returned scheduler down to stop. A run that throws is logged and doesn't stop the
+     * following ones (a scheduled executor would otherwise cancel the task for good).
+     */
+    static ScheduledExecutorService schedule(final String threadName, final long intervalMillis, final Runnable task) {
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, threadName + " sample failed", e);
+                }
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        return scheduler;
+    }
+
+    /**
+     * @throws IllegalArgumentException if <code>intervalMillis</code> is not positive
+     */
+    static long checkInterval(final long intervalMillis) {
+        if (intervalMillis <= 0)
+            throw new IllegalArgumentException("Invalid sampling interval " + intervalMillis);
+
+        return intervalMillis;
+    }
+}
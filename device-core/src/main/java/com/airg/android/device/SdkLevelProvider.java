@@ -0,0 +1,35 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+/**
+ * Source of the API level used by {@link ApiLevel}
+ */
+public interface SdkLevelProvider {
+    /**
+     * The running platform's API level: <code>Build.VERSION.SDK_INT</code> on Android or
+     * {@link PlatformSdkLevel#JVM} anywhere else
+     */
+    SdkLevelProvider PLATFORM = new PlatformSdkLevel();
+
+    /**
+     * @return API level to check against
+     */
+    int getSdkLevel();
+}
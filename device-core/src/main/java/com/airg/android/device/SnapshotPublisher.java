@@ -0,0 +1,273 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import java.util.Arrays;
+
+/**
+ * Holds the latest immutable snapshot of some state (e.g. the device configuration) and tells listeners when a new
+ * one is published. Reading the current snapshot is a single volatile read, so readers never contend with each other
+ * or with the publisher. Listeners are kept in a copy-on-write array: subscribing is rare, notifying is not.
+ * <p>
+ * Notifications are delivered one publish at a time, so listeners always end up with the latest snapshot. A snapshot
+ * that was already replaced when its turn came is skipped; the next notification then reports the changes since the
+ * snapshot listeners last received. Listeners therefore must not wait for another thread that publishes.
+ *
+ * @param <T> snapshot type; snapshots must be immutable
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class SnapshotPublisher<T> {
+    /**
+     * All fields changed, or the snapshot type doesn't track individual fields
+     */
+    public static final int CHANGED_ALL = ~0;
+
+    private final Diff<? super T> diff;
+    private final Object lock = new Object();
+    private final Object notifyLock = new Object();
+
+    private volatile T current;
+    private long version = Long.MIN_VALUE; // guarded by lock
+    private volatile Listener<? super T>[] listeners = listeners(0);
+    private T delivered; // guarded by notifyLock
+
+    /**
+     * Create a publisher whose listeners are told about any change that isn't {@link Object#equals(Object) equal} to
+     * the previous snapshot, with {@link #CHANGED_ALL} as the change set
+     */
+    public SnapshotPublisher() {
+        this(null);
+    }
+
+    /**
+     * @param snapshotDiff computes which fields changed between two snapshots; <code>null</code> for
+     *                     {@link Object#equals(Object)}
+     */
+    public SnapshotPublisher(final Diff<? super T> snapshotDiff) {
+        diff = snapshotDiff;
+    }
+
+    /**
+     * @return the latest published snapshot, or <code>null</code> if none was published yet
+     */
+    public T get() {
+        return current;
+    }
+
+    /**
+     * Publish a new snapshot. Listeners are notified on the calling thread, unless nothing changed.
+     *
+     * @param snapshot new snapshot
+     * @return the set of changed fields, <code>0</code> if nothing changed
+     * @throws IllegalArgumentException if <code>snapshot</code> is <code>null</code>
+     */
+    public int publish(final T snapshot) {
+        return publish(snapshot, false, 0);
+    }
+
+    /**
+     * Publish a new snapshot unless a snapshot with a higher version was published or cleared already. Snapshots that
+     * are built concurrently (e.g. from system callbacks on different threads) then end up in the order their
+     * versions were taken, however their builds overlap. Take versions from a single counter before building.
+     *
+     * @param snapshot        new snapshot
+     * @param snapshotVersion version of <code>snapshot</code>
+     * @return the set of changed fields, <code>0</code> if nothing changed or the snapshot is out of date
+     * @throws IllegalArgumentException if <code>snapshot</code> is <code>null</code>
+     */
+    public int publish(final T snapshot, final long snapshotVersion) {
+        return publish(snapshot, true, snapshotVersion);
+    }
+
+    /**
+     * Drop the current snapshot without notifying listeners, so {@link #get()} returns <code>null</code> until the
+     * next {@link #publish(Object)}
+     */
+    public void clear() {
+        synchronized (lock) {
+            current = null;
+        }
+    }
+
+    /**
+     * Like {@link #clear()}, but ordered with {@link #publish(Object, long)}: snapshots with lower versions are no
+     * longer published afterwards
+     *
+     * @param clearVersion version of the clear
+     * @return <code>false</code> if a higher version was published or cleared already
+     */
+    public boolean clear(final long clearVersion) {
+        synchronized (lock) {
+            if (clearVersion <= version)
+                return false;
+
+            version = clearVersion;
+            current = null;
+            return true;
+        }
+    }
+
+    /**
+     * @param listener listener to add. Adding the same listener twice has no effect.
+     * @throws IllegalArgumentException if <code>listener</code> is <code>null</code>
+     */
+    public void subscribe(final Listener<? super T> listener) {
+        if (null == listener)
+            throw new IllegalArgumentException("Listener is null");
+
+        synchronized (lock) {
+            final Listener<? super T>[] old = listeners;
+
+            for (final Listener<? super T> l : old)
+                if (l == listener)
+                    return;
+
+            final Listener<? super T>[] updated = Arrays.copyOf(old, old.length + 1);
+            updated[old.length] = listener;
+            listeners = updated;
+        }
+    }
+
+    /**
+     * @param listener listener to remove
+     * @return <code>true</code> if the listener was subscribed
+     */
+    public boolean unsubscribe(final Listener<? super T> listener) {
+        synchronized (lock) {
+            final Listener<? super T>[] old = listeners;
+
+            for (int i = 0; i < old.length; i++) {
+                if (old[i] != listener)
+                    continue;
+
+                if (old.length == 1) {
+                    listeners = listeners(0);
+                } else {
+                    final Listener<? super T>[] updated = listeners(old.length - 1);
+                    System.arraycopy(old, 0, updated, 0, i);
+                    System.arraycopy(old, i + 1, updated, i, old.length - i - 1);
+                    listeners = updated;
+                }
+
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * @return number of subscribed listeners
+     */
+    public int listenerCount() {
+        return listeners.length;
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    @SuppressWarnings("unchecked")
+    private static <T> Listener<? super T>[] listeners(final int size) {
+        // generic arrays can't be created directly; the array only ever holds listeners of T
+        return (Listener<? super T>[]) new Listener<?>[size];
+    }
+
+    private int publish(final T snapshot, final boolean versioned, final long snapshotVersion) {
+        if (null == snapshot)
+            throw new IllegalArgumentException("Snapshot is null");
+
+        final T previous;
+        final int changes;
+
+        // readers never take this lock. Listeners run outside of it so they may subscribe, unsubscribe or read back;
+        // deliver() keeps their deliveries in order
+        synchronized (lock) {
+            if (versioned) {
+                if (snapshotVersion <= version)
+                    return 0;
+
+                version = snapshotVersion;
+            }
+
+            previous = current;
+            changes = changes(previous, snapshot);
+
+            if (0 == changes)
+                return 0;
+
+            current = snapshot;
+        }
+
+        deliver(previous, snapshot, changes);
+        return changes;
+    }
+
+    private void deliver(final T previous, final T snapshot, final int changes) {
+        synchronized (notifyLock) {
+            // replaced while waiting for an earlier delivery; its replacement is delivered instead
+            if (current != snapshot)
+                return;
+
+            final T from = null == previous ? null : delivered;
+            final int delta = from == previous ? changes : changes(from, snapshot);
+            delivered = snapshot;
+
+            if (0 == delta)
+                return;
+
+            for (final Listener<? super T> listener : listeners)
+                listener.onSnapshotChanged(from, snapshot, delta);
+        }
+    }
+
+    private int changes(final T previous, final T snapshot) {
+        if (null == previous)
+            return CHANGED_ALL;
+
+        if (null != diff)
+            return diff.changes(previous, snapshot);
+
+        return previous.equals(snapshot) ? 0 : CHANGED_ALL;
+    }
+
+    /**
+     * Computes the fields that differ between two snapshots
+     *
+     * @param <T> snapshot type
+     */
+    public interface Diff<T> {
+        /**
+         * @param previous previous snapshot, never <code>null</code>
+         * @param current  new snapshot, never <code>null</code>
+         * @return bit set of changed fields; <code>0</code> if they are the same
+         */
+        int changes(T previous, T current);
+    }
+
+    /**
+     * Receives newly published snapshots
+     *
+     * @param <T> snapshot type
+     */
+    public interface Listener<T> {
+        /**
+         * @param previous previous snapshot; <code>null</code> for the first snapshot
+         * @param current  new snapshot
+         * @param changes  bit set of changed fields, {@link #CHANGED_ALL} for the first snapshot
+         */
+        void onSnapshotChanged(T previous, T current, int changes);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Memory trim levels understood by {@link TrimRegistry}. The values are the same as Android's
+ * <code>ComponentCallbacks2.TRIM_MEMORY_*</code> constants, so either set can be used.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE) // no instances
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class TrimLevel {
+    /**
+     * Running, and the system is beginning to run low on memory
+     */
+    public static final int TRIM_MEMORY_RUNNING_MODERATE = 5;
+
+    /**
+     * Running, and the system is running low on memory
+     */
+    public static final int TRIM_MEMORY_RUNNING_LOW = 10;
+
+    /**
+     * Running, and the system is about to kill background processes
+     */
+    public static final int TRIM_MEMORY_RUNNING_CRITICAL = 15;
+
+    /**
+     * The UI is no longer visible
+     */
+    public static final int TRIM_MEMORY_UI_HIDDEN = 20;
+
+    /**
+     * In the background, near the start of the kill list
+     */
+    public static final int TRIM_MEMORY_BACKGROUND = 40;
+
+    /**
+     * In the background, around the middle of the kill list
+     */
+    public static final int TRIM_MEMORY_MODERATE = 60;
+
+    /**
+     * In the background, among the first to be killed
+     */
+    public static final int TRIM_MEMORY_COMPLETE = 80;
+
+    /**
+     * Not a platform trim level: <code>onLowMemory()</code>, which asks for everything that can be released
+     */
+    public static final int LOW_MEMORY = Integer.MAX_VALUE;
+
+    /**
+     * Share of the registered caches' estimated size to release at a trim level. Unknown levels between two known
+     * ones get the share of the lower one.
+     *
+     * @param level trim level
+     * @return fraction from <code>0</code> to <code>1</code>
+     */
+    public static float fraction(final int level) {
+        if (level >= TRIM_MEMORY_COMPLETE)
+            return 1f;
+        if (level >= TRIM_MEMORY_MODERATE)
+            return 0.75f;
+        if (level >= TRIM_MEMORY_BACKGROUND)
+            return 0.5f;
+        if (level >= TRIM_MEMORY_UI_HIDDEN)
+            return 0.25f;
+        if (level >= TRIM_MEMORY_RUNNING_CRITICAL)
+            return 0.5f;
+        if (level >= TRIM_MEMORY_RUNNING_LOW)
+            return 0.25f;
+        if (level >= TRIM_MEMORY_RUNNING_MODERATE)
+            return 0.1f;
+
+        return 0f;
+    }
+}
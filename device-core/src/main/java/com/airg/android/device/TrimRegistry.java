@@ -0,0 +1,240 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches that shrink when the system runs low on memory. Each cache registers with a priority and reports its
+ * estimated size. On a trim, {@link TrimLevel#fraction(int)} of the total estimated size is reclaimed, starting with the
+ * lowest priority caches: every cache of a priority gives up the same share of its size, and higher priorities are only
+ * touched if the lower ones didn't free enough. {@link TrimLevel#TRIM_MEMORY_COMPLETE} empties every cache.
+ * <p>
+ * The registry doesn't listen for trim events itself; on Android, <code>Device.registerTrimmable</code> connects the
+ * shared instance to <code>ComponentCallbacks2</code>. Tests can call {@link #trim(int)} directly.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class TrimRegistry {
+    /**
+     * Caches that are cheap to rebuild; trimmed first
+     */
+    public static final int PRIORITY_LOW = -100;
+
+    /**
+     * Default priority
+     */
+    public static final int PRIORITY_DEFAULT = 0;
+
+    /**
+     * Caches that are expensive to rebuild; trimmed last
+     */
+    public static final int PRIORITY_HIGH = 100;
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final TrimRegistry SHARED = new TrimRegistry();
+
+    private static final Comparator<Entry> BY_PRIORITY = new Comparator<Entry>() {
+        @Override
+        public int compare(final Entry a, final Entry b) {
+            return Integer.compare(a.priority, b.priority);
+        }
+    };
+
+    private final Object lock = new Object();
+    private final AtomicLong reclaimed = new AtomicLong();
+
+    // sorted by priority, lowest first; replaced on every change
+    private volatile Entry[] entries = NO_ENTRIES;
+
+    /**
+     * @return the process wide registry
+     */
+    public static TrimRegistry get() {
+        return SHARED;
+    }
+
+    /**
+     * Register a cache, or change the priority of a registered one
+     *
+     * @param cache    cache to trim
+     * @param priority one of the <code>PRIORITY_*</code> constants or any value in between; lower priorities are
+     *                 trimmed first
+     * @throws IllegalArgumentException if <code>cache</code> is <code>null</code>
+     */
+    public void register(final Trimmable cache, final int priority) {
+        if (null == cache)
+            throw new IllegalArgumentException("Cache is null");
+
+        synchronized (lock) {
+            final Entry[] old = entries;
+            final int index = indexOf(old, cache);
+            final Entry[] updated;
+
+            if (index < 0) {
+                updated = Arrays.copyOf(old, old.length + 1);
+                updated[old.length] = new Entry(cache, priority);
+            } else {
+                updated = old.clone();
+                updated[index] = new Entry(cache, priority);
+            }
+
+            // stable, so caches of the same priority keep their registration order
+            Arrays.sort(updated, BY_PRIORITY);
+            entries = updated;
+        }
+    }
+
+    /**
+     * @param cache cache to stop trimming
+     * @return <code>true</code> if the cache was registered
+     */
+    public boolean unregister(final Trimmable cache) {
+        synchronized (lock) {
+            final Entry[] old = entries;
+            final int index = indexOf(old, cache);
+
+            if (index < 0)
+                return false;
+
+            final Entry[] updated = new Entry[old.length - 1];
+            System.arraycopy(old, 0, updated, 0, index);
+            System.arraycopy(old, index + 1, updated, index, old.length - index - 1);
+            entries = updated;
+            return true;
+        }
+    }
+
+    /**
+     * @return number of registered caches
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * @return sum of the registered caches' estimated sizes in bytes
+     */
+    public long getEstimatedBytes() {
+        long total = 0;
+
+        for (final Entry entry : entries)
+            total += Math.max(0, entry.cache.getEstimatedBytes());
+
+        return total;
+    }
+
+    /**
+     * @return bytes reclaimed by all trims so far, as reported by the caches
+     */
+    public long getReclaimedBytes() {
+        return reclaimed.get();
+    }
+
+    /**
+     * Trim the registered caches for a memory trim level
+     *
+     * @param level one of the {@link TrimLevel} constants
+     * @return bytes reclaimed, as reported by the caches
+     */
+    public long trim(final int level) {
+        final float fraction = TrimLevel.fraction(level);
+
+        if (fraction <= 0f)
+            return 0;
+
+        final Entry[] snapshot = entries;
+        final long[] sizes = new long[snapshot.length];
+        long total = 0;
+
+        for (int i = 0; i < snapshot.length; i++) {
+            sizes[i] = Math.max(0, snapshot[i].cache.getEstimatedBytes());
+            total += sizes[i];
+        }
+
+        long remaining = fraction >= 1f ? Long.MAX_VALUE : Math.round(total * (double) fraction);
+        long released = 0;
+        int start = 0;
+
+        while (start < snapshot.length && remaining > 0) {
+            // one priority at a time, lowest first
+            int end = start;
+            long groupBytes = 0;
+
+            while (end < snapshot.length && snapshot[end].priority == snapshot[start].priority)
+                groupBytes += sizes[end++];
+
+            final float share = fraction >= 1f || groupBytes <= remaining
+                    ? 1f
+                    : (float) ((double) remaining / groupBytes);
+
+            for (int i = start; i < end; i++) {
+                if (0 == sizes[i] && share < 1f)
+                    continue;
+
+                final long freed = Math.max(0, snapshot[i].cache.trim(share));
+                released += freed;
+                remaining -= freed;
+            }
+
+            start = end;
+        }
+
+        reclaimed.addAndGet(released);
+        return released;
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    private static int indexOf(final Entry[] entries, final Trimmable cache) {
+        for (int i = 0; i < entries.length; i++)
+            if (entries[i].cache == cache)
+                return i;
+
+        return -1;
+    }
+
+    private static final class Entry {
+        final Trimmable cache;
+        final int priority;
+
+        Entry(final Trimmable trimmable, final int trimPriority) {
+            cache = trimmable;
+            priority = trimPriority;
+        }
+    }
+
+    /**
+     * A cache that can give up memory
+     */
+    public interface Trimmable {
+        /**
+         * @return current size of the cache in bytes; an estimate is fine
+         */
+        long getEstimatedBytes();
+
+        /**
+         * Release part of the cache. Called on the thread that delivers trim events (the main thread on Android), so
+         * keep it quick.
+         *
+         * @param fraction share of the cache to release, from <code>0</code> (exclusive) to <code>1</code> (everything)
+         * @return bytes released; an estimate is fine
+         */
+        long trim(float fraction);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Creates {@link InstrumentedExecutor}s sized from the {@link CpuTopology} rather than the raw core count:
+ * <ul>
+ * <li><b>CPU bound</b> pools get one thread per core's worth of capacity. A core counts in proportion to its
+ * maximum frequency relative to the fastest core, so on big.LITTLE devices the little cores aren't handed as much work
+ * as the big ones, while the big cores are never left idle. Full queues run the task on the caller.</li>
+ * <li><b>I/O bound</b> pools get two threads per online core, at least {@link #MIN_IO_THREADS}, since their threads
+ * mostly wait. Full queues run the task on the caller.</li>
+ * <li><b>Background</b> pools get at most two low priority threads, fewer if the slowest cluster has fewer cores.
+ * Full queues reject the task, so background work never runs on the caller's thread.</li>
+ * </ul>
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class WorkerPools {
+    /**
+     * Queue capacity of CPU bound pools
+     */
+    public static final int CPU_QUEUE_CAPACITY = 256;
+
+    /**
+     * Queue capacity of I/O bound pools
+     */
+    public static final int IO_QUEUE_CAPACITY = 512;
+
+    /**
+     * Queue capacity of background pools
+     */
+    public static final int BACKGROUND_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Smallest I/O bound pool
+     */
+    public static final int MIN_IO_THREADS = 4;
+
+    /**
+     * Largest background pool
+     */
+    public static final int MAX_BACKGROUND_THREADS = 2;
+
+    /**
+     * @param name executor name, used as the thread name prefix
+     * @return a new pool for compute heavy work, sized for this device
+     */
+    public static InstrumentedExecutor cpuBound(final String name) {
+        return cpuBound(name, CpuTopology.get());
+    }
+
+    /**
+     * @param name     executor name, used as the thread name prefix
+     * @param topology topology to size the pool for
+     * @return a new pool for compute heavy work
+     */
+    public static InstrumentedExecutor cpuBound(final String name, final CpuTopology topology) {
+        return new InstrumentedExecutor(name, cpuThreads(topology), CPU_QUEUE_CAPACITY, Thread.NORM_PRIORITY,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * @param name executor name, used as the thread name prefix
+     * @return a new pool for blocking I/O, sized for this device
+     */
+    public static InstrumentedExecutor ioBound(final String name) {
+        return ioBound(name, CpuTopology.get());
+    }
+
+    /**
+     * @param name     executor name, used as the thread name prefix
+     * @param topology topology to size the pool for
+     * @return a new pool for blocking I/O
+     */
+    public static InstrumentedExecutor ioBound(final String name, final CpuTopology topology) {
+        return new InstrumentedExecutor(name, ioThreads(topology), IO_QUEUE_CAPACITY, Thread.NORM_PRIORITY,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * @param name executor name, used as the thread name prefix
+     * @return a new low priority pool for deferrable work, sized for this device
+     */
+    public static InstrumentedExecutor background(final String name) {
+        return background(name, CpuTopology.get());
+    }
+
+    /**
+     * @param name     executor name, used as the thread name prefix
+     * @param topology topology to size the pool for
+     * @return a new low priority pool for deferrable work
+     */
+    public static InstrumentedExecutor background(final String name, final CpuTopology topology) {
+        return new InstrumentedExecutor(name, backgroundThreads(topology), BACKGROUND_QUEUE_CAPACITY,
+                Thread.MIN_PRIORITY, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @param topology cpu topology
+     * @return number of threads for a CPU bound pool: the online cores weighted by their maximum frequency relative to
+     * the fastest cluster, rounded up, but no fewer than the fastest cluster's online cores
+     */
+    public static int cpuThreads(final CpuTopology topology) {
+        final int online = Math.max(1, topology.getOnlineCount());
+        final int fastest = topology.getMaxFrequencyKHz();
+
+        if (CpuTopology.FREQUENCY_UNKNOWN == fastest || !topology.isHeterogeneous())
+            return online;
+
+        double capacity = 0;
+
+        for (final CpuTopology.Cluster cluster : topology.getClusters())
+            capacity += cluster.getOnlineCount() * (double) cluster.getMaxFrequencyKHz() / fastest;
+
+        final int threads = (int) Math.ceil(capacity);
+        return Math.min(online, Math.max(Math.max(1, topology.getFastestCluster().getOnlineCount()), threads));
+    }
+
+    /**
+     * @param topology cpu topology
+     * @return number of threads for an I/O bound pool: two per online core, at least {@link #MIN_IO_THREADS}
+     */
+    public static int ioThreads(final CpuTopology topology) {
+        return Math.max(MIN_IO_THREADS, 2 * topology.getOnlineCount());
+    }
+
+    /**
+     * @param topology cpu topology
+     * @return number of threads for a background pool: the online cores of the slowest cluster, between one and
+     * {@link #MAX_BACKGROUND_THREADS}
+     */
+    public static int backgroundThreads(final CpuTopology topology) {
+        final int slowest = topology.getClusters().get(0).getOnlineCount();
+        return Math.max(1, Math.min(MAX_BACKGROUND_THREADS, slowest));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ApiLevelTest {
+
+    @After
+    public void restore() {
+        ApiLevel.setProvider(SdkLevelProvider.PLATFORM);
+    }
+
+    @Test
+    public void platformOffAndroid() throws Exception {
+        assertEquals(PlatformSdkLevel.JVM, ApiLevel.get());
+        assertTrue(ApiLevel.atLeast(21));
+    }
+
+    @Test
+    public void provider() throws Exception {
+        ApiLevel.setProvider(new SdkLevelProvider() {
+            @Override
+            public int getSdkLevel() {
+                return 19;
+            }
+        });
+
+        assertEquals(19, ApiLevel.get());
+        assertTrue(ApiLevel.is(19));
+        assertTrue(ApiLevel.atLeast(19));
+        assertTrue(ApiLevel.atMost(19));
+        assertTrue(ApiLevel.below(21));
+        assertTrue(ApiLevel.above(18));
+        assertFalse(ApiLevel.atLeast(21));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CpuTopologyTest {
+
+    @Rule
+    public final TemporaryFolder sysfs = new TemporaryFolder();
+
+    private void write(final String path, final String value) throws IOException {
+        final File file = new File(sysfs.getRoot(), path);
+        //noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+
+        final FileOutputStream out = new FileOutputStream(file);
+
+        try {
+            out.write((value + "\n").getBytes(StandardCharsets.US_ASCII));
+        } finally {
+            out.close();
+        }
+    }
+
+    private void core(final int cpu, final String related, final int maxFrequency) throws IOException {
+        write("cpu" + cpu + "/cpufreq/related_cpus", related);
+        write("cpu" + cpu + "/cpufreq/cpuinfo_max_freq", String.valueOf(maxFrequency));
+    }
+
+    @Test
+    public void bigLittle() throws Exception {
+        // 4 little cores at 1.8GHz and 4 big ones at 2.8GHz; cpu6 is offline and has no cpufreq directory
+        write("possible", "0-7");
+        write("online", "0-5,7");
+
+        for (int cpu = 0; cpu < 4; cpu++)
+            core(cpu, "0-3", 1800000);
+
+        core(4, "4-7", 2800000);
+        core(5, "4-7", 2800000);
+        write("cpu6/online", "0");
+        core(7, "4-7", 2800000);
+
+        final CpuTopology topology = CpuTopology.read(sysfs.getRoot());
+
+        assertTrue(topology.isFromSysfs());
+        assertEquals(8, topology.getCoreCount());
+        assertEquals(7, topology.getOnlineCount());
+        assertFalse(topology.isOnline(6));
+        assertTrue(topology.isOnline(7));
+
+        assertEquals(2, topology.getClusters().size());
+        assertTrue(topology.isHeterogeneous());
+        assertEquals(2800000, topology.getMaxFrequencyKHz());
+        assertEquals(2800000, topology.getMaxFrequencyKHz(6));
+
+        final CpuTopology.Cluster little = topology.getClusters().get(0);
+        assertArrayEquals(new int[]{0, 1, 2, 3}, little.getCpus());
+        assertEquals(1800000, little.getMaxFrequencyKHz());
+        assertEquals(4, little.getOnlineCount());
+
+        final CpuTopology.Cluster big = topology.getFastestCluster();
+        assertArrayEquals(new int[]{4, 5, 6, 7}, big.getCpus());
+        assertEquals(3, big.getOnlineCount());
+        assertSame(big, topology.getCluster(6));
+        assertTrue(big.contains(6));
+        assertFalse(big.contains(3));
+    }
+
+    @Test
+    public void clusterIdWithoutCpufreq() throws Exception {
+        write("present", "0-3");
+        write("cpu1/online", "1");
+        write("cpu2/online", "0");
+
+        for (int cpu = 0; cpu < 4; cpu++)
+            write("cpu" + cpu + "/topology/cluster_id", String.valueOf(cpu / 2));
+
+        final CpuTopology topology = CpuTopology.read(sysfs.getRoot());
+
+        assertEquals(4, topology.getCoreCount());
+        assertEquals(3, topology.getOnlineCount());
+        assertFalse(topology.isOnline(2));
+        assertEquals(2, topology.getClusters().size());
+        assertFalse(topology.isHeterogeneous());
+        assertEquals(CpuTopology.FREQUENCY_UNKNOWN, topology.getMaxFrequencyKHz());
+        assertArrayEquals(new int[]{2, 3}, topology.getCluster(3).getCpus());
+    }
+
+    @Test
+    public void cpuDirectoriesOnly() throws Exception {
+        for (int cpu = 0; cpu < 3; cpu++)
+            write("cpu" + cpu + "/cpufreq/cpuinfo_max_freq", "2000000");
+
+        write("cpuidle/current_driver", "none");
+
+        final CpuTopology topology = CpuTopology.read(sysfs.getRoot());
+
+        assertEquals(3, topology.getCoreCount());
+        assertEquals(3, topology.getOnlineCount());
+        assertEquals(1, topology.getClusters().size());
+        assertEquals(2000000, topology.getMaxFrequencyKHz(2));
+    }
+
+    @Test
+    public void fallback() throws Exception {
+        final CpuTopology topology = CpuTopology.read(new File(sysfs.getRoot(), "missing"));
+
+        assertFalse(topology.isFromSysfs());
+        assertEquals(Runtime.getRuntime().availableProcessors(), topology.getCoreCount());
+        assertEquals(topology.getCoreCount(), topology.getOnlineCount());
+        assertEquals(1, topology.getClusters().size());
+    }
+
+    @Test
+    public void parseList() throws Exception {
+        assertArrayEquals(new int[]{0, 1, 2, 3, 5, 7, 8}, CpuTopology.parseList("0-3,5,7-8"));
+        assertArrayEquals(new int[]{0}, CpuTopology.parseList("0"));
+        assertNull(CpuTopology.parseList(""));
+        assertNull(CpuTopology.parseList("3-1"));
+        assertNull(CpuTopology.parseList("a-b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badCpu() throws Exception {
+        CpuTopology.read(new File(sysfs.getRoot(), "missing")).isOnline(-1);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CpuUsageSamplerTest {
+
+    private static final float DELTA = 1e-6f;
+
+    @Rule
+    public final TemporaryFolder proc = new TemporaryFolder();
+
+    private File stat;
+    private File selfStat;
+
+    private File write(final String name, final String contents) throws IOException {
+        final File file = new File(proc.getRoot(), name);
+        final FileOutputStream out = new FileOutputStream(file);
+
+        try {
+            out.write(contents.getBytes(StandardCharsets.US_ASCII));
+        } finally {
+            out.close();
+        }
+
+        return file;
+    }
+
+    private void stat(final String cpu, final String cpu0, final String cpu1) throws IOException {
+        stat = write("stat", "cpu  " + cpu + " 0 0 0 0 0 0\n"
+                + "cpu0 " + cpu0 + " 0 0 0 0 0 0\n"
+                + (null == cpu1 ? "" : "cpu1 " + cpu1 + " 0 0 0 0 0 0\n")
+                + "intr 114930548 113199788 3 0 5 263 0 4 [...]\n"
+                + "ctxt 1990473\n"
+                + "btime 1062191376\n");
+    }
+
+    private void selfStat(final int utime, final int stime) throws IOException {
+        // the command name contains spaces and parentheses
+        selfStat = write("self", "1234 (my (odd) app) S 1 2 3 4 5 6 7 8 9 10 "
+                + utime + " " + stime + " 0 0 20 0 37 0 0\n");
+    }
+
+    @Test
+    public void loads() throws Exception {
+        stat("100 0 100 800", "50 0 50 400", "50 0 50 400");
+        selfStat(20, 10);
+
+        final CpuUsageSampler sampler = new CpuUsageSampler(stat, selfStat, 250, 0.25f, null);
+
+        try {
+            assertTrue(sampler.sample());
+            assertEquals(CpuUsageSampler.UNKNOWN, sampler.getSystemLoad(), DELTA);
+            assertEquals(CpuUsageSampler.UNKNOWN, sampler.getProcessLoad(), DELTA);
+            assertEquals(2, sampler.getCoreCount());
+            assertEquals(CpuUsageSampler.UNKNOWN, sampler.getCoreLoad(1), DELTA);
+
+            // 1000 ticks passed, 700 of them idle; the process used 100 of them. cpu1 went offline.
+            stat("300 0 200 1500", "150 0 100 750", null);
+            selfStat(70, 60);
+            assertTrue(sampler.sample());
+
+            assertEquals(0.3f, sampler.getSystemLoad(), DELTA);
+            assertEquals(0.3f, sampler.getSmoothedSystemLoad(), DELTA);
+            assertEquals(0.1f, sampler.getProcessLoad(), DELTA);
+            assertEquals(0.3f, sampler.getCoreLoad(0), DELTA);
+            assertEquals(0f, sampler.getCoreLoad(1), DELTA);
+
+            // then 1000 ticks, 300 of them idle
+            stat("700 0 500 1800", "350 0 250 900", "0 0 0 0");
+            selfStat(120, 110);
+            assertTrue(sampler.sample());
+
+            assertEquals(0.7f, sampler.getSystemLoad(), DELTA);
+            assertEquals(0.3f + 0.25f * (0.7f - 0.3f), sampler.getSmoothedSystemLoad(), DELTA);
+            assertEquals(0.1f, sampler.getSmoothedProcessLoad(), DELTA);
+            // cpu1 came back, so its load starts over
+            assertEquals(CpuUsageSampler.UNKNOWN, sampler.getCoreLoad(1), DELTA);
+
+            final float[] cores = new float[4];
+            assertEquals(2, sampler.getCoreLoads(cores));
+            assertEquals(0.7f, cores[0], DELTA);
+        } finally {
+            sampler.close();
+        }
+    }
+
+    @Test
+    public void processOnly() throws Exception {
+        // like Android 8 and up, where /proc/stat can't be read
+        selfStat(0, 0);
+
+        final CpuUsageSampler sampler = new CpuUsageSampler(new File(proc.getRoot(), "missing"), selfStat, 250,
+                CpuUsageSampler.DEFAULT_SMOOTHING, null);
+
+        try {
+            assertTrue(sampler.sample(0));
+            selfStat(30, 20);
+            assertTrue(sampler.sample(1000000000L));
+
+            final int processors = Runtime.getRuntime().availableProcessors();
+            assertEquals(Math.min(1f, 50f / (CpuUsageSampler.CLOCK_TICKS_PER_SECOND * processors)),
+                    sampler.getProcessLoad(), DELTA);
+            assertEquals(CpuUsageSampler.UNKNOWN, sampler.getSystemLoad(), DELTA);
+            assertEquals(0, sampler.getCoreCount());
+        } finally {
+            sampler.close();
+        }
+    }
+
+    @Test
+    public void nothingToRead() throws Exception {
+        final File missing = new File(proc.getRoot(), "missing");
+        final CpuUsageSampler sampler = new CpuUsageSampler(missing, missing, 250, 1f, null);
+
+        assertFalse(sampler.sample());
+        sampler.close();
+    }
+
+    @Test
+    public void closed() throws Exception {
+        stat("100 0 100 800", "50 0 50 400", "50 0 50 400");
+        selfStat(20, 10);
+
+        final CpuUsageSampler sampler = new CpuUsageSampler(stat, selfStat, 250, 0.25f, null);
+        assertTrue(sampler.sample());
+        sampler.close();
+
+        assertFalse("a closed sampler doesn't open the files again", sampler.sample());
+        sampler.start();
+        assertFalse(sampler.isRunning());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badSmoothing() throws Exception {
+        new CpuUsageSampler(null, null, 250, 0f, null);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import org.junit.Test;
+
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_DIP;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_IN;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_MM;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_PT;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_PX;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_SP;
+import static org.junit.Assert.assertEquals;
+
+public class DimensionConverterTest {
+
+    private static final float ZERO_DELTA = 0.0f;
+
+    static Metrics metrics(final float density, final float fontScale, final float xdpi) {
+        final Metrics metrics = new Metrics();
+        metrics.density = density;
+        metrics.scaledDensity = density * fontScale;
+        metrics.xdpi = xdpi;
+        return metrics;
+    }
+
+    static void assertBitsEqual(final float expected, final float actual) {
+        assertEquals(expected + " != " + actual, Float.floatToRawIntBits(expected), Float.floatToRawIntBits(actual));
+    }
+
+    @Test
+    public void convertsWithSourceMetrics() throws Exception {
+        final DimensionConverter converter = new DimensionConverter(metrics(2.625f, 1.15f, 403.411f));
+
+        assertBitsEqual(12f * 2.625f, converter.convert(12f, COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX));
+        assertBitsEqual(12f * (2.625f * 1.15f), converter.convert(12f, COMPLEX_UNIT_SP, COMPLEX_UNIT_PX));
+        assertBitsEqual(8f * 403.411f * (1.0f / 72), converter.convert(8f, COMPLEX_UNIT_PT, COMPLEX_UNIT_PX));
+        assertBitsEqual(0.5f * 403.411f, converter.convert(0.5f, COMPLEX_UNIT_IN, COMPLEX_UNIT_PX));
+        assertBitsEqual(33f * 403.411f * (1.0f / 25.4f), converter.convert(33f, COMPLEX_UNIT_MM, COMPLEX_UNIT_PX));
+        assertBitsEqual(100f / 2.625f, converter.convert(100f, COMPLEX_UNIT_PX, COMPLEX_UNIT_DIP));
+        assertEquals(Math.round(13f * 2.625f), converter.dp2px(13f));
+        assertEquals(converter.dp2px(13f), converter.dp2pxFixed(13));
+    }
+
+    @Test
+    public void followsMetricsChanges() throws Exception {
+        final Metrics metrics = metrics(2f, 1f, 320f);
+        final DimensionConverter converter = new DimensionConverter(metrics);
+
+        assertEquals(20, converter.dp2px(10f));
+        metrics.density = 3f;
+        assertEquals(30, converter.dp2px(10f));
+        assertEquals(10f, converter.px2dp(30), ZERO_DELTA);
+        assertEquals(1, converter.getLookupStats().getInvalidations());
+    }
+
+    @Test
+    public void lookupStatsOptIn() throws Exception {
+        final DimensionConverter converter = new DimensionConverter(metrics(2f, 1f, 320f));
+
+        converter.dp2px(10f);
+        converter.dp2px(10f);
+        converter.dp2px(10.5f);
+        assertEquals(0, converter.getLookupStats().getHits() + converter.getLookupStats().getFills()
+                + converter.getLookupStats().getBypasses());
+
+        converter.setLookupStatsEnabled(true);
+        converter.dp2px(10f);
+        converter.dp2px(10.5f);
+        assertEquals(1, converter.getLookupStats().getHits());
+        assertEquals(1, converter.getLookupStats().getBypasses());
+    }
+
+    @Test
+    public void nonLinearFontScaling() throws Exception {
+        final Metrics metrics = metrics(2f, 1.3f, 320f);
+        metrics.nonLinear = true;
+        final DimensionConverter converter = new DimensionConverter(metrics);
+
+        assertEquals(100f, converter.convert(12f, COMPLEX_UNIT_SP, COMPLEX_UNIT_PX), ZERO_DELTA);
+        assertEquals(50f, converter.convert(12f, COMPLEX_UNIT_SP, COMPLEX_UNIT_DIP), ZERO_DELTA);
+        // dp conversions are unaffected
+        assertEquals(24f, converter.convert(12f, COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX), ZERO_DELTA);
+    }
+
+    /**
+     * Mutable {@link MetricsSource} whose non-linear font scaling maps every sp value to 100px
+     */
+    static final class Metrics implements MetricsSource {
+        float density;
+        float scaledDensity;
+        float xdpi;
+        boolean nonLinear;
+
+        @Override
+        public float getDensity() {
+            return density;
+        }
+
+        @Override
+        public float getScaledDensity() {
+            return scaledDensity;
+        }
+
+        @Override
+        public float getXdpi() {
+            return xdpi;
+        }
+
+        @Override
+        public boolean isFontScalingNonLinear() {
+            return nonLinear;
+        }
+
+        @Override
+        public float applyFontScaling(final float sp) {
+            return 100f;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_DIP;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_IN;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_MM;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_PT;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_PX;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_SP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class DimensionExpressionTest {
+
+    private static final float ZERO_DELTA = 0.0f;
+
+    private DimensionConverterTest.Metrics dm;
+    private DimensionConverter converter;
+
+    @Before
+    public void initialize() {
+        dm = DimensionConverterTest.metrics(2.625f, 1.15f, 403.411f);
+        converter = new DimensionConverter(dm);
+        DimensionExpression.clearCache();
+    }
+
+    @Test
+    public void singleTerms() throws Exception {
+        assertEquals(converter.convert(12f, COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX),
+                DimensionExpression.parse("12dp").evaluate(converter), ZERO_DELTA);
+        assertEquals(converter.convert(12f, COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX),
+                DimensionExpression.parse("12dip").evaluate(converter), ZERO_DELTA);
+        assertEquals(converter.convert(1.5f, COMPLEX_UNIT_SP, COMPLEX_UNIT_PX),
+                DimensionExpression.parse("1.5sp").evaluate(converter), ZERO_DELTA);
+        assertEquals(7f, DimensionExpression.parse("7px").evaluate(converter), ZERO_DELTA);
+        assertEquals(converter.convert(8f, COMPLEX_UNIT_PT, COMPLEX_UNIT_PX),
+                DimensionExpression.parse("8pt").evaluate(converter), ZERO_DELTA);
+        assertEquals(converter.convert(0.25f, COMPLEX_UNIT_IN, COMPLEX_UNIT_PX),
+                DimensionExpression.parse(".25in").evaluate(converter), ZERO_DELTA);
+        assertEquals(converter.convert(33f, COMPLEX_UNIT_MM, COMPLEX_UNIT_PX),
+                DimensionExpression.parse("33mm").evaluate(converter), ZERO_DELTA);
+        assertEquals(converter.convert(-4f, COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX),
+                DimensionExpression.parse(" - 4 dp ").evaluate(converter), ZERO_DELTA);
+    }
+
+    @Test
+    public void compoundExpressions() throws Exception {
+        final DimensionExpression expression = DimensionExpression.parse("12dp + 4sp - 1px");
+        assertEquals(3, expression.size());
+
+        final float expected = converter.convert(12f, COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX)
+                + converter.convert(4f, COMPLEX_UNIT_SP, COMPLEX_UNIT_PX)
+                - 1f;
+
+        assertEquals(expected, expression.evaluate(converter), ZERO_DELTA);
+        assertEquals(Math.round(expected), expression.evaluatePx(converter));
+        assertEquals(converter.convert(expected, COMPLEX_UNIT_PX, COMPLEX_UNIT_DIP),
+                expression.evaluate(converter, COMPLEX_UNIT_DIP), ZERO_DELTA);
+
+        assertEquals(converter.convert(16f, COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX) + 2f,
+                converter.evaluate("16dp+2px"), ZERO_DELTA);
+    }
+
+    @Test
+    public void followsMetricsChanges() throws Exception {
+        final DimensionExpression expression = DimensionExpression.compile("10dp+1px");
+        dm.density = 2f;
+        assertEquals(21f, expression.evaluate(converter), ZERO_DELTA);
+        dm.density = 3f;
+        assertEquals(31f, expression.evaluate(converter), ZERO_DELTA);
+    }
+
+    @Test
+    public void malformed() throws Exception {
+        final String[] bad = {null, "", "  ", "dp", "12", "12dq", "12dp +", "12dp 4sp", "1..2dp", "+-1dp", "12dp*2"};
+
+        for (final String source : bad)
+            try {
+                DimensionExpression.parse(source);
+                fail("'" + source + "' should not parse");
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+    }
+
+    @Test
+    public void cache() throws Exception {
+        final DimensionExpression first = DimensionExpression.compile("12dp");
+        assertSame(first, DimensionExpression.compile("12dp"));
+        assertNotSame(first, DimensionExpression.parse("12dp"));
+
+        for (int i = 0; i < DimensionExpression.CACHE_SIZE; i++) {
+            DimensionExpression.compile(i + "px");
+            // keep the first entry recently used, so something else is evicted
+            DimensionExpression.compile("12dp");
+        }
+
+        assertEquals(DimensionExpression.CACHE_SIZE, DimensionExpression.cacheSize());
+        assertSame(first, DimensionExpression.compile("12dp"));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InstrumentedExecutorTest {
+
+    private InstrumentedExecutor executor;
+
+    @After
+    public void shutdown() {
+        if (null != executor)
+            executor.shutdownNow();
+    }
+
+    @Test
+    public void metrics() throws Exception {
+        executor = new InstrumentedExecutor("test", 1, 16, Thread.NORM_PRIORITY, new ThreadPoolExecutor.AbortPolicy());
+
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(10);
+        final String[] threadName = new String[1];
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                threadName[0] = Thread.currentThread().getName();
+
+                try {
+                    gate.await();
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                done.countDown();
+            }
+        });
+
+        for (int i = 1; i < 10; i++)
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+
+        // the first task holds the only thread, so the other 9 queue up
+        assertEquals(9, executor.getMetrics().getQueueDepth());
+        gate.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        final ExecutorMetrics metrics = executor.getMetrics();
+        assertEquals("test-1", threadName[0]);
+        assertEquals(10, metrics.getCompletedCount());
+        assertEquals(9, metrics.getMaxQueueDepth());
+        assertEquals(0, metrics.getQueueDepth());
+        assertTrue(metrics.getMaxLatencyNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(metrics.getMaxWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(metrics.getTotalLatencyNanos() >= metrics.getMaxLatencyNanos());
+        assertEquals(metrics.getTotalWaitNanos() / 10, metrics.getAverageWaitNanos());
+
+        executor.resetMetrics();
+        assertEquals(0, executor.getMetrics().getCompletedCount());
+    }
+
+    @Test
+    public void rejections() throws Exception {
+        executor = new InstrumentedExecutor("test", 1, 1, Thread.NORM_PRIORITY, new ThreadPoolExecutor.AbortPolicy());
+
+        final CountDownLatch gate = new CountDownLatch(1);
+        final Runnable blocked = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        executor.execute(blocked);
+        executor.execute(blocked);
+
+        try {
+            executor.execute(blocked);
+            fail("Queue is full");
+        } catch (RejectedExecutionException expected) {
+            assertEquals(1, executor.getMetrics().getRejectedCount());
+        } finally {
+            gate.countDown();
+        }
+    }
+
+    @Test
+    public void callerRuns() throws Exception {
+        executor = new InstrumentedExecutor("test", 1, 1, Thread.NORM_PRIORITY,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        final CountDownLatch gate = new CountDownLatch(1);
+        final Runnable blocked = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        final String[] threadName = new String[1];
+
+        executor.execute(blocked);
+        executor.execute(blocked);
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    threadName[0] = Thread.currentThread().getName();
+                }
+            });
+        } finally {
+            gate.countDown();
+        }
+
+        final ExecutorMetrics metrics = executor.getMetrics();
+        assertEquals(Thread.currentThread().getName(), threadName[0]);
+        assertEquals(1, metrics.getCallerRunCount());
+        assertEquals("a task run by the caller isn't lost", 0, metrics.getRejectedCount());
+
+        executor.shutdown();
+        executor.execute(blocked);
+        assertEquals("after shutdown the policy drops the task", 1, executor.getMetrics().getRejectedCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noThreads() throws Exception {
+        new InstrumentedExecutor("test", 0, 1, Thread.NORM_PRIORITY, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
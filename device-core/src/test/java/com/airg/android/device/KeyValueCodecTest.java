@@ -0,0 +1,104 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class KeyValueCodecTest {
+
+    private MapBackend backend;
+
+    @Before
+    public void initialize() {
+        backend = new MapBackend();
+    }
+
+    @Test
+    public void doubles() throws Exception {
+        assertEquals(-1.5, KeyValueCodec.getDouble(backend, "d", -1.5), 0);
+
+        for (final double value : new double[]{Math.PI, -0.0, Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN}) {
+            KeyValueCodec.putDouble(backend, "d", value);
+            assertEquals(Double.doubleToRawLongBits(value),
+                    Double.doubleToRawLongBits(KeyValueCodec.getDouble(backend, "d", 0)));
+        }
+    }
+
+    @Test
+    public void stringList() throws Exception {
+        final List<String> defValues = Arrays.asList("default");
+        assertSame(defValues, KeyValueCodec.getStringList(backend, "l", defValues));
+
+        final List<String> values = Arrays.asList("zulu", "alpha", "zulu", "", "m\u00fc\"ller");
+        KeyValueCodec.putStrings(backend, "l", values);
+        assertEquals(values, KeyValueCodec.getStringList(backend, "l", null));
+    }
+
+    @Test
+    public void stringSet() throws Exception {
+        assertNull(KeyValueCodec.getStringSet(backend, "s", null));
+
+        final Set<String> values = new HashSet<>(Arrays.asList("one", "two", "three"));
+        KeyValueCodec.putStrings(backend, "s", values);
+        assertEquals(values, KeyValueCodec.getStringSet(backend, "s", null));
+    }
+
+    private static final class MapBackend implements KeyValueBackend, KeyValueBackend.Writer {
+        private final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public boolean contains(final String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public String getString(final String key, final String defValue) {
+            return values.containsKey(key) ? (String) values.get(key) : defValue;
+        }
+
+        @Override
+        public long getLong(final String key, final long defValue) {
+            return values.containsKey(key) ? (Long) values.get(key) : defValue;
+        }
+
+        @Override
+        public Writer putString(final String key, final String value) {
+            values.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Writer putLong(final String key, final long value) {
+            values.put(key, value);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryInfoReaderTest {
+
+    static final String MEMINFO = "MemTotal:        5724468 kB\n"
+            + "MemFree:          163720 kB\n"
+            + "MemAvailable:    2213104 kB\n"
+            + "Buffers:            5716 kB\n"
+            + "Cached:          2070640 kB\n"
+            + "SwapCached:        41496 kB\n"
+            + "Active:          2188128 kB\n"
+            + "SwapTotal:       2621436 kB\n"
+            + "SwapFree:        1563516 kB\n"
+            + "Dirty:                 4 kB\n";
+
+    static final String STATUS = "Name:\tairg.sample\n"
+            + "State:\tS (sleeping)\n"
+            + "Pid:\t12345\n"
+            + "VmPeak:\t 5911084 kB\n"
+            + "VmSize:\t 5824904 kB\n"
+            + "VmHWM:\t  165820 kB\n"
+            + "VmRSS:\t  150208 kB\n"
+            + "VmSwap:\t    2048 kB\n"
+            + "Threads:\t37\n";
+
+    @Rule
+    public final TemporaryFolder proc = new TemporaryFolder();
+
+    File write(final String name, final String contents) throws IOException {
+        final File file = new File(proc.getRoot(), name);
+        final FileOutputStream out = new FileOutputStream(file);
+
+        try {
+            out.write(contents.getBytes(StandardCharsets.US_ASCII));
+        } finally {
+            out.close();
+        }
+
+        return file;
+    }
+
+    @Test
+    public void read() throws Exception {
+        final MemoryInfoReader reader = new MemoryInfoReader(write("meminfo", MEMINFO), write("status", STATUS));
+        final MemoryInfo info = new MemoryInfo();
+
+        try {
+            assertTrue(reader.read(info));
+        } finally {
+            reader.close();
+        }
+
+        assertEquals(5724468, info.getTotalKb());
+        assertEquals(163720, info.getFreeKb());
+        assertEquals(2213104, info.getAvailableKb());
+        assertEquals(5716, info.getBuffersKb());
+        assertEquals(2070640, info.getCachedKb());
+        assertEquals(2621436, info.getSwapTotalKb());
+        assertEquals(1563516, info.getSwapFreeKb());
+        assertEquals(5824904, info.getProcessVirtualKb());
+        assertEquals(150208, info.getProcessRssKb());
+        assertEquals(165820, info.getProcessPeakRssKb());
+        assertEquals(2048, info.getProcessSwapKb());
+        assertEquals(37, info.getProcessThreads());
+        assertEquals(2213104f / 5724468f, info.getAvailableFraction(), 0f);
+        assertTrue(info.getTimestampNanos() != 0);
+    }
+
+    @Test
+    public void rereadsChangedFile() throws Exception {
+        final File meminfo = write("meminfo", MEMINFO);
+        final MemoryInfoReader reader = new MemoryInfoReader(meminfo, new File(proc.getRoot(), "missing"));
+        final MemoryInfo info = new MemoryInfo();
+
+        try {
+            reader.read(info);
+            assertEquals(163720, info.getFreeKb());
+            assertEquals(MemoryInfo.UNKNOWN, info.getProcessRssKb());
+
+            write("meminfo", MEMINFO.replace("163720", "99"));
+            reader.read(info);
+            assertEquals(99, info.getFreeKb());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void oldKernel() throws Exception {
+        // no MemAvailable before Linux 3.14
+        final String meminfo = "MemTotal: 1000 kB\nMemFree: 100 kB\nBuffers: 20 kB\nCached: 300 kB\n";
+        final MemoryInfoReader reader = new MemoryInfoReader(write("meminfo", meminfo), write("status", ""));
+        final MemoryInfo info = new MemoryInfo();
+
+        try {
+            reader.read(info);
+        } finally {
+            reader.close();
+        }
+
+        assertEquals(420, info.getAvailableKb());
+        assertEquals(MemoryInfo.UNKNOWN, info.getSwapTotalKb());
+        assertEquals(MemoryInfo.UNKNOWN, info.getProcessThreads());
+    }
+
+    @Test
+    public void growsBuffer() throws Exception {
+        final MemoryInfoReader reader = new MemoryInfoReader(write("meminfo", MEMINFO), write("status", STATUS), 16);
+        final MemoryInfo info = new MemoryInfo();
+
+        try {
+            reader.read(info);
+        } finally {
+            reader.close();
+        }
+
+        assertEquals(1563516, info.getSwapFreeKb());
+        assertEquals(37, info.getProcessThreads());
+    }
+
+    @Test
+    public void missingFiles() throws Exception {
+        final File missing = new File(proc.getRoot(), "missing");
+        final MemoryInfoReader reader = new MemoryInfoReader(missing, missing);
+        final MemoryInfo info = new MemoryInfo();
+
+        assertFalse(reader.read(info));
+        assertEquals(MemoryInfo.UNKNOWN, info.getTotalKb());
+        assertEquals(-1f, info.getAvailableFraction(), 0f);
+    }
+}
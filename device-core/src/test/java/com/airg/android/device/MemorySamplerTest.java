@@ -0,0 +1,102 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MemorySamplerTest {
+
+    @Rule
+    public final TemporaryFolder proc = new TemporaryFolder();
+
+    @Test
+    public void samples() throws Exception {
+        final File meminfo = new File(proc.getRoot(), "meminfo");
+        final FileOutputStream out = new FileOutputStream(meminfo);
+
+        try {
+            out.write(MemoryInfoReaderTest.MEMINFO.getBytes(StandardCharsets.US_ASCII));
+        } finally {
+            out.close();
+        }
+
+        final CountDownLatch samples = new CountDownLatch(3);
+        final MemorySampler sampler = new MemorySampler(
+                new MemoryInfoReader(meminfo, new File(proc.getRoot(), "status")), 5, new MemorySampler.Listener() {
+            @Override
+            public void onSample(final MemoryInfo info) {
+                samples.countDown();
+            }
+        });
+
+        final MemoryInfo latest = new MemoryInfo();
+        assertFalse(sampler.getLatest(latest));
+
+        sampler.start();
+
+        try {
+            assertTrue(sampler.isRunning());
+            assertTrue(samples.await(5, TimeUnit.SECONDS));
+        } finally {
+            sampler.close();
+        }
+
+        assertFalse(sampler.isRunning());
+        assertTrue(sampler.getLatest(latest));
+        assertEquals(5724468, latest.getTotalKb());
+    }
+
+    @Test
+    public void survivesFailingListener() throws Exception {
+        final File meminfo = proc.newFile("meminfo");
+        final CountDownLatch samples = new CountDownLatch(3);
+        final MemorySampler sampler = new MemorySampler(
+                new MemoryInfoReader(meminfo, new File(proc.getRoot(), "status")), 5, new MemorySampler.Listener() {
+            @Override
+            public void onSample(final MemoryInfo info) {
+                samples.countDown();
+                throw new IllegalStateException("listener failure");
+            }
+        });
+
+        sampler.start();
+
+        try {
+            assertTrue("sampling continues after a failure", samples.await(5, TimeUnit.SECONDS));
+        } finally {
+            sampler.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badInterval() throws Exception {
+        new MemorySampler(new MemoryInfoReader(), 0, null);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_MM;
+import static com.airg.android.device.DimensionUnit.COMPLEX_UNIT_SP;
+import static org.junit.Assert.assertEquals;
+
+public class ParallelRangeTest {
+
+    @Test
+    public void visitsEveryIndexOnce() throws Exception {
+        final int length = ParallelRange.THRESHOLD * 5 + 17;
+        final AtomicIntegerArray visits = new AtomicIntegerArray(length);
+
+        ParallelRange.forkJoin(length, new ParallelRange.Body() {
+            @Override
+            public void run(final int start, final int end) {
+                for (int i = start; i < end; i++)
+                    visits.incrementAndGet(i);
+            }
+        });
+
+        for (int i = 0; i < length; i++)
+            assertEquals("index " + i, 1, visits.get(i));
+    }
+
+    @Test
+    public void forkJoinMatchesSequential() throws Exception {
+        final MetricsSource metrics = DimensionConverterTest.metrics(2.625f, 1.3f, 403.411f);
+        final DimensionConverter converter = new DimensionConverter(metrics);
+        final int length = ParallelRange.THRESHOLD * 8 + 3;
+        final float[] src = new float[length];
+        final Random random = new Random(42);
+
+        for (int i = 0; i < length; i++)
+            src[i] = (random.nextFloat() - 0.5f) * 10000f;
+
+        final float[] sequential = new float[length];
+        converter.convert(src, 0, sequential, 0, length, COMPLEX_UNIT_MM, COMPLEX_UNIT_SP);
+
+        final float[] parallel = new float[length];
+        ParallelRange.forkJoin(length, new ParallelRange.Body() {
+            @Override
+            public void run(final int start, final int end) {
+                converter.convert(src, start, parallel, start, end - start, COMPLEX_UNIT_MM, COMPLEX_UNIT_SP);
+            }
+        });
+
+        for (int i = 0; i < length; i++)
+            DimensionConverterTest.assertBitsEqual(sequential[i], parallel[i]);
+
+        final float[] viaConverter = new float[length];
+        converter.convertParallel(src, 0, viaConverter, 0, length, COMPLEX_UNIT_MM, COMPLEX_UNIT_SP);
+
+        for (int i = 0; i < length; i++)
+            DimensionConverterTest.assertBitsEqual(sequential[i], viaConverter[i]);
+    }
+
+    @Test
+    public void bulkParallelMatchesSequential() throws Exception {
+        final MetricsSource metrics = DimensionConverterTest.metrics(3.5f, 1.15f, 515.154f);
+        final DimensionConverter converter = new DimensionConverter(metrics);
+        final int length = ParallelRange.THRESHOLD * 2 + 1;
+        final int[] pxs = new int[length];
+
+        for (int i = 0; i < length; i++)
+            pxs[i] = i - length / 2;
+
+        final float[] expected = new float[length];
+        final float[] actual = new float[length];
+
+        converter.pxs2sps(pxs, 0, expected, 0, length);
+        converter.pxs2spsParallel(pxs, 0, actual, 0, length);
+
+        for (int i = 0; i < length; i++)
+            DimensionConverterTest.assertBitsEqual(expected[i], actual[i]);
+
+        final int[] expectedPxs = new int[length];
+        final int[] actualPxs = new int[length];
+
+        converter.sps2pxs(expected, 0, expectedPxs, 0, length);
+        converter.sps2pxsParallel(expected, 0, actualPxs, 0, length);
+
+        for (int i = 0; i < length; i++)
+            assertEquals(expectedPxs[i], actualPxs[i]);
+    }
+
+    @Test
+    public void overlappingRangesStaySequential() throws Exception {
+        final DimensionConverter converter = new DimensionConverter(DimensionConverterTest.metrics(2f, 1f, 320f));
+        final float[] values = {1f, 2f, 3f, 4f, 5f};
+
+        converter.convertParallel(values, 0, values, 1, 4, DimensionUnit.COMPLEX_UNIT_DIP,
+                DimensionUnit.COMPLEX_UNIT_PX);
+
+        DimensionConverterTest.assertBitsEqual(8f, values[4]);
+        DimensionConverterTest.assertBitsEqual(2f, values[1]);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import org.junit.Test;
+
+import static com.airg.android.device.PerformanceClassifier.TIER_HIGH;
+import static com.airg.android.device.PerformanceClassifier.TIER_LOW;
+import static com.airg.android.device.PerformanceClassifier.TIER_MID;
+import static com.airg.android.device.PerformanceClassifier.UNKNOWN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PerformanceClassifierTest {
+
+    private static final long GB = 1024 * 1024;
+
+    private static final PerformanceClassifier.Inputs ENTRY =
+            new PerformanceClassifier.Inputs(4, 1300000, 3 * GB / 2, 96, 240, UNKNOWN);
+    private static final PerformanceClassifier.Inputs MAINSTREAM =
+            new PerformanceClassifier.Inputs(8, 2000000, 4 * GB, 192, 420, UNKNOWN);
+    private static final PerformanceClassifier.Inputs FLAGSHIP =
+            new PerformanceClassifier.Inputs(8, 2840000, 8 * GB, 512, 560, UNKNOWN);
+
+    @Test
+    public void tiers() throws Exception {
+        assertEquals(13, PerformanceClassifier.score(ENTRY));
+        assertEquals(TIER_LOW, PerformanceClassifier.classify(ENTRY));
+
+        assertEquals(55, PerformanceClassifier.score(MAINSTREAM));
+        assertEquals(TIER_MID, PerformanceClassifier.classify(MAINSTREAM));
+
+        assertEquals(98, PerformanceClassifier.score(FLAGSHIP));
+        assertEquals(TIER_HIGH, PerformanceClassifier.classify(FLAGSHIP));
+    }
+
+    @Test
+    public void thresholds() throws Exception {
+        assertEquals(TIER_LOW, PerformanceClassifier.tier(PerformanceClassifier.MID_SCORE - 1));
+        assertEquals(TIER_MID, PerformanceClassifier.tier(PerformanceClassifier.MID_SCORE));
+        assertEquals(TIER_MID, PerformanceClassifier.tier(PerformanceClassifier.HIGH_SCORE - 1));
+        assertEquals(TIER_HIGH, PerformanceClassifier.tier(PerformanceClassifier.HIGH_SCORE));
+    }
+
+    @Test
+    public void lowRamIsAlwaysLow() throws Exception {
+        final PerformanceClassifier.Inputs go = new PerformanceClassifier.Inputs(8, 2840000, GB, 512, 560, UNKNOWN);
+
+        assertEquals(TIER_MID, PerformanceClassifier.tier(PerformanceClassifier.score(go)));
+        assertEquals(TIER_LOW, PerformanceClassifier.classify(go));
+    }
+
+    @Test
+    public void unknownInputsDontCount() throws Exception {
+        assertEquals(0, PerformanceClassifier.score(
+                new PerformanceClassifier.Inputs(UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN)));
+
+        // a maxed out cpu alone scores 100, with or without a known frequency
+        assertEquals(100, PerformanceClassifier.score(
+                new PerformanceClassifier.Inputs(8, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN)));
+        assertEquals(100, PerformanceClassifier.score(
+                new PerformanceClassifier.Inputs(8, 3000000, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN)));
+    }
+
+    @Test
+    public void monotonic() throws Exception {
+        int previous = -1;
+
+        for (long ram = GB; ram <= 12 * GB; ram += GB / 2) {
+            final int score = PerformanceClassifier.score(
+                    new PerformanceClassifier.Inputs(8, 2000000, ram, 192, 420, UNKNOWN));
+
+            assertTrue(score >= previous);
+            previous = score;
+        }
+    }
+
+    @Test
+    public void calibration() throws Exception {
+        final int calibration = PerformanceClassifier.calibrate();
+        assertTrue(calibration > 0);
+
+        // a saturated benchmark lifts a mainstream device, a stalled one drags it down
+        final PerformanceClassifier.Inputs fast = new PerformanceClassifier.Inputs(8, 2000000, 4 * GB, 192, 420,
+                PerformanceClassifier.CALIBRATION_REFERENCE);
+        final PerformanceClassifier.Inputs slow = new PerformanceClassifier.Inputs(8, 2000000, 4 * GB, 192, 420, 1);
+
+        assertTrue(PerformanceClassifier.score(fast) > PerformanceClassifier.score(MAINSTREAM));
+        assertTrue(PerformanceClassifier.score(slow) < PerformanceClassifier.score(MAINSTREAM));
+    }
+}
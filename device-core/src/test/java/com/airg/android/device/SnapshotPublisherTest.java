@@ -0,0 +1,263 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotPublisherTest {
+
+    @Test
+    public void publishNotifiesChanges() throws Exception {
+        final SnapshotPublisher<String> publisher = new SnapshotPublisher<>();
+        final Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+
+        assertNull(publisher.get());
+        assertEquals(SnapshotPublisher.CHANGED_ALL, publisher.publish("a"));
+        assertEquals(0, publisher.publish(new String("a")));
+        assertEquals(SnapshotPublisher.CHANGED_ALL, publisher.publish("b"));
+        assertEquals("b", publisher.get());
+
+        assertEquals(2, recorder.events.size());
+        assertEquals("null>a", recorder.events.get(0));
+        assertEquals("a>b", recorder.events.get(1));
+    }
+
+    @Test
+    public void diff() throws Exception {
+        final SnapshotPublisher<int[]> publisher = new SnapshotPublisher<>(new SnapshotPublisher.Diff<int[]>() {
+            @Override
+            public int changes(final int[] previous, final int[] current) {
+                int changes = 0;
+
+                for (int i = 0; i < previous.length; i++)
+                    if (previous[i] != current[i])
+                        changes |= 1 << i;
+
+                return changes;
+            }
+        });
+
+        final int[] last = new int[1];
+        publisher.subscribe(new SnapshotPublisher.Listener<int[]>() {
+            @Override
+            public void onSnapshotChanged(final int[] previous, final int[] current, final int changes) {
+                last[0] = changes;
+            }
+        });
+
+        final int[] first = {1, 2, 3};
+        publisher.publish(first);
+        assertEquals(SnapshotPublisher.CHANGED_ALL, last[0]);
+
+        assertEquals(0, publisher.publish(new int[]{1, 2, 3}));
+        assertSame(first, publisher.get());
+
+        assertEquals(0b101, publisher.publish(new int[]{0, 2, 4}));
+        assertEquals(0b101, last[0]);
+    }
+
+    @Test
+    public void subscriptions() throws Exception {
+        final SnapshotPublisher<String> publisher = new SnapshotPublisher<>();
+        final Recorder a = new Recorder();
+        final Recorder b = new Recorder();
+
+        publisher.subscribe(a);
+        publisher.subscribe(a);
+        publisher.subscribe(b);
+        assertEquals(2, publisher.listenerCount());
+
+        publisher.publish("x");
+        assertTrue(publisher.unsubscribe(a));
+        assertFalse(publisher.unsubscribe(a));
+        publisher.publish("y");
+
+        assertEquals(1, a.events.size());
+        assertEquals(2, b.events.size());
+        assertEquals(1, publisher.listenerCount());
+    }
+
+    @Test
+    public void clear() throws Exception {
+        final SnapshotPublisher<String> publisher = new SnapshotPublisher<>();
+        publisher.publish("a");
+        publisher.clear();
+
+        assertNull(publisher.get());
+        assertEquals(SnapshotPublisher.CHANGED_ALL, publisher.publish("a"));
+    }
+
+    @Test
+    public void versions() throws Exception {
+        final SnapshotPublisher<String> publisher = new SnapshotPublisher<>();
+        final Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+
+        assertEquals(SnapshotPublisher.CHANGED_ALL, publisher.publish("b", 2));
+        assertEquals("built earlier, finished later", 0, publisher.publish("a", 1));
+        assertEquals("b", publisher.get());
+
+        assertFalse(publisher.clear(2));
+        assertTrue(publisher.clear(3));
+        assertNull(publisher.get());
+        assertEquals(0, publisher.publish("c", 3));
+        assertNull(publisher.get());
+        assertEquals(SnapshotPublisher.CHANGED_ALL, publisher.publish("d", 4));
+
+        assertEquals(2, recorder.events.size());
+        assertEquals("null>d", recorder.events.get(1));
+    }
+
+    @Test
+    public void concurrentReaders() throws Exception {
+        final SnapshotPublisher<int[]> publisher = new SnapshotPublisher<>();
+        publisher.publish(new int[]{0, 0});
+
+        final AtomicInteger torn = new AtomicInteger();
+        final AtomicBoolean done = new AtomicBoolean();
+        final Thread[] readers = new Thread[8];
+
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int last = 0;
+
+                    while (!done.get()) {
+                        final int[] pair = publisher.get();
+
+                        // both halves of a snapshot always match and snapshots never go backwards
+                        if (pair[0] != pair[1] || pair[0] < last)
+                            torn.incrementAndGet();
+
+                        last = pair[0];
+                    }
+                }
+            });
+            readers[i].start();
+        }
+
+        for (int i = 1; i <= 10000; i++)
+            publisher.publish(new int[]{i, i});
+
+        done.set(true);
+
+        for (final Thread reader : readers)
+            reader.join();
+
+        assertEquals(0, torn.get());
+        assertEquals(10000, publisher.get()[0]);
+    }
+
+    @Test
+    public void deliveriesConverge() throws Exception {
+        final SnapshotPublisher<String> publisher = new SnapshotPublisher<>();
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch delivering = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        publisher.subscribe(new SnapshotPublisher.Listener<String>() {
+            @Override
+            public void onSnapshotChanged(final String previous, final String current, final int changes) {
+                events.add(previous + ">" + current);
+
+                if ("a".equals(current)) {
+                    delivering.countDown();
+                    await(release);
+                }
+            }
+        });
+
+        final Thread a = publishing(publisher, "a");
+        assertTrue(delivering.await(5, TimeUnit.SECONDS));
+
+        // both are published while "a" is still being delivered, so they wait for it in turn
+        final Thread b = publishing(publisher, "b");
+        awaitBlocked(b);
+        final Thread c = publishing(publisher, "c");
+        awaitBlocked(c);
+        assertEquals("c", publisher.get());
+
+        release.countDown();
+        a.join();
+        b.join();
+        c.join();
+
+        // "b" was replaced before its turn, so listeners go straight from "a" to "c", whichever thread ran first
+        assertEquals(Arrays.asList("null>a", "a>c"), events);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullSnapshot() throws Exception {
+        new SnapshotPublisher<String>().publish(null);
+    }
+
+    private static Thread publishing(final SnapshotPublisher<String> publisher, final String snapshot) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                publisher.publish(snapshot);
+            }
+        });
+
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitBlocked(final Thread thread) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (thread.getState() != Thread.State.BLOCKED && System.nanoTime() < deadline)
+            Thread.sleep(1);
+
+        assertEquals(Thread.State.BLOCKED, thread.getState());
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Recorder implements SnapshotPublisher.Listener<String> {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onSnapshotChanged(final String previous, final String current, final int changes) {
+            events.add(previous + ">" + current);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import org.junit.Test;
+
+import static com.airg.android.device.TrimLevel.LOW_MEMORY;
+import static com.airg.android.device.TrimLevel.TRIM_MEMORY_BACKGROUND;
+import static com.airg.android.device.TrimLevel.TRIM_MEMORY_COMPLETE;
+import static com.airg.android.device.TrimLevel.TRIM_MEMORY_RUNNING_LOW;
+import static com.airg.android.device.TrimLevel.TRIM_MEMORY_RUNNING_MODERATE;
+import static com.airg.android.device.TrimLevel.TRIM_MEMORY_UI_HIDDEN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TrimRegistryTest {
+
+    @Test
+    public void fractions() throws Exception {
+        assertEquals(0f, TrimLevel.fraction(0), 0f);
+        assertEquals(0.1f, TrimLevel.fraction(TRIM_MEMORY_RUNNING_MODERATE), 0f);
+        assertEquals(0.25f, TrimLevel.fraction(TRIM_MEMORY_UI_HIDDEN), 0f);
+        assertEquals(0.5f, TrimLevel.fraction(TRIM_MEMORY_BACKGROUND), 0f);
+        assertEquals(0.5f, TrimLevel.fraction(TRIM_MEMORY_BACKGROUND + 1), 0f);
+        assertEquals(1f, TrimLevel.fraction(TRIM_MEMORY_COMPLETE), 0f);
+        assertEquals(1f, TrimLevel.fraction(LOW_MEMORY), 0f);
+    }
+
+    @Test
+    public void lowestPriorityFirst() throws Exception {
+        final TrimRegistry registry = new TrimRegistry();
+        final FakeCache cheap = new FakeCache(1000);
+        final FakeCache expensive = new FakeCache(1000);
+
+        registry.register(expensive, TrimRegistry.PRIORITY_HIGH);
+        registry.register(cheap, TrimRegistry.PRIORITY_LOW);
+
+        // 25% of 2000 comes out of the cheap cache alone
+        assertEquals(500, registry.trim(TRIM_MEMORY_UI_HIDDEN));
+        assertEquals(500, cheap.bytes);
+        assertEquals(1000, expensive.bytes);
+        assertEquals(0, expensive.trims);
+    }
+
+    @Test
+    public void spillsIntoHigherPriorities() throws Exception {
+        final TrimRegistry registry = new TrimRegistry();
+        final FakeCache cheap = new FakeCache(400);
+        final FakeCache expensive = new FakeCache(1600);
+
+        registry.register(cheap, TrimRegistry.PRIORITY_LOW);
+        registry.register(expensive, TrimRegistry.PRIORITY_HIGH);
+
+        // 50% of 2000: all 400 of the cheap cache, the other 600 from the expensive one
+        assertEquals(1000, registry.trim(TRIM_MEMORY_BACKGROUND));
+        assertEquals(0, cheap.bytes);
+        assertEquals(1000, expensive.bytes);
+    }
+
+    @Test
+    public void samePriorityShared() throws Exception {
+        final TrimRegistry registry = new TrimRegistry();
+        final FakeCache a = new FakeCache(1000);
+        final FakeCache b = new FakeCache(3000);
+
+        registry.register(a, TrimRegistry.PRIORITY_DEFAULT);
+        registry.register(b, TrimRegistry.PRIORITY_DEFAULT);
+
+        // 25% of each
+        assertEquals(1000, registry.trim(TRIM_MEMORY_RUNNING_LOW));
+        assertEquals(750, a.bytes);
+        assertEquals(2250, b.bytes);
+    }
+
+    @Test
+    public void completeEmptiesEverything() throws Exception {
+        final TrimRegistry registry = new TrimRegistry();
+        final FakeCache a = new FakeCache(100);
+        final FakeCache b = new FakeCache(200);
+        final FakeCache empty = new FakeCache(0);
+
+        registry.register(a, TrimRegistry.PRIORITY_LOW);
+        registry.register(b, TrimRegistry.PRIORITY_HIGH);
+        registry.register(empty, TrimRegistry.PRIORITY_DEFAULT);
+
+        assertEquals(300, registry.trim(TRIM_MEMORY_COMPLETE));
+        assertEquals(0, registry.getEstimatedBytes());
+        assertEquals(1, empty.trims);
+        assertEquals(300, registry.getReclaimedBytes());
+    }
+
+    @Test
+    public void reclaimedAccumulates() throws Exception {
+        final TrimRegistry registry = new TrimRegistry();
+        final FakeCache cache = new FakeCache(1000);
+        registry.register(cache, TrimRegistry.PRIORITY_DEFAULT);
+
+        assertEquals(100, registry.trim(TRIM_MEMORY_RUNNING_MODERATE));
+        assertEquals(450, registry.trim(TRIM_MEMORY_BACKGROUND));
+        assertEquals(0, registry.trim(0));
+        assertEquals(550, registry.getReclaimedBytes());
+    }
+
+    @Test
+    public void registerAndUnregister() throws Exception {
+        final TrimRegistry registry = new TrimRegistry();
+        final FakeCache cache = new FakeCache(1000);
+
+        registry.register(cache, TrimRegistry.PRIORITY_LOW);
+        registry.register(cache, TrimRegistry.PRIORITY_HIGH); // priority change, not a second entry
+        assertEquals(1, registry.size());
+        assertEquals(1000, registry.getEstimatedBytes());
+
+        assertTrue(registry.unregister(cache));
+        assertFalse(registry.unregister(cache));
+        assertEquals(0, registry.size());
+        assertEquals(0, registry.trim(TRIM_MEMORY_COMPLETE));
+        assertEquals(1000, cache.bytes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullCache() throws Exception {
+        new TrimRegistry().register(null, TrimRegistry.PRIORITY_DEFAULT);
+    }
+
+    private static final class FakeCache implements TrimRegistry.Trimmable {
+        long bytes;
+        int trims;
+
+        FakeCache(final long size) {
+            bytes = size;
+        }
+
+        @Override
+        public long getEstimatedBytes() {
+            return bytes;
+        }
+
+        @Override
+        public long trim(final float fraction) {
+            trims++;
+            final long released = fraction >= 1f ? bytes : Math.round(bytes * (double) fraction);
+            bytes -= released;
+            return released;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class WorkerPoolsTest {
+
+    /**
+     * @param clusters per cluster: core count, max frequency in kHz and number of online cores
+     */
+    static CpuTopology topology(final int[]... clusters) {
+        int count = 0;
+
+        for (final int[] cluster : clusters)
+            count += cluster[0];
+
+        final boolean[] online = new boolean[count];
+        final int[] frequency = new int[count];
+        final int[][] cores = new int[clusters.length][];
+        int cpu = 0;
+
+        for (int c = 0; c < clusters.length; c++) {
+            cores[c] = new int[clusters[c][0]];
+
+            for (int i = 0; i < cores[c].length; i++, cpu++) {
+                cores[c][i] = cpu;
+                frequency[cpu] = clusters[c][1];
+                online[cpu] = i < clusters[c][2];
+            }
+        }
+
+        return new CpuTopology(online, frequency, cores, true);
+    }
+
+    @Test
+    public void homogeneous() throws Exception {
+        final CpuTopology octa = topology(new int[]{8, 2000000, 8});
+
+        assertEquals(8, WorkerPools.cpuThreads(octa));
+        assertEquals(16, WorkerPools.ioThreads(octa));
+        assertEquals(2, WorkerPools.backgroundThreads(octa));
+    }
+
+    @Test
+    public void bigLittle() throws Exception {
+        // little cores count as 1.8/2.8 of a big core: 4 * 0.64 + 4 = 6.57
+        final CpuTopology topology = topology(new int[]{4, 1800000, 4}, new int[]{4, 2800000, 4});
+
+        assertEquals(7, WorkerPools.cpuThreads(topology));
+        assertEquals(16, WorkerPools.ioThreads(topology));
+        assertEquals(2, WorkerPools.backgroundThreads(topology));
+    }
+
+    @Test
+    public void triCluster() throws Exception {
+        // 4 * 0.6 + 3 * 0.8 + 1 = 5.8
+        final CpuTopology topology = topology(new int[]{4, 1800000, 4}, new int[]{3, 2400000, 3},
+                new int[]{1, 3000000, 1});
+
+        assertEquals(6, WorkerPools.cpuThreads(topology));
+    }
+
+    @Test
+    public void offlineCores() throws Exception {
+        // only 2 little and 2 big cores online: 2 * 0.5 + 2 = 3
+        final CpuTopology topology = topology(new int[]{4, 1000000, 2}, new int[]{4, 2000000, 2});
+
+        assertEquals(3, WorkerPools.cpuThreads(topology));
+        assertEquals(8, WorkerPools.ioThreads(topology));
+    }
+
+    @Test
+    public void singleCore() throws Exception {
+        final CpuTopology single = topology(new int[]{1, CpuTopology.FREQUENCY_UNKNOWN, 1});
+
+        assertEquals(1, WorkerPools.cpuThreads(single));
+        assertEquals(WorkerPools.MIN_IO_THREADS, WorkerPools.ioThreads(single));
+        assertEquals(1, WorkerPools.backgroundThreads(single));
+    }
+
+    @Test
+    public void executors() throws Exception {
+        final CpuTopology topology = topology(new int[]{4, 1800000, 4}, new int[]{4, 2800000, 4});
+        final InstrumentedExecutor[] pools = {
+                WorkerPools.cpuBound("cpu", topology),
+                WorkerPools.ioBound("io", topology),
+                WorkerPools.background("background", topology)
+        };
+
+        try {
+            assertEquals(7, pools[0].getMaximumPoolSize());
+            assertEquals(WorkerPools.CPU_QUEUE_CAPACITY, pools[0].getQueueCapacity());
+            assertEquals(16, pools[1].getMaximumPoolSize());
+            assertEquals(2, pools[2].getMaximumPoolSize());
+            assertEquals("background", pools[2].getName());
+        } finally {
+            for (final InstrumentedExecutor pool : Arrays.asList(pools))
+                pool.shutdownNow();
+        }
+    }
+}
@@ -20,18 +20,21 @@ package com.airg.android.device;
 
 import android.annotation.TargetApi;
 import android.content.Context;
-import android.content.pm.PackageManager;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
 import static android.os.Build.VERSION_CODES.JELLY_BEAN_MR1;
 import static android.os.Build.VERSION_CODES.LOLLIPOP;
-import static com.airg.android.device.Device.hasAnySystemFeatures;
-import static com.airg.android.device.Device.hasSystemFeature;
+import static com.airg.android.device.DeviceFeatures.CAMERA;
+import static com.airg.android.device.DeviceFeatures.CAMERA_ANY;
+import static com.airg.android.device.DeviceFeatures.CAMERA_AUTOFOCUS;
+import static com.airg.android.device.DeviceFeatures.CAMERA_CAPABILITY_RAW;
+import static com.airg.android.device.DeviceFeatures.CAMERA_FLASH;
+import static com.airg.android.device.DeviceFeatures.CAMERA_FRONT;
 
 /**
- This class provides some common camera-related queries.
+ This class provides some common camera-related queries, answered from the {@link DeviceFeatures} snapshot.
  */
 @SuppressWarnings ( {"UnusedDeclaration", "WeakerAccess"})
 @NoArgsConstructor (access = AccessLevel.PRIVATE)
@@ -46,9 +49,10 @@ public class Cameras {
      */
     @TargetApi (JELLY_BEAN_MR1)
     public static boolean hasAny (final Context context) {
+        final DeviceFeatures features = DeviceFeatures.get (context);
         return ApiLevel.atLeast (JELLY_BEAN_MR1)
-               ? hasSystemFeature (context, PackageManager.FEATURE_CAMERA_ANY)
-               : hasAnySystemFeatures (context, PackageManager.FEATURE_CAMERA, PackageManager.FEATURE_CAMERA_FRONT);
+               ? features.has (CAMERA_ANY)
+               : features.has (CAMERA) || features.has (CAMERA_FRONT);
     }
 
     /**
@@ -60,7 +64,7 @@ public class Cameras {
      @return true if the device has a front facing camera and false otherwise
      */
     public static boolean hasFront (final Context context) {
-        return hasSystemFeature (context, PackageManager.FEATURE_CAMERA_FRONT);
+        return DeviceFeatures.get (context).has (CAMERA_FRONT);
     }
 
     /**
@@ -69,7 +73,7 @@ public class Cameras {
      @return true if the camera has a flash and false otherwise
      */
     public static boolean hasFlash (final Context context) {
-        return hasSystemFeature (context, PackageManager.FEATURE_CAMERA_FLASH);
+        return DeviceFeatures.get (context).has (CAMERA_FLASH);
     }
 
     /**
@@ -78,7 +82,7 @@ public class Cameras {
      @return true if the camera is able to auto-focus and false otherwise.
      */
     public static boolean hasAutoFocus (final Context context) {
-        return hasSystemFeature (context, PackageManager.FEATURE_CAMERA_AUTOFOCUS);
+        return DeviceFeatures.get (context).has (CAMERA_AUTOFOCUS);
     }
 
     /**
@@ -89,6 +93,6 @@ public class Cameras {
     @TargetApi (LOLLIPOP)
     public static boolean supportsRaw (final Context context) {
         return ApiLevel.atLeast (LOLLIPOP) &&
-               hasSystemFeature (context, PackageManager.FEATURE_CAMERA_CAPABILITY_RAW);
+               DeviceFeatures.get (context).has (CAMERA_CAPABILITY_RAW);
     }
 }
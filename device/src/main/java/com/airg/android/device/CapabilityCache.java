@@ -0,0 +1,355 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Build;
+import android.os.Looper;
+import android.provider.Settings;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+import lombok.Getter;
+
+/**
+ * Device capabilities that only change with a system or app update (system features and the hardware id), kept in a
+ * small binary file so a cold start doesn't have to ask the system for them again. {@link #preload(Context)} reads the
+ * file on a background thread and runs automatically when the first {@link Device} is created. A query on the main
+ * thread never touches the disk and never waits for the preload: if the capabilities aren't loaded yet it asks the
+ * system directly, as it did before there was a cache, and the file is written on a background thread. Loads don't
+ * hold a lock; whichever finishes first is published and the others adopt it. The file is trusted only if its checksum
+ * is intact and it was written for the same {@link Build#FINGERPRINT} and app install; those are the only things that
+ * change the capabilities, so a valid file is not re-checked against the system.
+ */
+final class CapabilityCache {
+    static final String FILE_NAME = "com.airg.android.device.capabilities";
+
+    private static final String TAG = "CapabilityCache";
+    private static final int MAGIC = 0x41444343; // "ADCC"
+    private static final int FORMAT = 1;
+    private static final int MAX_FILE_SIZE = 256 * 1024;
+    private static final AtomicReference<CapabilityCache> INSTANCE = new AtomicReference<>();
+    private static final AtomicBoolean PRELOADING = new AtomicBoolean();
+    private static final AtomicLong HARDWARE_ID_HITS = new AtomicLong();
+    private static final AtomicBoolean QUERY_CHARGED = new AtomicBoolean();
+
+    /**
+     * Identifies the system build and app install the capabilities were read on
+     */
+    @Getter
+    private final String key;
+
+    @Getter
+    private final DeviceFeatures features;
+
+    @Getter
+    private final String hardwareId;
+
+    // read from the system in this process, rather than from the file
+    private final boolean queried;
+
+    CapabilityCache(final String k, final DeviceFeatures f, final String id) {
+        this(k, f, id, false);
+    }
+
+    CapabilityCache(final String k, final DeviceFeatures f, final String id, final boolean fromSystem) {
+        key = k;
+        features = f;
+        hardwareId = id;
+        queried = fromSystem;
+    }
+
+    /**
+     * @param context active context
+     * @return the capabilities for this process, loaded on first use
+     */
+    static CapabilityCache get(final Context context) {
+        final CapabilityCache current = INSTANCE.get();
+        return null == current ? load(context.getApplicationContext()) : current;
+    }
+
+    /**
+     * Load the capabilities on a background thread, unless they are already loaded or being loaded
+     *
+     * @param context active context
+     */
+    static void preload(final Context context) {
+        if (null != INSTANCE.get() || !PRELOADING.compareAndSet(false, true)) return;
+
+        final Context app = context.getApplicationContext();
+        final Thread preload = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                get(app);
+            }
+        }, TAG);
+
+        preload.setPriority(Thread.MIN_PRIORITY);
+        preload.start();
+    }
+
+    /**
+     * @param context active context
+     * @return the hardware id, loaded with the rest of the capabilities on first use
+     */
+    static String hardwareId(final Context context) {
+        return hardwareId(get(context));
+    }
+
+    /**
+     * Answer a hardware id request from <code>capabilities</code> and count it as a hit, unless it is the first request
+     * answered by the one {@link Settings.Secure} query of a process that found no cached copy
+     */
+    static String hardwareId(final CapabilityCache capabilities) {
+        if (!capabilities.queried || !QUERY_CHARGED.compareAndSet(false, true))
+            HARDWARE_ID_HITS.incrementAndGet();
+
+        return capabilities.hardwareId;
+    }
+
+    /**
+     * @return number of {@link #hardwareId(Context)} calls that were answered from the in-memory or cached copy
+     * without a {@link Settings.Secure} query of their own
+     */
+    static long hardwareIdQueriesAvoided() {
+        return HARDWARE_ID_HITS.get();
+    }
+
+    /**
+     * Query the capabilities from the system, bypassing the cache
+     */
+    @SuppressLint("HardwareIds")
+    static CapabilityCache query(final Context context, final String key) {
+        return new CapabilityCache(key,
+                DeviceFeatures.query(context),
+                Settings.Secure.getString(context.getContentResolver(), Settings.Secure.ANDROID_ID),
+                true);
+    }
+
+    /**
+     * Cache key for the running system build and app install. The app is identified by its APK path and modification
+     * time, which change with every install or update and, unlike its version code, can be read without a call to the
+     * package manager.
+     */
+    static String key(final Context context) {
+        final ApplicationInfo ai = context.getApplicationInfo();
+        final String apk = null == ai ? null : ai.sourceDir;
+        final long modified = null == apk ? 0 : new File(apk).lastModified();
+        return Build.FINGERPRINT + '|' + apk + '|' + modified;
+    }
+
+    /**
+     * Read a cache file
+     *
+     * @return the cached capabilities or <code>null</code> if the file is missing, corrupt or written for a different
+     * <code>key</code>
+     */
+    static CapabilityCache read(final File file, final String key) {
+        if (!file.isFile()) return null;
+
+        try {
+            final byte[] data;
+            final RandomAccessFile in = new RandomAccessFile(file, "r");
+
+            try {
+                final long length = in.length();
+
+                if (length > MAX_FILE_SIZE)
+                    throw new IOException("Cache file too large: " + length);
+
+                data = new byte[(int) length];
+                in.readFully(data);
+            } finally {
+                in.close();
+            }
+
+            final CapabilityCache cached = decode(data);
+
+            if (null != cached && key.equals(cached.key))
+                return cached;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Discarding unreadable capability cache", e);
+        }
+
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+        return null;
+    }
+
+    /**
+     * Write a cache file. The data goes to a temporary file first and is then renamed over <code>file</code>, so
+     * readers never see a partial write. Every write gets its own temporary file, so the app's processes can write at
+     * the same time; the last rename wins.
+     */
+    static void write(final File file, final CapabilityCache capabilities) {
+        File temp = null;
+
+        try {
+            temp = File.createTempFile(file.getName() + '.', ".tmp", file.getParentFile());
+            final FileOutputStream out = new FileOutputStream(temp);
+
+            try {
+                out.write(encode(capabilities));
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+
+            if (!temp.renameTo(file))
+                throw new IOException("Unable to replace " + file);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write capability cache", e);
+
+            if (null != temp)
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+        }
+    }
+
+    static byte[] encode(final CapabilityCache capabilities) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final Map<String, Integer> versions = capabilities.features.versions();
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        out.writeUTF(capabilities.key);
+        out.writeBoolean(null != capabilities.hardwareId);
+        out.writeUTF(null == capabilities.hardwareId ? "" : capabilities.hardwareId);
+        out.writeBoolean(capabilities.features.isVersioned());
+        out.writeInt(versions.size());
+
+        for (final Map.Entry<String, Integer> feature : versions.entrySet()) {
+            out.writeUTF(feature.getKey());
+            out.writeInt(feature.getValue());
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return decoded capabilities or <code>null</code> if <code>data</code> is not an intact cache file of the current
+     * format
+     */
+    static CapabilityCache decode(final byte[] data) throws IOException {
+        if (data.length < 16) return null;
+
+        final int payload = data.length - 8;
+        final CRC32 crc = new CRC32();
+        crc.update(data, 0, payload);
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT)
+            return null;
+
+        final String key = in.readUTF();
+        final boolean hasId = in.readBoolean();
+        final String id = in.readUTF();
+        final boolean versioned = in.readBoolean();
+        final int count = in.readInt();
+
+        if (count < 0 || count > payload / 6) // each feature takes at least 6 bytes
+            return null;
+
+        final Map<String, Integer> versions = new HashMap<>(count * 2);
+
+        for (int i = 0; i < count; i++)
+            versions.put(in.readUTF(), in.readInt());
+
+        if (in.available() != 8 || in.readLong() != crc.getValue())
+            return null;
+
+        return new CapabilityCache(key, new DeviceFeatures(versions, versioned), hasId ? id : null);
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    private static CapabilityCache load(final Context context) {
+        final CapabilityCache loaded;
+
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            // no disk access here, not even for the key: the file is checked and written in the background
+            loaded = query(context, null);
+        } else {
+            final String key = key(context);
+            final CapabilityCache cached = read(file(context), key);
+            loaded = null == cached ? query(context, key) : cached;
+        }
+
+        // built outside of any lock, so the main thread never waits for another thread's disk access
+        if (!INSTANCE.compareAndSet(null, loaded))
+            return INSTANCE.get();
+
+        if (null == loaded.key)
+            save(context, loaded);
+        else if (loaded.queried)
+            write(file(context), loaded);
+
+        return loaded;
+    }
+
+    /**
+     * On a background thread, write freshly queried capabilities to the cache file, unless it already holds the same
+     */
+    private static void save(final Context context, final CapabilityCache queried) {
+        final Thread save = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final File file = file(context);
+                final String key = key(context);
+                final CapabilityCache cached = read(file, key);
+
+                if (null == cached || !cached.sameAs(queried))
+                    write(file, new CapabilityCache(key, queried.features, queried.hardwareId));
+            }
+        }, TAG);
+
+        save.setPriority(Thread.MIN_PRIORITY);
+        save.start();
+    }
+
+    private static File file(final Context context) {
+        return new File(context.getCacheDir(), FILE_NAME);
+    }
+
+    private boolean sameAs(final CapabilityCache other) {
+        return features.equals(other.features)
+                && (null == hardwareId ? null == other.hardwareId : hardwareId.equals(other.hardwareId));
+    }
+}
@@ -29,8 +29,9 @@ import lombok.Getter;
 
 /**
  * This class provides common network connectivity tasks. You can use this class either as an instance, or just the
- * provided static methods. Static methods are recommended for single or infrequent queries. For multiple or frequent
- * querying of the network state, an instance is recommended.
+ * provided static methods. {@link #online(Context)}, {@link #isWifi(Context)} and {@link #isMobile(Context)} read the
+ * process wide {@link ConnectivityState}, which is kept up to date by the system, so they are cheap enough to call
+ * before every request.
  */
 
 @SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
@@ -80,10 +81,64 @@ public class Connectivity {
         return connectivityManager.getActiveNetworkInfo();
     }
 
+    /**
+     * Get the current connectivity state. The first call registers for connectivity changes, after that this is a
+     * memory read.
+     *
+     * @param context active context
+     * @return current connectivity state
+     */
+    public static ConnectivityState getState(final Context context) {
+        return ConnectivityState.get(context);
+    }
+
+    /**
+     * See {@link #getState(Context)}
+     */
+    public ConnectivityState getState() {
+        return getState(context);
+    }
+
+    /**
+     * Be told about connectivity changes, see {@link #subscribe(Context, SnapshotPublisher.Listener)}. Be sure to call
+     * {@link #unsubscribe(SnapshotPublisher.Listener)} when done.
+     */
+    public void subscribe(@NonNull final SnapshotPublisher.Listener<ConnectivityState> listener) {
+        subscribe(context, listener);
+    }
+
+    /**
+     * Be told about connectivity changes. All listeners share a single system registration, which is dropped when the
+     * last one unsubscribes (see {@link ConnectivityState}). Be sure to call
+     * {@link #unsubscribe(SnapshotPublisher.Listener)} when done.
+     *
+     * @param context  active context
+     * @param listener called with the previous and new state, and the set of
+     *                 <code>ConnectivityState.CHANGED_*</code> fields
+     */
+    public static void subscribe(@NonNull final Context context,
+                                 @NonNull final SnapshotPublisher.Listener<ConnectivityState> listener) {
+        ConnectivityState.subscribe(context, listener);
+    }
+
+    /**
+     * Stop being told about connectivity changes
+     *
+     * @param listener listener added through {@link #subscribe(Context, SnapshotPublisher.Listener)}
+     * @return <code>true</code> if the listener was subscribed
+     */
+    public static boolean unsubscribe(@NonNull final SnapshotPublisher.Listener<ConnectivityState> listener) {
+        return ConnectivityState.unsubscribe(listener);
+    }
+
     /**
      * Subscribe to network change events (see {@link #unsubscribe(Context, BroadcastReceiver)}).
      * Be sure to call {@link #unsubscribe(BroadcastReceiver)} when done.
+     *
+     * @deprecated every receiver is a separate system registration; use
+     * {@link #subscribe(SnapshotPublisher.Listener)} instead
      */
+    @Deprecated
     public void subscribe(@NonNull final BroadcastReceiver receiver) {
         subscribe(context, receiver);
     }
@@ -93,14 +148,20 @@ public class Connectivity {
      *
      * @param context  a {@link Context} on which to register the receiver
      * @param receiver receiver to subscribe to network change events
+     * @deprecated every receiver is a separate system registration; use
+     * {@link #subscribe(Context, SnapshotPublisher.Listener)} instead
      */
+    @Deprecated
     public static void subscribe(@NonNull final Context context, @NonNull final BroadcastReceiver receiver) {
         context.registerReceiver(receiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
     }
 
     /**
      * Unsubscribe from network change events (see {@link #unsubscribe(Context, BroadcastReceiver)}).
+     *
+     * @deprecated see {@link #subscribe(BroadcastReceiver)}
      */
+    @Deprecated
     public void unsubscribe(@NonNull final BroadcastReceiver receiver) {
         unsubscribe(context, receiver);
     }
@@ -109,7 +170,9 @@ public class Connectivity {
      * Unsubscribe from network change events
      * @param context  a {@link Context} on which to register the receiver
      * @param receiver receiver to unsubscribe from network change events
+     * @deprecated see {@link #subscribe(Context, BroadcastReceiver)}
      */
+    @Deprecated
     public static void unsubscribe(@NonNull final Context context, @NonNull final BroadcastReceiver receiver) {
         context.unregisterReceiver(receiver);
     }
@@ -122,7 +185,7 @@ public class Connectivity {
      * not connected
      */
     public static boolean online(final Context context) {
-        return online(activeNetwork(context));
+        return getState(context).isConnected();
     }
 
     /**
@@ -132,7 +195,7 @@ public class Connectivity {
      * not connected
      */
     public boolean online() {
-        return online(activeNetwork());
+        return getState().isConnected();
     }
 
     /**
@@ -142,7 +205,7 @@ public class Connectivity {
      * @return true if the active network is wifi, false if no active network or not wifi.
      */
     public static boolean isWifi(final Context context) {
-        return isWifi(activeNetwork(context));
+        return getState(context).isWifi();
     }
 
     /**
@@ -151,7 +214,7 @@ public class Connectivity {
      * @return true if the active network is wifi, false if no active network or not wifi.
      */
     public boolean isWifi() {
-        return isWifi(activeNetwork());
+        return getState().isWifi();
     }
 
     /**
@@ -161,7 +224,7 @@ public class Connectivity {
      * @return true if the active network is mobile, false if no active network or not mobile.
      */
     public static boolean isMobile(final Context context) {
-        return isMobile(activeNetwork(context));
+        return getState(context).isMobile();
     }
 
     /**
@@ -170,24 +233,6 @@ public class Connectivity {
      * @return true if the active network is mobile, false if no active network or not mobile.
      */
     public boolean isMobile() {
-        return isMobile(activeNetwork());
-    }
-
-    // --------- private helpers
-
-    private static boolean online(final NetworkInfo ni) {
-        return null != ni && ni.isConnected();
-    }
-
-    private static boolean isWifi(final NetworkInfo ni) {
-        return is(ni, ConnectivityManager.TYPE_WIFI);
-    }
-
-    private static boolean isMobile(final NetworkInfo ni) {
-        return is(ni, ConnectivityManager.TYPE_MOBILE);
-    }
-
-    private static boolean is(final NetworkInfo ni, final int type) {
-        return null != ni && ni.getType() == type;
+        return getState().isMobile();
     }
 }
@@ -0,0 +1,332 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * An immutable snapshot of the device's active network. The process wide state is kept up to date by a single system
+ * registration (a default network callback from api 24 (Nougat), a {@link ConnectivityManager#CONNECTIVITY_ACTION}
+ * receiver below that) and published through a volatile reference, so {@link Connectivity#online(Context)} and
+ * friends read memory instead of making a {@link ConnectivityManager} binder call. Listeners added through
+ * {@link #subscribe(Context, SnapshotPublisher.Listener)} are told which fields changed, as a bit set of the
+ * <code>CHANGED_*</code> constants.
+ * <p>
+ * However many listeners there are, there is only one system registration. It is made by the first
+ * {@link #get(Context)} or {@link #subscribe(Context, SnapshotPublisher.Listener)} call. Once the state has been read
+ * through {@link #get(Context)} the registration is kept for the life of the process, since readers can't say when
+ * they are done. Otherwise it is dropped when the last listener unsubscribes.
+ */
+@Getter
+@EqualsAndHashCode
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class ConnectivityState {
+    /**
+     * {@link #getType()} when there is no active network
+     */
+    public static final int TYPE_NONE = -1;
+
+    /**
+     * {@link #isConnected()} changed
+     */
+    public static final int CHANGED_CONNECTED = 1;
+    /**
+     * {@link #getType()} changed
+     */
+    public static final int CHANGED_TYPE = 1 << 1;
+    /**
+     * {@link #isMetered()} changed
+     */
+    public static final int CHANGED_METERED = 1 << 2;
+
+    /**
+     * No active network
+     */
+    public static final ConnectivityState DISCONNECTED = new ConnectivityState(false, TYPE_NONE, false);
+
+    private static final Object LOCK = new Object();
+
+    // orders states that are built concurrently, see SnapshotPublisher.publish(Object, long)
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private static final SnapshotPublisher<ConnectivityState> PUBLISHER =
+            new SnapshotPublisher<>(new SnapshotPublisher.Diff<ConnectivityState>() {
+                @Override
+                public int changes(final ConnectivityState previous, final ConnectivityState current) {
+                    return current.changes(previous);
+                }
+            });
+
+    // all guarded by LOCK
+    private static Source source = new ConnectivityWatcher();
+    private static Registration registration; // null while there is no system registration
+    private static boolean pinned;
+
+    /**
+     * Whether the active network is connected
+     */
+    private final boolean connected;
+
+    /**
+     * Type of the active network (e.g. {@link ConnectivityManager#TYPE_WIFI}) or {@link #TYPE_NONE}
+     */
+    private final int type;
+
+    /**
+     * Whether the active network is connected and metered
+     */
+    private final boolean metered;
+
+    ConnectivityState(final boolean isConnected, final int networkType, final boolean isMetered) {
+        connected = isConnected;
+        type = networkType;
+        metered = isConnected && isMetered;
+    }
+
+    ConnectivityState(final NetworkInfo active, final boolean isMetered) {
+        this(null != active && active.isConnected(), null == active ? TYPE_NONE : active.getType(), isMetered);
+    }
+
+    /**
+     * Get the current connectivity state. The first call registers for connectivity changes, for the life of the
+     * process.
+     *
+     * @param context active context
+     * @return current connectivity state
+     */
+    public static ConnectivityState get(final Context context) {
+        final ConnectivityState state = PUBLISHER.get();
+        return null == state ? build(context.getApplicationContext()) : state;
+    }
+
+    /**
+     * Be told about connectivity changes. Listeners are called with the previous and the new state, and the set of
+     * <code>CHANGED_*</code> fields, on the main thread below api 24 and on a system network thread from api 24. Be
+     * sure to call {@link #unsubscribe(SnapshotPublisher.Listener)} when done.
+     *
+     * @param context  active context
+     * @param listener listener to add
+     */
+    public static void subscribe(final Context context, final SnapshotPublisher.Listener<ConnectivityState> listener) {
+        synchronized (LOCK) {
+            // publishes the first state before the listener is added, so it only hears about changes
+            watch(context.getApplicationContext());
+            PUBLISHER.subscribe(listener);
+        }
+    }
+
+    /**
+     * Remove a listener. The system registration is dropped with the last listener, unless the state is also read
+     * through {@link #get(Context)}.
+     *
+     * @param listener listener added through {@link #subscribe(Context, SnapshotPublisher.Listener)}
+     * @return <code>true</code> if the listener was subscribed
+     */
+    public static boolean unsubscribe(final SnapshotPublisher.Listener<ConnectivityState> listener) {
+        synchronized (LOCK) {
+            if (!PUBLISHER.unsubscribe(listener))
+                return false;
+
+            if (0 == PUBLISHER.listenerCount() && !pinned)
+                unwatch();
+
+            return true;
+        }
+    }
+
+    /**
+     * @return number of subscribed listeners
+     */
+    public static int listenerCount() {
+        return PUBLISHER.listenerCount();
+    }
+
+    /**
+     * @return true if the active network is wifi, whether or not it is connected yet
+     */
+    public boolean isWifi() {
+        return ConnectivityManager.TYPE_WIFI == type;
+    }
+
+    /**
+     * @return true if the active network is mobile, whether or not it is connected yet
+     */
+    public boolean isMobile() {
+        return ConnectivityManager.TYPE_MOBILE == type;
+    }
+
+    /**
+     * Compare to an older state
+     *
+     * @param previous state to compare to
+     * @return bit set of <code>CHANGED_*</code> fields that differ between the states
+     */
+    public int changes(final ConnectivityState previous) {
+        int changes = 0;
+
+        if (connected != previous.connected)
+            changes |= CHANGED_CONNECTED;
+        if (type != previous.type)
+            changes |= CHANGED_TYPE;
+        if (metered != previous.metered)
+            changes |= CHANGED_METERED;
+
+        return changes;
+    }
+
+    /**
+     * Ask the {@link ConnectivityManager} for the current state, bypassing the published one
+     */
+    static ConnectivityState query(final Context context) {
+        final ConnectivityManager cm = Connectivity.getConnectivityManager(context);
+        final NetworkInfo active = null == cm ? null : cm.getActiveNetworkInfo();
+        return null == active ? DISCONNECTED : new ConnectivityState(active, cm.isActiveNetworkMetered());
+    }
+
+    /**
+     * Drop the current registration and state, and replace the event source. Only used by tests.
+     */
+    static void setSource(final Source eventSource) {
+        synchronized (LOCK) {
+            unwatch();
+            PUBLISHER.clear();
+            source = eventSource;
+            pinned = false;
+        }
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    private static ConnectivityState build(final Context context) {
+        synchronized (LOCK) {
+            pinned = true;
+            watch(context);
+            return PUBLISHER.get();
+        }
+    }
+
+    /**
+     * Register for changes and publish the current state, unless already registered. Called with <code>LOCK</code>
+     * held, but there are no listeners to notify yet when it does anything.
+     */
+    private static void watch(final Context context) {
+        if (null != registration) return;
+
+        registration = new Registration(source, context);
+        source.register(context, registration);
+        registration.changed();
+    }
+
+    /**
+     * Drop the system registration and the published state. Called with <code>LOCK</code> held.
+     */
+    private static void unwatch() {
+        if (null == registration) return;
+
+        registration.active = false;
+        source.unregister(registration.context);
+        registration = null;
+
+        // the last state goes stale without a registration; the next read starts over. The version also drops
+        // states that were still being built for the old registration.
+        PUBLISHER.clear(VERSIONS.incrementAndGet());
+    }
+
+    /**
+     * A system registration. Every state gets a version before it is built, so the last state to start building
+     * wins, whichever thread it is built on and however long it takes.
+     */
+    private static final class Registration implements Sink {
+        private final Source events;
+        private final Context context;
+
+        volatile boolean active = true;
+
+        Registration(final Source eventSource, final Context appContext) {
+            events = eventSource;
+            context = appContext;
+        }
+
+        @Override
+        public void changed() {
+            // take the version before checking active: unwatch() clears active before it takes its own
+            final long version = VERSIONS.incrementAndGet();
+
+            if (active)
+                PUBLISHER.publish(events.query(context), version);
+        }
+
+        @Override
+        public void changed(final ConnectivityState state) {
+            final long version = VERSIONS.incrementAndGet();
+
+            if (active)
+                PUBLISHER.publish(state, version);
+        }
+    }
+
+    /**
+     * Where connectivity changes come from: the system, or a fake in tests
+     */
+    interface Source {
+        /**
+         * @param context application context
+         * @return current state
+         */
+        ConnectivityState query(Context context);
+
+        /**
+         * Start telling <code>sink</code> about connectivity changes
+         *
+         * @param context application context
+         * @param sink    receives changes, from any thread
+         */
+        void register(Context context, Sink sink);
+
+        /**
+         * Stop telling the sink passed to {@link #register(Context, Sink)} about changes
+         *
+         * @param context application context
+         */
+        void unregister(Context context);
+    }
+
+    /**
+     * Receives connectivity changes from a {@link Source}
+     */
+    interface Sink {
+        /**
+         * The connectivity may have changed; the state is queried from the source
+         */
+        void changed();
+
+        /**
+         * The connectivity changed to <code>state</code>. Use this where the event itself describes the new state,
+         * e.g. in network callbacks, where querying the active network is racy.
+         *
+         * @param state new state
+         */
+        void changed(ConnectivityState state);
+    }
+}
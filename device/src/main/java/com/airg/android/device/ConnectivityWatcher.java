@@ -0,0 +1,164 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+
+import static android.os.Build.VERSION_CODES.N;
+
+/**
+ * The system's connectivity events: a default network callback from api 24 (Nougat), and the
+ * {@link ConnectivityManager#CONNECTIVITY_ACTION} broadcast below that. {@link ConnectivityState} calls it with its lock
+ * held, and registers at most once at a time.
+ */
+final class ConnectivityWatcher implements ConnectivityState.Source {
+    private BroadcastReceiver receiver;
+    private Object callback; // a ConnectivityManager.NetworkCallback, which doesn't exist below api 21
+
+    @Override
+    public ConnectivityState query(final Context context) {
+        return ConnectivityState.query(context);
+    }
+
+    @Override
+    public void register(final Context context, final ConnectivityState.Sink sink) {
+        if (ApiLevel.atLeast(N)) {
+            callback = registerCallback(context, sink);
+        } else {
+            receiver = new Receiver(sink);
+            context.registerReceiver(receiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        }
+    }
+
+    @Override
+    public void unregister(final Context context) {
+        if (null != callback) {
+            unregisterCallback(context, callback);
+            callback = null;
+        }
+
+        if (null != receiver) {
+            context.unregisterReceiver(receiver);
+            receiver = null;
+        }
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    @TargetApi(N)
+    private static ConnectivityState state(final NetworkCapabilities capabilities) {
+        return new ConnectivityState(true,
+                type(capabilities),
+                !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED));
+    }
+
+    @TargetApi(N)
+    private static Object registerCallback(final Context context, final ConnectivityState.Sink sink) {
+        final ConnectivityManager cm = Connectivity.getConnectivityManager(context);
+        final Callback callback = new Callback(cm, sink);
+        cm.registerDefaultNetworkCallback(callback);
+        return callback;
+    }
+
+    @TargetApi(N)
+    private static void unregisterCallback(final Context context, final Object callback) {
+        Connectivity.getConnectivityManager(context).unregisterNetworkCallback((Callback) callback);
+    }
+
+    @TargetApi(N)
+    private static int type(final NetworkCapabilities capabilities) {
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI))
+            return ConnectivityManager.TYPE_WIFI;
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR))
+            return ConnectivityManager.TYPE_MOBILE;
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET))
+            return ConnectivityManager.TYPE_ETHERNET;
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_BLUETOOTH))
+            return ConnectivityManager.TYPE_BLUETOOTH;
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_VPN))
+            return ConnectivityManager.TYPE_VPN;
+
+        return ConnectivityState.TYPE_NONE;
+    }
+
+    /**
+     * Below api 24 the broadcast only says that something changed, and the active network is queried
+     */
+    private static final class Receiver extends BroadcastReceiver {
+        private final ConnectivityState.Sink sink;
+
+        Receiver(final ConnectivityState.Sink changes) {
+            sink = changes;
+        }
+
+        @Override
+        public void onReceive(final Context context, final Intent intent) {
+            sink.changed();
+        }
+    }
+
+    /**
+     * Builds the state from the callback's network instead of querying the active network, which may not have caught
+     * up with the callback yet. Callbacks arrive one at a time on a system thread.
+     */
+    @TargetApi(N)
+    private static final class Callback extends ConnectivityManager.NetworkCallback {
+        private final ConnectivityManager cm;
+        private final ConnectivityState.Sink sink;
+
+        private Network current;
+
+        Callback(final ConnectivityManager connectivityManager, final ConnectivityState.Sink changes) {
+            cm = connectivityManager;
+            sink = changes;
+        }
+
+        @Override
+        public void onAvailable(final Network network) {
+            current = network;
+
+            // asks for this network specifically, not the active one. From api 26 onCapabilitiesChanged follows anyway
+            final NetworkCapabilities capabilities = cm.getNetworkCapabilities(network);
+
+            if (null != capabilities)
+                sink.changed(state(capabilities));
+        }
+
+        @Override
+        public void onCapabilitiesChanged(final Network network, final NetworkCapabilities capabilities) {
+            current = network;
+            sink.changed(state(capabilities));
+        }
+
+        @Override
+        public void onLost(final Network network) {
+            // a replaced default network is not reported lost, but don't count on it
+            if (!network.equals(current))
+                return;
+
+            current = null;
+            sink.changed(ConnectivityState.DISCONNECTED);
+        }
+    }
+}
@@ -18,24 +18,15 @@
 
 package com.airg.android.device;
 
-import android.annotation.SuppressLint;
-import android.annotation.TargetApi;
 import android.content.Context;
-import android.content.pm.FeatureInfo;
 import android.content.pm.PackageManager;
-import android.content.res.Configuration;
-import android.provider.Settings;
 import android.support.annotation.RequiresApi;
 import android.util.DisplayMetrics;
 import android.view.View;
-import android.view.WindowManager;
 
+import java.io.File;
 import java.util.Locale;
 
-import lombok.Synchronized;
-
-import static android.os.Build.VERSION_CODES.HONEYCOMB_MR2;
-import static android.os.Build.VERSION_CODES.JELLY_BEAN_MR1;
 import static android.os.Build.VERSION_CODES.M;
 import static android.os.Build.VERSION_CODES.N;
 
@@ -46,7 +37,7 @@ import static android.os.Build.VERSION_CODES.N;
 @SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
 public class Device {
     /**
-     * Number of available CPUs
+     * Number of available CPUs. See {@link #getCpuTopology()} for which of them are online and how fast they are.
      */
     public static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
 
@@ -64,26 +55,218 @@ public class Device {
      */
     public static final int SIZE_HEIGHT = 1;
 
-    private static Integer MCC = null;
-    private static Integer MNC = null;
+    private static final Object MEMORY_LOCK = new Object();
+    private static MemoryInfoReader memoryInfoReader;
 
     private final Context context;
-    public final String hardwareId;
 
+    /**
+     * @param c active context; the hardware id and system features start loading in the background, see
+     *          {@link #preload(Context)}
+     */
     public Device(final Context c) {
         context = c;
-        hardwareId = hardwareId(context);
+        preload(c);
+    }
+
+    /**
+     * Load the hardware id and system features on a low priority background thread, so the first
+     * {@link #hardwareId(Context)} or {@link DeviceFeatures#get(Context)} call doesn't have to. Creating a
+     * {@link Device} does this automatically; call it directly to start even earlier, e.g. from
+     * {@link android.app.Application#onCreate()}. A main thread call that comes before the preload finished doesn't
+     * wait for it: it asks the system directly, without disk access. Does nothing if they are already loaded or
+     * loading.
+     *
+     * @param context active context
+     */
+    public static void preload(final Context context) {
+        CapabilityCache.preload(context);
+    }
+
+    /**
+     * Get the CPU cores and clusters of the device (e.g. the big and LITTLE cores), read from sysfs once per process.
+     * Useful to size worker pools for compute heavy work by the fast cores rather than {@link #CPU_COUNT}.
+     *
+     * @return cpu topology
+     */
+    public static CpuTopology getCpuTopology() {
+        return CpuTopology.get();
+    }
+
+    /**
+     * Create a thread pool for compute heavy work, sized from the {@link #getCpuTopology() cpu topology}. See
+     * {@link WorkerPools} for how pools are sized and what happens when their queue is full.
+     *
+     * @param name executor name, used as the thread name prefix
+     * @return new executor; shut it down when no longer needed
+     */
+    public static InstrumentedExecutor newCpuBoundExecutor(final String name) {
+        return WorkerPools.cpuBound(name);
+    }
+
+    /**
+     * Create a thread pool for blocking I/O, sized from the {@link #getCpuTopology() cpu topology}
+     *
+     * @param name executor name, used as the thread name prefix
+     * @return new executor; shut it down when no longer needed
+     */
+    public static InstrumentedExecutor newIoBoundExecutor(final String name) {
+        return WorkerPools.ioBound(name);
+    }
+
+    /**
+     * Create a small, low priority thread pool for deferrable work
+     *
+     * @param name executor name, used as the thread name prefix
+     * @return new executor; shut it down when no longer needed
+     */
+    public static InstrumentedExecutor newBackgroundExecutor(final String name) {
+        return WorkerPools.background(name);
+    }
+
+    /**
+     * Read the current system and process memory figures from procfs into <code>out</code>. Nothing is allocated once
+     * the shared reader is set up, so this is cheap enough to call often; use {@link #newMemorySampler(long,
+     * MemorySampler.Listener)} to sample on a background thread instead.
+     *
+     * @param out memory info to overwrite
+     * @return <code>out</code>
+     */
+    public static MemoryInfo getMemoryInfo(final MemoryInfo out) {
+        synchronized (MEMORY_LOCK) {
+            if (null == memoryInfoReader)
+                memoryInfoReader = new MemoryInfoReader();
+
+            memoryInfoReader.read(out);
+        }
+
+        return out;
+    }
+
+    /**
+     * Create a sampler that reads memory figures every <code>intervalMillis</code> on its own thread. Call
+     * {@link MemorySampler#start()} to begin and {@link MemorySampler#close()} when done.
+     *
+     * @param intervalMillis time between samples in milliseconds
+     * @param listener       gets every sample on the sampler thread, may be <code>null</code>
+     * @return new sampler
+     */
+    public static MemorySampler newMemorySampler(final long intervalMillis, final MemorySampler.Listener listener) {
+        return new MemorySampler(new MemoryInfoReader(), intervalMillis, listener);
+    }
+
+    /**
+     * Create a sampler of device and process CPU load. Call {@link CpuUsageSampler#start()} to sample every
+     * <code>intervalMillis</code> on a background thread, or {@link CpuUsageSampler#sample()} to sample on demand.
+     * Close it when done.
+     *
+     * @param intervalMillis time between samples in milliseconds; 250 is cheap enough
+     * @param listener       called after every sample on the sampler thread, may be <code>null</code>
+     * @return new sampler
+     */
+    public static CpuUsageSampler newCpuUsageSampler(final long intervalMillis,
+                                                     final CpuUsageSampler.Listener listener) {
+        return new CpuUsageSampler(new File(CpuUsageSampler.PROC_STAT), new File(CpuUsageSampler.PROC_SELF_STAT),
+                intervalMillis, CpuUsageSampler.DEFAULT_SMOOTHING, listener);
+    }
+
+    /**
+     * Get the device's performance tier, one of {@link PerformanceClassifier#TIER_LOW},
+     * {@link PerformanceClassifier#TIER_MID} or {@link PerformanceClassifier#TIER_HIGH}. It is computed from the cpu
+     * topology, total RAM, memory class and screen density, and stored, so it stays the same until the next system
+     * update.
+     *
+     * @param context active context
+     * @return performance tier
+     */
+    public static int performanceTier(final Context context) {
+        return PerformanceTierCache.get(context, false);
+    }
+
+    /**
+     * See {@link #performanceTier(Context)}
+     */
+    public int performanceTier() {
+        return performanceTier(context);
+    }
+
+    /**
+     * Like {@link #performanceTier(Context)}, but when <code>calibrate</code> is set the tier also takes a short cpu
+     * benchmark ({@link PerformanceClassifier#calibrate()}) into account. The benchmark runs on the calling thread the
+     * first time only, so don't call this on the main thread. The calibrated tier is stored apart from the plain one,
+     * so calling this never changes what {@link #performanceTier(Context)} returns.
+     *
+     * @param context   active context
+     * @param calibrate include the cpu benchmark
+     * @return performance tier
+     */
+    public static int performanceTier(final Context context, final boolean calibrate) {
+        return PerformanceTierCache.get(context, calibrate);
+    }
+
+    /**
+     * See {@link #performanceTier(Context, boolean)}
+     */
+    public int performanceTier(final boolean calibrate) {
+        return performanceTier(context, calibrate);
     }
 
     /**
-     * Get the unique Android ID value. Please do not use this method to obtain an advertising id.
+     * Register a cache to be trimmed when the system runs low on memory. Caches are trimmed by priority, lowest first,
+     * and in proportion to the trim level; see {@link TrimRegistry}. The first call registers for the system's trim
+     * callbacks.
+     *
+     * @param context  active context
+     * @param cache    cache to trim
+     * @param priority one of the <code>TrimRegistry.PRIORITY_*</code> constants, or any value in between
+     */
+    public static void registerTrimmable(final Context context,
+                                         final TrimRegistry.Trimmable cache,
+                                         final int priority) {
+        TrimRegistry.get().register(cache, priority);
+        MemoryTrimmer.install(context);
+    }
+
+    /**
+     * @param cache cache registered with {@link #registerTrimmable(Context, TrimRegistry.Trimmable, int)}
+     * @return <code>true</code> if the cache was registered
+     */
+    public static boolean unregisterTrimmable(final TrimRegistry.Trimmable cache) {
+        return TrimRegistry.get().unregister(cache);
+    }
+
+    /**
+     * @return bytes released by registered caches on memory trims since the process started
+     */
+    public static long getTrimmedBytes() {
+        return TrimRegistry.get().getReclaimedBytes();
+    }
+
+    /**
+     * Get the unique Android ID value. It is looked up once per process, on first use or by {@link #preload(Context)},
+     * and cached across launches, see {@link DeviceFeatures#get(Context)}. Please do not use this method to obtain an
+     * advertising id.
      *
      * @param context to access the device settings
      * @return The android ID
      */
-    @SuppressLint("HardwareIds")
     public static String hardwareId(final Context context) {
-        return Settings.Secure.getString(context.getContentResolver(), Settings.Secure.ANDROID_ID);
+        return CapabilityCache.hardwareId(context);
+    }
+
+    /**
+     * See {@link #hardwareId(Context)}
+     */
+    public String hardwareId() {
+        return hardwareId(context);
+    }
+
+    /**
+     * @return number of {@link #hardwareId(Context)} calls in this process that didn't need a
+     * {@link android.provider.Settings.Secure} query
+     */
+    public static long getHardwareIdQueriesAvoided() {
+        return CapabilityCache.hardwareIdQueriesAvoided();
     }
 
     /**
@@ -130,7 +313,7 @@ public class Device {
     }
 
     /**
-     * Queries for a specific system feature
+     * Queries for a specific system feature. Answered from the {@link DeviceFeatures} snapshot.
      *
      * @param context active context
      * @param feature name of the desired feature (e.g. {@link PackageManager#FEATURE_BLUETOOTH},
@@ -138,7 +321,7 @@ public class Device {
      * @return true if the feature is supported and false otherwise
      */
     public static boolean hasSystemFeature(final Context context, final String feature) {
-        return context.getPackageManager().hasSystemFeature(feature);
+        return DeviceFeatures.get(context).has(feature);
     }
 
     /**
@@ -160,7 +343,7 @@ public class Device {
      */
     @RequiresApi(api = N)
     public static boolean hasSystemFeature(final Context context, final String feature, final int version) {
-        return context.getPackageManager().hasSystemFeature(feature, version);
+        return DeviceFeatures.get(context).has(feature, version);
     }
 
     /**
@@ -180,24 +363,13 @@ public class Device {
      * @param feature feature name to query
      * @return Available feature version, if the feature is supported; {@link #VERSION_NONE} otherwise.
      */
-    @TargetApi(N)
     public static int getSystemFeatureVersion(final Context context, final String feature) {
-        if (ApiLevel.below(N)) // versions are not supported here
-            return VERSION_NONE;
-
-        final FeatureInfo[] features = context.getPackageManager().getSystemAvailableFeatures();
-
-        for (final FeatureInfo fi : features)
-            if (fi.name.equals(feature))
-                return fi.version;
-
-        return VERSION_NONE;
+        return DeviceFeatures.get(context).getVersion(feature);
     }
 
     /**
      * See {@link #getSystemFeatureVersion(Context, String)}
      */
-    @TargetApi(N)
     public int getSystemFeatureVersion(final String feature) {
         return getSystemFeatureVersion(context, feature);
     }
@@ -211,16 +383,7 @@ public class Device {
      * @throws IllegalArgumentException if the <code>features</code> parameter is <code>null</code> or empty
      */
     public static boolean hasAllSystemFeatures(final Context context, final String... features) {
-        if (null == features || features.length == 0)
-            throw new IllegalArgumentException("No features specified");
-
-        final PackageManager pm = context.getPackageManager();
-
-        for (final String feature : features)
-            if (!pm.hasSystemFeature(feature))
-                return false;
-
-        return true;
+        return DeviceFeatures.get(context).hasAll(features);
     }
 
     /**
@@ -240,16 +403,7 @@ public class Device {
      * @throws IllegalArgumentException if the <code>features</code> parameter is <code>null</code> or empty
      */
     public static boolean hasAnySystemFeatures(final Context context, final String... features) {
-        if (null == features || features.length == 0)
-            throw new IllegalArgumentException("No features specified");
-
-        final PackageManager pm = context.getPackageManager();
-
-        for (final String feature : features)
-            if (pm.hasSystemFeature(feature))
-                return true;
-
-        return true;
+        return DeviceFeatures.get(context).hasAny(features);
     }
 
     /**
@@ -261,16 +415,15 @@ public class Device {
 
     /**
      * Gets the current device locale
+     * <p>
+     * Read from the application's configuration, see {@link DeviceConfigSnapshot#get(Context)}; use
+     * {@link DeviceConfigSnapshot#of(Context)} for a context with its own configuration.
      *
      * @param context Context through which to access app resources
      * @return The current locale for the device
      */
-    @TargetApi(N)
     public static Locale getLocale(final Context context) {
-        //noinspection deprecation
-        return ApiLevel.atLeast(N)
-                ? context.getResources().getConfiguration().getLocales().get(0)
-                : context.getResources().getConfiguration().locale;
+        return DeviceConfigSnapshot.get(context).getLocale();
     }
 
     /**
@@ -283,16 +436,16 @@ public class Device {
     /**
      * Current layout direction of the device. This method returns {@link View#LAYOUT_DIRECTION_LTR}
      * (<code>0</code>) if the runtime SDK version is below JELLY_BEAN_MR1 (<code>android-17</code>)
+     * <p>
+     * Read from the application's configuration, see {@link DeviceConfigSnapshot#get(Context)}; use
+     * {@link DeviceConfigSnapshot#of(Context)} for a context with its own configuration.
      *
      * @param context context through which to access configuration
      * @return {@link View#LAYOUT_DIRECTION_LTR} if the layout direction is left-to-right
      * (or api &lt; android-17), {@link View#LAYOUT_DIRECTION_RTL} otherwise.
      */
-    @TargetApi(JELLY_BEAN_MR1)
     public static int getLayoutDirection(final Context context) {
-        return ApiLevel.atLeast(JELLY_BEAN_MR1)
-                ? context.getResources().getConfiguration().getLayoutDirection()
-                : 0;
+        return DeviceConfigSnapshot.get(context).getLayoutDirection();
     }
 
     /**
@@ -304,12 +457,15 @@ public class Device {
 
     /**
      * Get the screen orientation
+     * <p>
+     * Read from the application's configuration, see {@link DeviceConfigSnapshot#get(Context)}; use
+     * {@link DeviceConfigSnapshot#of(Context)} for a context with its own configuration.
      *
      * @param context context through which to access configuration
      * @return current screen orientation, either {@link android.content.res.Configuration#ORIENTATION_LANDSCAPE} or {@link android.content.res.Configuration#ORIENTATION_PORTRAIT}
      */
     public static int getScreenOrientation(final Context context) {
-        return context.getResources().getConfiguration().orientation;
+        return DeviceConfigSnapshot.get(context).getOrientation();
     }
 
     /**
@@ -320,16 +476,16 @@ public class Device {
     }
 
     /**
-     * Get the {@link DisplayMetrics} for the default display
+     * Get the {@link DisplayMetrics} for the default display, as seen by <code>context</code>. This is a copy of the
+     * {@link ScreenSnapshot#get(Context) ScreenSnapshot}'s metrics, so callers are free to modify it. The snapshot is
+     * cached for the application context only; other contexts (e.g. an activity in multi-window mode) are read from
+     * their own window manager on every call.
      *
      * @param context Context through which to access configuration
      * @return {@link DisplayMetrics} for the default display
      */
     public static DisplayMetrics getDefaultDisplayMetrics(final Context context) {
-        final WindowManager wm = getSystemService(context, Context.WINDOW_SERVICE);
-        final DisplayMetrics dm = new DisplayMetrics();
-        wm.getDefaultDisplay().getMetrics(dm);
-        return dm;
+        return ScreenSnapshot.get(context).copyMetrics(new DisplayMetrics());
     }
 
     /**
@@ -346,8 +502,8 @@ public class Device {
      * @return the screen size in pixels as an array of <code>int</code> with the width at index {@link #SIZE_WIDTH} and height at {@link #SIZE_HEIGHT}
      */
     public static int[] getScreenSize(final Context context) {
-        final DisplayMetrics dm = getDefaultDisplayMetrics(context);
-        return new int[]{dm.widthPixels, dm.heightPixels};
+        final ScreenSnapshot screen = ScreenSnapshot.get(context);
+        return new int[]{screen.getWidthPx(), screen.getHeightPx()};
     }
 
     /**
@@ -364,72 +520,177 @@ public class Device {
      * @return the screen size in dp as an array of <code>int</code> with the width at index {@link #SIZE_WIDTH} and height at {@link #SIZE_HEIGHT}
      */
     public static int[] getScreenSizeDP(final Context context) {
-        return ApiLevel.atLeast(HONEYCOMB_MR2)
-                ? getScreenSizeDP_HoneycombMR2(context)
-                : getScreenSizeDPLegacy(context);
+        final ScreenSnapshot screen = ScreenSnapshot.get(context);
+        return new int[]{screen.getWidthDp(), screen.getHeightDp()};
+    }
+
+    /**
+     * See {@link #getScreenSizeDP(Context)}
+     */
+    public int[] getScreenSizeDP() {
+        return getScreenSizeDP(context);
+    }
+
+    /**
+     * Screen width in pixels, without allocating for the application context. See {@link ScreenSnapshot#get(Context)}.
+     *
+     * @param context Context through which to access configuration
+     * @return screen width in pixels
+     */
+    public static int screenWidthPx(final Context context) {
+        return ScreenSnapshot.get(context).getWidthPx();
+    }
+
+    /**
+     * See {@link #screenWidthPx(Context)}
+     */
+    public int screenWidthPx() {
+        return screenWidthPx(context);
+    }
+
+    /**
+     * Screen height in pixels, without allocating for the application context. See {@link ScreenSnapshot#get(Context)}.
+     *
+     * @param context Context through which to access configuration
+     * @return screen height in pixels
+     */
+    public static int screenHeightPx(final Context context) {
+        return ScreenSnapshot.get(context).getHeightPx();
+    }
+
+    /**
+     * See {@link #screenHeightPx(Context)}
+     */
+    public int screenHeightPx() {
+        return screenHeightPx(context);
+    }
+
+    /**
+     * Screen width in dp, without allocating for the application context. See {@link #getScreenSizeDP(Context)}.
+     *
+     * @param context Context through which to access configuration
+     * @return screen width in dp
+     */
+    public static int screenWidthDp(final Context context) {
+        return ScreenSnapshot.get(context).getWidthDp();
     }
 
+    /**
+     * See {@link #screenWidthDp(Context)}
+     */
+    public int screenWidthDp() {
+        return screenWidthDp(context);
+    }
+
+    /**
+     * Screen height in dp, without allocating for the application context. See {@link #getScreenSizeDP(Context)}.
+     *
+     * @param context Context through which to access configuration
+     * @return screen height in dp
+     */
+    public static int screenHeightDp(final Context context) {
+        return ScreenSnapshot.get(context).getHeightDp();
+    }
+
+    /**
+     * See {@link #screenHeightDp(Context)}
+     */
+    public int screenHeightDp() {
+        return screenHeightDp(context);
+    }
+
+    /**
+     * Screen size in pixels, packed into a <code>long</code> without allocating for the application context (see
+     * {@link ScreenSnapshot#get(Context)}). Use {@link ScreenSnapshot#unpackWidth(long)} and
+     * {@link ScreenSnapshot#unpackHeight(long)} to read it.
+     *
+     * @param context Context through which to access configuration
+     * @return packed screen size in pixels
+     */
+    public static long screenSizePx(final Context context) {
+        return ScreenSnapshot.get(context).getSizePx();
+    }
+
+    /**
+     * See {@link #screenSizePx(Context)}
+     */
+    public long screenSizePx() {
+        return screenSizePx(context);
+    }
 
     /**
-     * Gets the IMSI MCC (mobile country code) for the current device. Since this value cannot
-     * change without a reboot, it is cached so there's no performance penalty for calling this
-     * method repeatedly.
+     * Screen size in dp, packed into a <code>long</code> without allocating for the application context. See
+     * {@link #screenSizePx(Context)}.
+     *
+     * @param context Context through which to access configuration
+     * @return packed screen size in dp
+     */
+    public static long screenSizeDp(final Context context) {
+        return ScreenSnapshot.get(context).getSizeDp();
+    }
+
+    /**
+     * See {@link #screenSizeDp(Context)}
+     */
+    public long screenSizeDp() {
+        return screenSizeDp(context);
+    }
+
+
+    /**
+     * Gets the IMSI MCC (mobile country code) for the current device. The value is read from the current
+     * {@link DeviceConfigSnapshot}, so it follows SIM changes without any locking.
      *
      * @param context Context through which to access configuration
      * @return mcc
      */
-    @Synchronized
     public static int getMobileCountryCode(final Context context) {
-        if (null == MCC)
-            MCC = context.getResources().getConfiguration().mcc;
-
-        return MCC;
+        return DeviceConfigSnapshot.get(context).getMcc();
     }
 
     /**
      * See {@link #getMobileCountryCode(Context)}
      */
-    @Synchronized
     public int getMobileCountryCode() {
         return getMobileCountryCode(context);
     }
 
     /**
-     * Gets the IMSI MNC (mobile network code) for the current device. Since this value cannot
-     * change without a reboot, it is cached so there's no performance penalty for calling this
-     * method repeatedly.
+     * Gets the IMSI MNC (mobile network code) for the current device. The value is read from the current
+     * {@link DeviceConfigSnapshot}, so it follows SIM changes without any locking.
      *
      * @param context Context through which to access configuration
      * @return mnc
      */
-    @Synchronized
     public static int getMobileNetworkCode(final Context context) {
-        if (null == MNC)
-            MNC = context.getResources().getConfiguration().mnc;
-
-        return MNC;
+        return DeviceConfigSnapshot.get(context).getMnc();
     }
 
     /**
      * See {@link #getMobileNetworkCode(Context)}
      */
-    @Synchronized
     public int getMobileNetworkCode() {
         return getMobileNetworkCode(context);
     }
 
-    /* ----------------- Private helpers ----------------- */
-    private static int[] getScreenSizeDPLegacy(final Context context) {
-        final UnitConverter converter = new UnitConverter(context);
-        return new int[]{
-                (int) converter.px2dp(converter.displayMetrics.widthPixels),
-                (int) converter.px2dp(converter.displayMetrics.heightPixels)
-        };
+    /**
+     * Get the current configuration snapshot. Subscribe through
+     * {@link DeviceConfigSnapshot#subscribe(Context, SnapshotPublisher.Listener)} to be told about changes.
+     * <p>
+     * Read from the application's configuration, see {@link DeviceConfigSnapshot#get(Context)}; use
+     * {@link DeviceConfigSnapshot#of(Context)} for a context with its own configuration.
+     *
+     * @param context Context through which to access configuration
+     * @return current configuration snapshot
+     */
+    public static DeviceConfigSnapshot getConfigSnapshot(final Context context) {
+        return DeviceConfigSnapshot.get(context);
     }
 
-    @TargetApi(HONEYCOMB_MR2)
-    private static int[] getScreenSizeDP_HoneycombMR2(final Context context) {
-        final Configuration config = context.getResources().getConfiguration();
-        return new int[]{config.screenWidthDp, config.screenHeightDp};
+    /**
+     * See {@link #getConfigSnapshot(Context)}
+     */
+    public DeviceConfigSnapshot getConfigSnapshot() {
+        return getConfigSnapshot(context);
     }
 }
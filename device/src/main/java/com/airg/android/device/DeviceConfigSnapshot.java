@@ -0,0 +1,281 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.view.View;
+
+import java.util.Locale;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import static android.os.Build.VERSION_CODES.HONEYCOMB_MR2;
+import static android.os.Build.VERSION_CODES.JELLY_BEAN_MR1;
+import static android.os.Build.VERSION_CODES.N;
+
+/**
+ * An immutable snapshot of the parts of the {@link Configuration} that {@link Device} reports. The application's
+ * snapshot is rebuilt by a single {@link ComponentCallbacks} registration on every configuration change and published
+ * through a volatile reference, so reading it never takes a lock or asks the resources for their configuration.
+ * Listeners added through {@link #subscribe(Context, SnapshotPublisher.Listener)} are told which fields changed, as a
+ * bit set of the <code>CHANGED_*</code> constants.
+ */
+@Getter
+@EqualsAndHashCode
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class DeviceConfigSnapshot {
+    /**
+     * {@link #getLocale()} changed
+     */
+    public static final int CHANGED_LOCALE = 1;
+    /**
+     * {@link #getLayoutDirection()} changed
+     */
+    public static final int CHANGED_LAYOUT_DIRECTION = 1 << 1;
+    /**
+     * {@link #getOrientation()} changed
+     */
+    public static final int CHANGED_ORIENTATION = 1 << 2;
+    /**
+     * {@link #getScreenWidthDp()} or {@link #getScreenHeightDp()} changed
+     */
+    public static final int CHANGED_SCREEN_SIZE = 1 << 3;
+    /**
+     * {@link #getDensityDpi()} changed
+     */
+    public static final int CHANGED_DENSITY = 1 << 4;
+    /**
+     * {@link #getFontScale()} changed
+     */
+    public static final int CHANGED_FONT_SCALE = 1 << 5;
+    /**
+     * {@link #getMcc()} changed
+     */
+    public static final int CHANGED_MCC = 1 << 6;
+    /**
+     * {@link #getMnc()} changed
+     */
+    public static final int CHANGED_MNC = 1 << 7;
+
+    private static final Object LOCK = new Object();
+
+    private static final SnapshotPublisher<DeviceConfigSnapshot> PUBLISHER =
+            new SnapshotPublisher<>(new SnapshotPublisher.Diff<DeviceConfigSnapshot>() {
+                @Override
+                public int changes(final DeviceConfigSnapshot previous, final DeviceConfigSnapshot current) {
+                    return current.changes(previous);
+                }
+            });
+
+    private static boolean watching;
+
+    /**
+     * Primary locale
+     */
+    private final Locale locale;
+
+    /**
+     * {@link View#LAYOUT_DIRECTION_LTR} or {@link View#LAYOUT_DIRECTION_RTL}. Always LTR (<code>0</code>) below
+     * JELLY_BEAN_MR1 (<code>android-17</code>).
+     */
+    private final int layoutDirection;
+
+    /**
+     * Either {@link Configuration#ORIENTATION_LANDSCAPE} or {@link Configuration#ORIENTATION_PORTRAIT}
+     */
+    private final int orientation;
+
+    /**
+     * Available screen width in dp. <code>0</code> below HONEYCOMB_MR2 (<code>android-13</code>).
+     */
+    private final int screenWidthDp;
+
+    /**
+     * Available screen height in dp. <code>0</code> below HONEYCOMB_MR2 (<code>android-13</code>).
+     */
+    private final int screenHeightDp;
+
+    /**
+     * Screen density. <code>0</code> below JELLY_BEAN_MR1 (<code>android-17</code>).
+     */
+    private final int densityDpi;
+
+    /**
+     * User's font scaling factor
+     */
+    private final float fontScale;
+
+    /**
+     * IMSI MCC (mobile country code); <code>0</code> if undefined
+     */
+    private final int mcc;
+
+    /**
+     * IMSI MNC (mobile network code); <code>0</code> if undefined
+     */
+    private final int mnc;
+
+    DeviceConfigSnapshot(final Configuration config) {
+        locale = locale(config);
+        layoutDirection = ApiLevel.atLeast(JELLY_BEAN_MR1) ? layoutDirection(config) : View.LAYOUT_DIRECTION_LTR;
+        orientation = config.orientation;
+
+        final boolean sizes = ApiLevel.atLeast(HONEYCOMB_MR2);
+        screenWidthDp = sizes ? config.screenWidthDp : 0;
+        screenHeightDp = sizes ? config.screenHeightDp : 0;
+
+        densityDpi = ApiLevel.atLeast(JELLY_BEAN_MR1) ? densityDpi(config) : 0;
+        fontScale = config.fontScale;
+        mcc = config.mcc;
+        mnc = config.mnc;
+    }
+
+    /**
+     * Get the application's current configuration snapshot. The first call registers for configuration changes.
+     * <p>
+     * The snapshot always describes the <i>application's</i> configuration, whatever <code>context</code> is passed.
+     * Contexts with their own configuration (e.g. an activity in multi-window mode, or one created through
+     * {@link Context#createConfigurationContext(Configuration)} with a different locale) may differ from it; use
+     * {@link #of(Context)} for those.
+     *
+     * @param context active context
+     * @return current configuration snapshot
+     */
+    public static DeviceConfigSnapshot get(final Context context) {
+        final DeviceConfigSnapshot snapshot = PUBLISHER.get();
+        return null == snapshot ? build(context.getApplicationContext()) : snapshot;
+    }
+
+    /**
+     * Build a snapshot of <code>context</code>'s own configuration. Unlike {@link #get(Context)} this isn't cached and
+     * honours per-context configuration overrides.
+     *
+     * @param context context whose configuration to describe
+     * @return new snapshot
+     */
+    public static DeviceConfigSnapshot of(final Context context) {
+        return new DeviceConfigSnapshot(context.getResources().getConfiguration());
+    }
+
+    /**
+     * Be told about configuration changes that affect the snapshot. Listeners are called on the main thread with the
+     * previous and the new snapshot, and the set of <code>CHANGED_*</code> fields. Listeners are not told about
+     * changes that don't touch any of the snapshot's fields.
+     *
+     * @param context  active context
+     * @param listener listener to add
+     */
+    public static void subscribe(final Context context, final SnapshotPublisher.Listener<DeviceConfigSnapshot> listener) {
+        get(context);
+        PUBLISHER.subscribe(listener);
+    }
+
+    /**
+     * @param listener listener added through {@link #subscribe(Context, SnapshotPublisher.Listener)}
+     */
+    public static void unsubscribe(final SnapshotPublisher.Listener<DeviceConfigSnapshot> listener) {
+        PUBLISHER.unsubscribe(listener);
+    }
+
+    /**
+     * Compare to an older snapshot
+     *
+     * @param previous snapshot to compare to
+     * @return bit set of <code>CHANGED_*</code> fields that differ between the snapshots
+     */
+    public int changes(final DeviceConfigSnapshot previous) {
+        int changes = 0;
+
+        if (null == locale ? null != previous.locale : !locale.equals(previous.locale))
+            changes |= CHANGED_LOCALE;
+        if (layoutDirection != previous.layoutDirection)
+            changes |= CHANGED_LAYOUT_DIRECTION;
+        if (orientation != previous.orientation)
+            changes |= CHANGED_ORIENTATION;
+        if (screenWidthDp != previous.screenWidthDp || screenHeightDp != previous.screenHeightDp)
+            changes |= CHANGED_SCREEN_SIZE;
+        if (densityDpi != previous.densityDpi)
+            changes |= CHANGED_DENSITY;
+        if (Float.compare(fontScale, previous.fontScale) != 0)
+            changes |= CHANGED_FONT_SCALE;
+        if (mcc != previous.mcc)
+            changes |= CHANGED_MCC;
+        if (mnc != previous.mnc)
+            changes |= CHANGED_MNC;
+
+        return changes;
+    }
+
+    /**
+     * Publish a snapshot of <code>config</code>. Only used by the configuration watcher and tests.
+     */
+    static int publish(final Configuration config) {
+        return PUBLISHER.publish(new DeviceConfigSnapshot(config));
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    private static DeviceConfigSnapshot build(final Context context) {
+        synchronized (LOCK) {
+            if (!watching) {
+                context.registerComponentCallbacks(new Watcher());
+                watching = true;
+            }
+
+            // another thread may have published while this one waited
+            final DeviceConfigSnapshot snapshot = PUBLISHER.get();
+
+            if (null != snapshot)
+                return snapshot;
+
+            publish(context.getResources().getConfiguration());
+            return PUBLISHER.get();
+        }
+    }
+
+    @TargetApi(N)
+    private static Locale locale(final Configuration config) {
+        //noinspection deprecation
+        return ApiLevel.atLeast(N) ? config.getLocales().get(0) : config.locale;
+    }
+
+    @TargetApi(JELLY_BEAN_MR1)
+    private static int layoutDirection(final Configuration config) {
+        return config.getLayoutDirection();
+    }
+
+    @TargetApi(JELLY_BEAN_MR1)
+    private static int densityDpi(final Configuration config) {
+        return config.densityDpi;
+    }
+
+    private static final class Watcher implements ComponentCallbacks {
+        @Override
+        public void onConfigurationChanged(final Configuration newConfig) {
+            publish(newConfig);
+        }
+
+        @Override
+        public void onLowMemory() {
+            // nothing to release
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.pm.FeatureInfo;
+import android.content.pm.PackageManager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.EqualsAndHashCode;
+
+import static android.os.Build.VERSION_CODES.N;
+
+/**
+ * An immutable snapshot of the device's system features, built from a single
+ * {@link PackageManager#getSystemAvailableFeatures()} call. System features can't change while the process is running,
+ * so every query after the first is answered from memory instead of a {@link PackageManager} binder call. Commonly
+ * queried features also have an int id (e.g. {@link #CAMERA_FRONT}) that is answered from a bit set. The snapshot is
+ * also kept across launches, see {@link #get(Context)}.
+ */
+@EqualsAndHashCode(of = {"versions", "versioned"})
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class DeviceFeatures {
+    /**
+     * {@link PackageManager#FEATURE_CAMERA}
+     */
+    public static final int CAMERA = 0;
+    /**
+     * {@link PackageManager#FEATURE_CAMERA_ANY}
+     */
+    public static final int CAMERA_ANY = 1;
+    /**
+     * {@link PackageManager#FEATURE_CAMERA_FRONT}
+     */
+    public static final int CAMERA_FRONT = 2;
+    /**
+     * {@link PackageManager#FEATURE_CAMERA_FLASH}
+     */
+    public static final int CAMERA_FLASH = 3;
+    /**
+     * {@link PackageManager#FEATURE_CAMERA_AUTOFOCUS}
+     */
+    public static final int CAMERA_AUTOFOCUS = 4;
+    /**
+     * {@link PackageManager#FEATURE_CAMERA_CAPABILITY_RAW}
+     */
+    public static final int CAMERA_CAPABILITY_RAW = 5;
+    /**
+     * {@link PackageManager#FEATURE_BLUETOOTH}
+     */
+    public static final int BLUETOOTH = 6;
+    /**
+     * {@link PackageManager#FEATURE_BLUETOOTH_LE}
+     */
+    public static final int BLUETOOTH_LE = 7;
+    /**
+     * {@link PackageManager#FEATURE_WIFI}
+     */
+    public static final int WIFI = 8;
+    /**
+     * {@link PackageManager#FEATURE_TELEPHONY}
+     */
+    public static final int TELEPHONY = 9;
+    /**
+     * {@link PackageManager#FEATURE_NFC}
+     */
+    public static final int NFC = 10;
+    /**
+     * {@link PackageManager#FEATURE_LOCATION_GPS}
+     */
+    public static final int LOCATION_GPS = 11;
+    /**
+     * {@link PackageManager#FEATURE_MICROPHONE}
+     */
+    public static final int MICROPHONE = 12;
+    /**
+     * {@link PackageManager#FEATURE_TOUCHSCREEN}
+     */
+    public static final int TOUCHSCREEN = 13;
+    /**
+     * {@link PackageManager#FEATURE_SENSOR_ACCELEROMETER}
+     */
+    public static final int SENSOR_ACCELEROMETER = 14;
+    /**
+     * {@link PackageManager#FEATURE_SENSOR_GYROSCOPE}
+     */
+    public static final int SENSOR_GYROSCOPE = 15;
+    /**
+     * {@link PackageManager#FEATURE_FINGERPRINT}
+     */
+    public static final int FINGERPRINT = 16;
+    /**
+     * {@link PackageManager#FEATURE_LEANBACK}
+     */
+    public static final int LEANBACK = 17;
+
+    // indexed by the int ids above; the strings are compile time constants, so this is safe on any API level
+    private static final String[] KNOWN = {
+            PackageManager.FEATURE_CAMERA,
+            PackageManager.FEATURE_CAMERA_ANY,
+            PackageManager.FEATURE_CAMERA_FRONT,
+            PackageManager.FEATURE_CAMERA_FLASH,
+            PackageManager.FEATURE_CAMERA_AUTOFOCUS,
+            PackageManager.FEATURE_CAMERA_CAPABILITY_RAW,
+            PackageManager.FEATURE_BLUETOOTH,
+            PackageManager.FEATURE_BLUETOOTH_LE,
+            PackageManager.FEATURE_WIFI,
+            PackageManager.FEATURE_TELEPHONY,
+            PackageManager.FEATURE_NFC,
+            PackageManager.FEATURE_LOCATION_GPS,
+            PackageManager.FEATURE_MICROPHONE,
+            PackageManager.FEATURE_TOUCHSCREEN,
+            PackageManager.FEATURE_SENSOR_ACCELEROMETER,
+            PackageManager.FEATURE_SENSOR_GYROSCOPE,
+            PackageManager.FEATURE_FINGERPRINT,
+            PackageManager.FEATURE_LEANBACK
+    };
+
+    private final Map<String, Integer> versions;
+    private final long known;
+    private final boolean versioned;
+
+    DeviceFeatures(final FeatureInfo[] features, final boolean withVersions) {
+        this(versions(features, withVersions), withVersions);
+    }
+
+    DeviceFeatures(final Map<String, Integer> featureVersions, final boolean withVersions) {
+        versioned = withVersions;
+        versions = featureVersions;
+
+        long bits = 0;
+
+        for (int i = 0; i < KNOWN.length; i++)
+            if (versions.containsKey(KNOWN[i]))
+                bits |= 1L << i;
+
+        known = bits;
+    }
+
+    /**
+     * Get the snapshot of the device's system features. The first call in a process loads it, together with the
+     * hardware id, from a small cache file in {@link Context#getCacheDir()}. The file is used only if it was written on
+     * the same system build ({@link android.os.Build#FINGERPRINT}) and app install. Without a valid cached copy, or if
+     * the first call is on the main thread before the background load started by {@link Device#preload(Context)} (or
+     * the first {@link Device}) has finished, the {@link PackageManager} is queried directly.
+     *
+     * @param context active context
+     * @return system features snapshot
+     */
+    public static DeviceFeatures get(final Context context) {
+        return CapabilityCache.get(context).getFeatures();
+    }
+
+    /**
+     * Build a snapshot from the {@link PackageManager}, bypassing the cache
+     */
+    static DeviceFeatures query(final Context context) {
+        return new DeviceFeatures(context.getPackageManager().getSystemAvailableFeatures(), ApiLevel.atLeast(N));
+    }
+
+    /**
+     * @param feature name of the desired feature (e.g. {@link PackageManager#FEATURE_BLUETOOTH})
+     * @return true if the feature is supported and false otherwise
+     */
+    public boolean has(final String feature) {
+        return versions.containsKey(feature);
+    }
+
+    /**
+     * @param feature one of the int feature ids of this class (e.g. {@link #CAMERA_FRONT})
+     * @return true if the feature is supported and false otherwise
+     * @throws IllegalArgumentException if <code>feature</code> is not a known feature id
+     */
+    public boolean has(final int feature) {
+        if (feature < 0 || feature >= KNOWN.length)
+            throw new IllegalArgumentException("Unknown feature id " + feature);
+
+        return 0 != (known & (1L << feature));
+    }
+
+    /**
+     * Like {@link PackageManager#hasSystemFeature(String, int)}. Feature versions are not available prior to api 24
+     * (Nougat); below that only version 0 is considered available.
+     *
+     * @param feature name of the desired feature
+     * @param version required version
+     * @return true if the feature is supported and the available version is greater than or equal to requested version;
+     * false otherwise.
+     */
+    public boolean has(final String feature, final int version) {
+        final Integer available = versions.get(feature);
+        return null != available && available >= version;
+    }
+
+    /**
+     * @param features features to query
+     * @return true if and only if <i>all</i> of the specified features are supported
+     * @throws IllegalArgumentException if the <code>features</code> parameter is <code>null</code> or empty
+     */
+    public boolean hasAll(final String... features) {
+        if (null == features || features.length == 0)
+            throw new IllegalArgumentException("No features specified");
+
+        for (final String feature : features)
+            if (!versions.containsKey(feature))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * @param features features to query
+     * @return true if and only if at least one of the specified features is supported
+     * @throws IllegalArgumentException if the <code>features</code> parameter is <code>null</code> or empty
+     */
+    public boolean hasAny(final String... features) {
+        if (null == features || features.length == 0)
+            throw new IllegalArgumentException("No features specified");
+
+        for (final String feature : features)
+            if (versions.containsKey(feature))
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Available version of the specified feature. Feature versions are not available prior to api 24 (Nougat).
+     *
+     * @param feature feature name to query
+     * @return available feature version if the feature is supported and the API level is at least 24;
+     * {@link Device#VERSION_NONE} otherwise.
+     */
+    public int getVersion(final String feature) {
+        final Integer available = versioned ? versions.get(feature) : null;
+        return null == available ? Device.VERSION_NONE : available;
+    }
+
+    /**
+     * @return number of supported features
+     */
+    public int size() {
+        return versions.size();
+    }
+
+    boolean isVersioned() {
+        return versioned;
+    }
+
+    Map<String, Integer> versions() {
+        return Collections.unmodifiableMap(versions);
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    private static Map<String, Integer> versions(final FeatureInfo[] features, final boolean withVersions) {
+        final Map<String, Integer> versions = new HashMap<>(null == features ? 0 : features.length * 2);
+
+        if (null != features)
+            for (final FeatureInfo fi : features)
+                if (null != fi.name) // the OpenGL ES version entry has no name
+                    versions.put(fi.name, withVersions ? version(fi) : 0);
+
+        return versions;
+    }
+
+    @TargetApi(N)
+    private static int version(final FeatureInfo fi) {
+        return fi.version;
+    }
+}
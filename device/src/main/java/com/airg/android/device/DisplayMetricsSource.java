@@ -0,0 +1,61 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import android.util.DisplayMetrics;
+
+/**
+ * Supplies {@link DisplayMetrics} per display and reports display changes. {@link UnitConverterRegistry} uses the
+ * platform {@link android.hardware.display.DisplayManager} by default; tests can supply their own.
+ */
+public interface DisplayMetricsSource {
+    /**
+     * Get the current metrics of a display
+     *
+     * @param displayId display id (e.g. {@link android.view.Display#DEFAULT_DISPLAY})
+     * @return a new {@link DisplayMetrics} instance, or null if there is no such display
+     */
+    DisplayMetrics getMetrics(int displayId);
+
+    /**
+     * Set the listener to notify of display changes, replacing any previous listener
+     *
+     * @param listener listener to notify, or null to stop listening
+     */
+    void setListener(Listener listener);
+
+    /**
+     * Display change callbacks
+     */
+    interface Listener {
+        /**
+         * The display's properties (size, density, etc.) may have changed
+         *
+         * @param displayId changed display
+         */
+        void onDisplayChanged(int displayId);
+
+        /**
+         * The display was removed (e.g. an external or presentation display was disconnected)
+         *
+         * @param displayId removed display
+         */
+        void onDisplayRemoved(int displayId);
+    }
+}
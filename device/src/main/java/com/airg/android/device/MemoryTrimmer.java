@@ -0,0 +1,69 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+/**
+ * Forwards the system's memory trim callbacks to the shared {@link TrimRegistry}. A single instance is registered on
+ * the application context the first time a cache is registered, and stays registered for the life of the process.
+ */
+final class MemoryTrimmer implements ComponentCallbacks2 {
+    private static final Object LOCK = new Object();
+
+    private static volatile boolean installed;
+
+    private final TrimRegistry registry;
+
+    MemoryTrimmer(final TrimRegistry trimRegistry) {
+        registry = trimRegistry;
+    }
+
+    /**
+     * Register for trim callbacks, unless already registered
+     *
+     * @param context active context
+     */
+    static void install(final Context context) {
+        if (installed) return;
+
+        synchronized (LOCK) {
+            if (installed) return;
+
+            context.getApplicationContext().registerComponentCallbacks(new MemoryTrimmer(TrimRegistry.get()));
+            installed = true;
+        }
+    }
+
+    @Override
+    public void onTrimMemory(final int level) {
+        registry.trim(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        registry.trim(TrimLevel.LOW_MEMORY);
+    }
+
+    @Override
+    public void onConfigurationChanged(final Configuration newConfig) {
+        // see DeviceConfigSnapshot
+    }
+}
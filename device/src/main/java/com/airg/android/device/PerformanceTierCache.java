@@ -0,0 +1,133 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.Build;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Keeps the device's {@link PerformanceClassifier performance tier} in memory and in a small preference store. The
+ * tiers with and without the {@link PerformanceClassifier#calibrate()} benchmark are kept apart, so either one stays
+ * the same whichever was asked for first. A stored tier is reused until the system build ({@link Build#FINGERPRINT})
+ * or the scoring ({@link PerformanceClassifier#VERSION}) changes, so a device keeps its tiers across launches.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class PerformanceTierCache {
+    static final String PREFERENCES = "com.airg.android.device.performance";
+
+    static final String KEY_BUILD = "build";
+    static final String KEY_TIER = "tier";
+    static final String KEY_SCORE = "score";
+    static final String KEY_BUILD_CALIBRATED = "build.calibrated";
+    static final String KEY_TIER_CALIBRATED = "tier.calibrated";
+    static final String KEY_SCORE_CALIBRATED = "score.calibrated";
+
+    private static final int NONE = -1;
+    private static final Object LOCK = new Object();
+
+    private static volatile int tier = NONE;
+    private static volatile int calibratedTier = NONE;
+
+    /**
+     * @param context   active context
+     * @param calibrate get the tier that includes the {@link PerformanceClassifier#calibrate()} benchmark rather than
+     *                  the one without it
+     * @return the device's tier
+     */
+    static int get(final Context context, final boolean calibrate) {
+        final int known = calibrate ? calibratedTier : tier;
+
+        if (NONE != known)
+            return known;
+
+        synchronized (LOCK) {
+            final int loaded = calibrate ? calibratedTier : tier;
+
+            if (NONE != loaded)
+                return loaded;
+
+            final PreferenceStore store = new PreferenceStore(context.getApplicationContext(), PREFERENCES);
+            final String build = build();
+            int result = restore(store, build, calibrate);
+
+            if (NONE == result) {
+                final PerformanceClassifier.Inputs inputs = inputs(context, calibrate);
+                result = PerformanceClassifier.classify(inputs);
+
+                final PreferenceStore.PreferenceEditor editor = store.edit();
+                save(editor, build, result, PerformanceClassifier.score(inputs), calibrate);
+                editor.apply();
+            }
+
+            if (calibrate)
+                calibratedTier = result;
+            else
+                tier = result;
+
+            return result;
+        }
+    }
+
+    /**
+     * @return the stored calibrated or uncalibrated tier if it was computed on <code>build</code>; otherwise
+     * {@link #NONE}
+     */
+    static int restore(final KeyValueBackend store, final String build, final boolean calibrated) {
+        if (!build.equals(store.getString(calibrated ? KEY_BUILD_CALIBRATED : KEY_BUILD, null)))
+            return NONE;
+
+        return (int) store.getLong(calibrated ? KEY_TIER_CALIBRATED : KEY_TIER, NONE);
+    }
+
+    /**
+     * Store a calibrated or uncalibrated tier, leaving the other one as it is
+     */
+    static void save(final KeyValueBackend.Writer editor,
+                     final String build,
+                     final int tier,
+                     final int score,
+                     final boolean calibrated) {
+        editor.putString(calibrated ? KEY_BUILD_CALIBRATED : KEY_BUILD, build)
+                .putLong(calibrated ? KEY_TIER_CALIBRATED : KEY_TIER, tier)
+                .putLong(calibrated ? KEY_SCORE_CALIBRATED : KEY_SCORE, score);
+    }
+
+    static String build() {
+        return Build.FINGERPRINT + '|' + PerformanceClassifier.VERSION;
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    private static PerformanceClassifier.Inputs inputs(final Context context, final boolean calibrate) {
+        final CpuTopology cpu = CpuTopology.get();
+        final ActivityManager am = Device.getSystemService(context, Context.ACTIVITY_SERVICE);
+        final ActivityManager.MemoryInfo memory = new ActivityManager.MemoryInfo();
+        am.getMemoryInfo(memory);
+
+        return new PerformanceClassifier.Inputs(
+                cpu.getCoreCount(),
+                cpu.getMaxFrequencyKHz(),
+                memory.totalMem / 1024,
+                am.getMemoryClass(),
+                ScreenSnapshot.get(context).getDensityDpi(),
+                calibrate ? PerformanceClassifier.calibrate() : PerformanceClassifier.UNKNOWN);
+    }
+}
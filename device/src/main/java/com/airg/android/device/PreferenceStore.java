@@ -23,21 +23,19 @@ import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 import android.support.annotation.Nullable;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * A {@link SharedPreferences} implementation with a few extra features. This class wraps an
- * Android native {@link SharedPreferences} instance for maximum compatibility.
+ * Android native {@link SharedPreferences} instance for maximum compatibility. The extra value types are encoded by
+ * {@link KeyValueCodec}.
  *
  * @author Mahram Z. Foadi
  */
 @SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
-public class PreferenceStore implements SharedPreferences {
+public class PreferenceStore implements SharedPreferences, KeyValueBackend {
     private final SharedPreferences store;
 
     /**
@@ -97,13 +95,7 @@ public class PreferenceStore implements SharedPreferences {
     @Nullable
     @Override
     public Set<String> getStringSet(final String key, final Set<String> defValues) {
-        final String array = store.getString(key, null);
-
-        if (null == array) return defValues;
-
-        return new Gson().fromJson(array,
-                new TypeToken<Set<String>>() {
-                }.getType());
+        return KeyValueCodec.getStringSet(this, key, defValues);
     }
 
     /**
@@ -114,13 +106,7 @@ public class PreferenceStore implements SharedPreferences {
      */
     @Nullable
     public List<String> getStringList(final String key, final List<String> defValues) {
-        final String array = store.getString(key, null);
-
-        if (null == array) return defValues;
-
-        return new Gson().fromJson(array,
-                new TypeToken<List<String>>() {
-                }.getType());
+        return KeyValueCodec.getStringList(this, key, defValues);
     }
 
     /**
@@ -157,9 +143,7 @@ public class PreferenceStore implements SharedPreferences {
      * @return stored double value or <code>defValue</code> if no stored value is found for <code>key</code>
      */
     public double getDouble(final String key, final double defValue) {
-        return store.contains(key)
-                ? Double.longBitsToDouble(store.getLong(key, 0))
-                : defValue;
+        return KeyValueCodec.getDouble(this, key, defValue);
     }
 
     /**
@@ -205,7 +189,7 @@ public class PreferenceStore implements SharedPreferences {
     /**
      * An implementation of {@link Editor} with a few additions.
      */
-    public static class PreferenceEditor implements Editor {
+    public static class PreferenceEditor implements Editor, KeyValueBackend.Writer {
         private final Editor editor;
 
         private PreferenceEditor(final Editor e) {
@@ -226,7 +210,7 @@ public class PreferenceStore implements SharedPreferences {
          */
         @Override
         public PreferenceEditor putStringSet(final String key, final Set<String> values) {
-            editor.putString(key, new Gson().toJson(values));
+            KeyValueCodec.putStrings(this, key, values);
             return this;
         }
 
@@ -238,7 +222,7 @@ public class PreferenceStore implements SharedPreferences {
          * @return this {@link PreferenceEditor} for your chaining pleasure.
          */
         public PreferenceEditor putStringList(final String key, final List<String> values) {
-            editor.putString(key, new Gson().toJson(values));
+            KeyValueCodec.putStrings(this, key, values);
             return this;
         }
 
@@ -279,7 +263,7 @@ public class PreferenceStore implements SharedPreferences {
          * @return this {@link PreferenceEditor} for your chaining pleasure.
          */
         public PreferenceEditor putDouble(final String key, final double value) {
-            editor.putLong(key, Double.doubleToRawLongBits(value));
+            KeyValueCodec.putDouble(this, key, value);
             return this;
         }
 
@@ -0,0 +1,242 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.DisplayMetrics;
+import android.view.WindowManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+
+import static android.os.Build.VERSION_CODES.HONEYCOMB_MR2;
+
+/**
+ * An immutable snapshot of the default display's size, densities and orientation. The snapshot for the application is
+ * built on first use and kept until a configuration change affects the screen (e.g. rotation, see
+ * {@link DeviceConfigSnapshot}), so the accessors don't query the window manager or allocate. Sizes are also available
+ * packed into a <code>long</code>, see {@link #pack(int, int)}.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class ScreenSnapshot {
+    private static final Object LOCK = new Object();
+
+    // configuration changes that can change the display metrics
+    private static final int SCREEN_CHANGES = DeviceConfigSnapshot.CHANGED_ORIENTATION
+            | DeviceConfigSnapshot.CHANGED_SCREEN_SIZE
+            | DeviceConfigSnapshot.CHANGED_DENSITY
+            | DeviceConfigSnapshot.CHANGED_FONT_SCALE;
+
+    // bumped on every invalidation, so a build that raced with one isn't kept
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
+    private static volatile ScreenSnapshot current;
+    private static boolean listening;
+
+    /**
+     * Screen width in pixels
+     */
+    @Getter
+    private final int widthPx;
+
+    /**
+     * Screen height in pixels
+     */
+    @Getter
+    private final int heightPx;
+
+    /**
+     * Screen width in dp. From API 13 this is the configuration's width, which excludes system decorations.
+     */
+    @Getter
+    private final int widthDp;
+
+    /**
+     * Screen height in dp. From API 13 this is the configuration's height, which excludes system decorations.
+     */
+    @Getter
+    private final int heightDp;
+
+    /**
+     * Logical density, see {@link DisplayMetrics#density}
+     */
+    @Getter
+    private final float density;
+
+    /**
+     * Font density, see {@link DisplayMetrics#scaledDensity}
+     */
+    @Getter
+    private final float scaledDensity;
+
+    /**
+     * See {@link DisplayMetrics#densityDpi}
+     */
+    @Getter
+    private final int densityDpi;
+
+    /**
+     * Either {@link Configuration#ORIENTATION_LANDSCAPE} or {@link Configuration#ORIENTATION_PORTRAIT}
+     */
+    @Getter
+    private final int orientation;
+
+    private final DisplayMetrics metrics;
+
+    ScreenSnapshot(final DisplayMetrics dm, final Configuration config, final boolean configurationDp) {
+        metrics = dm;
+        widthPx = dm.widthPixels;
+        heightPx = dm.heightPixels;
+        density = dm.density;
+        scaledDensity = dm.scaledDensity;
+        densityDpi = dm.densityDpi;
+        orientation = config.orientation;
+
+        if (configurationDp) {
+            widthDp = config.screenWidthDp;
+            heightDp = config.screenHeightDp;
+        } else {
+            widthDp = (int) (0 == widthPx ? 0f : widthPx / density);
+            heightDp = (int) (0 == heightPx ? 0f : heightPx / density);
+        }
+    }
+
+    /**
+     * Get the screen snapshot for <code>context</code>. Only the application context's snapshot is cached: it is built
+     * if there is none or the configuration changed since it was built. Any other context, e.g. an activity in
+     * multi-window mode or with its own configuration, is read from its own window manager and configuration on every
+     * call, as it may see a different size.
+     *
+     * @param context active context
+     * @return current screen snapshot
+     */
+    public static ScreenSnapshot get(final Context context) {
+        if (context.getApplicationContext() != context)
+            return read(context);
+
+        final ScreenSnapshot snapshot = current;
+        return null == snapshot ? build(context) : snapshot;
+    }
+
+    /**
+     * Drop the current snapshot so the next {@link #get(Context)} builds a new one. This happens automatically on
+     * configuration changes that affect the screen; call it if the display changed some other way.
+     */
+    public static void invalidate() {
+        GENERATION.incrementAndGet();
+        current = null;
+    }
+
+    /**
+     * Pack a width and height into a single value
+     *
+     * @param width  width, stored in the high 32 bits
+     * @param height height, stored in the low 32 bits
+     * @return packed size
+     */
+    public static long pack(final int width, final int height) {
+        return ((long) width << 32) | (height & 0xffffffffL);
+    }
+
+    /**
+     * @param size size packed by {@link #pack(int, int)}
+     * @return width
+     */
+    public static int unpackWidth(final long size) {
+        return (int) (size >> 32);
+    }
+
+    /**
+     * @param size size packed by {@link #pack(int, int)}
+     * @return height
+     */
+    public static int unpackHeight(final long size) {
+        return (int) size;
+    }
+
+    /**
+     * @return screen size in pixels, packed by {@link #pack(int, int)}
+     */
+    public long getSizePx() {
+        return pack(widthPx, heightPx);
+    }
+
+    /**
+     * @return screen size in dp, packed by {@link #pack(int, int)}
+     */
+    public long getSizeDp() {
+        return pack(widthDp, heightDp);
+    }
+
+    /**
+     * Copy this snapshot's display metrics
+     *
+     * @param out metrics to overwrite
+     * @return <code>out</code>
+     */
+    public DisplayMetrics copyMetrics(final DisplayMetrics out) {
+        out.setTo(metrics);
+        return out;
+    }
+
+    /* ----------------- Private helpers ----------------- */
+    private static ScreenSnapshot build(final Context context) {
+        synchronized (LOCK) {
+            if (!listening) {
+                DeviceConfigSnapshot.subscribe(context, new Invalidator());
+                listening = true;
+            }
+
+            while (true) {
+                final ScreenSnapshot existing = current;
+                if (null != existing) return existing;
+
+                final int generation = GENERATION.get();
+                final ScreenSnapshot snapshot = read(context);
+                current = snapshot;
+
+                if (generation == GENERATION.get())
+                    return snapshot;
+
+                // the configuration changed while we were reading it; invalidate() may have cleared current before
+                // the store above, so clear it here too and read again
+                current = null;
+            }
+        }
+    }
+
+    private static ScreenSnapshot read(final Context context) {
+        final Configuration config = context.getResources().getConfiguration();
+        final WindowManager wm = Device.getSystemService(context, Context.WINDOW_SERVICE);
+        final DisplayMetrics dm = new DisplayMetrics();
+        wm.getDefaultDisplay().getMetrics(dm);
+        return new ScreenSnapshot(dm, config, ApiLevel.atLeast(HONEYCOMB_MR2));
+    }
+
+    private static final class Invalidator implements SnapshotPublisher.Listener<DeviceConfigSnapshot> {
+        @Override
+        public void onSnapshotChanged(final DeviceConfigSnapshot previous, final DeviceConfigSnapshot current,
+                                      final int changes) {
+            if (0 != (changes & SCREEN_CHANGES))
+                invalidate();
+        }
+    }
+}
@@ -19,25 +19,31 @@
 package com.airg.android.device;
 
 import android.content.Context;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.util.DisplayMetrics;
 import android.util.TypedValue;
 
 import lombok.Getter;
 
-import static android.util.TypedValue.COMPLEX_UNIT_DIP;
-import static android.util.TypedValue.COMPLEX_UNIT_IN;
-import static android.util.TypedValue.COMPLEX_UNIT_MM;
-import static android.util.TypedValue.COMPLEX_UNIT_PT;
-import static android.util.TypedValue.COMPLEX_UNIT_PX;
 import static android.util.TypedValue.COMPLEX_UNIT_SP;
 import static com.airg.android.device.Device.getDefaultDisplayMetrics;
 
 /**
- * This class provides methods to convert between different size units in Android.
+ * This class provides methods to convert between different size units in Android. The conversions themselves live in
+ * {@link DimensionConverter}; this class feeds it a {@link DisplayMetrics} instance and adds the framework geometry
+ * types.
  */
 
 @SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
-public final class UnitConverter {
+public final class UnitConverter extends DimensionConverter {
+
+    /**
+     * First API level (Android 14) on which {@link TypedValue#applyDimension(int, float, DisplayMetrics)} may apply
+     * non-linear font scaling to sp values
+     */
+    private static final int NON_LINEAR_FONT_SCALING = 34;
 
     @Getter
     final DisplayMetrics displayMetrics;
@@ -47,220 +53,102 @@ public final class UnitConverter {
     }
 
     public UnitConverter(final DisplayMetrics dm) {
+        super(new LiveMetrics(dm));
         displayMetrics = dm;
     }
 
     /* ----------------- Instance Methods ----------------- */
 
     /**
-     * Convert a dimension to a complex size
-     *
-     * @param f        dimension value
-     * @param fromUnit source dimension unit
-     * @param toUnit   target dimension unit
-     * @return converted dimension value (in pixels or portions thereof)
-     */
-    public float convert(final float f, final int fromUnit, final int toUnit) {
-        if (!validUnit(fromUnit))
-            throw new IllegalArgumentException("Unknown source unit");
-
-        if (!validUnit(toUnit))
-            throw new IllegalArgumentException("Unknown target unit");
-
-        if (0f == f) return 0;
-        if (fromUnit == toUnit) return f;
-
-        final float value = TypedValue.applyDimension(fromUnit, f, displayMetrics);
-
-        // inverting applyDimension, basically
-        switch (toUnit) {
-            case COMPLEX_UNIT_PX:
-                return value;
-            case COMPLEX_UNIT_DIP:
-                return f2dp(value);
-            case COMPLEX_UNIT_SP:
-                return f2sp(value);
-            case COMPLEX_UNIT_PT:
-                return f2pt(value);
-            case COMPLEX_UNIT_IN:
-                return f2in(value);
-            case COMPLEX_UNIT_MM:
-                return f2mm(value);
-            default:
-                throw new IllegalArgumentException("Unknown target unit");
-        }
-    }
-
-    /**
-     * Convert a dimension to points (pt)
+     * Convert a rectangle in dps to pixels, in place. The left and top edges are rounded and the width and height are
+     * rounded separately, so two rectangles with the same size in dps always get the same size in pixels.
      *
-     * @param f simension value
-     * @return converted to points
+     * @param rect rectangle in dps
      */
-    public float f2pt(final float f) {
-        return 0f == f ? 0f : (f * 72f) / displayMetrics.xdpi;
+    public void dp2px(final Rect rect) {
+        final int left = dp2px((float) rect.left);
+        final int top = dp2px((float) rect.top);
+        rect.right = left + dp2px((float) (rect.right - rect.left));
+        rect.bottom = top + dp2px((float) (rect.bottom - rect.top));
+        rect.left = left;
+        rect.top = top;
     }
 
     /**
-     * Convert a dimension to device independent pixels (dips)
+     * Convert a rectangle in pixels to whole dps, in place, rounding like {@link #dp2px(Rect)}.
      *
-     * @param f dimension size
-     * @return dimension size in dips
+     * @param rect rectangle in pixels
      */
-    public float f2dp(final float f) {
-        return 0f == f ? 0f : f / displayMetrics.density;
+    public void px2dp(final Rect rect) {
+        final int left = px2dpRounded(rect.left);
+        final int top = px2dpRounded(rect.top);
+        rect.right = left + px2dpRounded(rect.right - rect.left);
+        rect.bottom = top + px2dpRounded(rect.bottom - rect.top);
+        rect.left = left;
+        rect.top = top;
     }
 
     /**
-     * Convert a dimension to scaled pixels
+     * Convert a rectangle in dps to pixels, in place. The width and height are scaled separately from the left and top
+     * edges, like {@link #dp2px(Rect)}.
      *
-     * @param f dimension size
-     * @return dimension size in sps
+     * @param rect rectangle in dps
      */
-    public float f2sp(final float f) {
-        return 0f == f ? 0f : f / displayMetrics.scaledDensity;
+    public void dp2px(final RectF rect) {
+        final float density = getMetricsSource().getDensity();
+        final float left = rect.left * density;
+        final float top = rect.top * density;
+        rect.right = left + (rect.right - rect.left) * density;
+        rect.bottom = top + (rect.bottom - rect.top) * density;
+        rect.left = left;
+        rect.top = top;
     }
 
     /**
-     * Convert a dimension to inches
+     * Convert a rectangle in pixels to dps, in place. See {@link #dp2px(RectF)}.
      *
-     * @param f dimension size
-     * @return dimension size in inches
+     * @param rect rectangle in pixels
      */
-    public float f2in(final float f) {
-        return 0f == f ? 0f : f / displayMetrics.xdpi;
+    public void px2dp(final RectF rect) {
+        final float left = f2dp(rect.left);
+        final float top = f2dp(rect.top);
+        rect.right = left + f2dp(rect.right - rect.left);
+        rect.bottom = top + f2dp(rect.bottom - rect.top);
+        rect.left = left;
+        rect.top = top;
     }
 
     /**
-     * Convert a dimension to millimeters
+     * Convert a point in dps to pixels, in place
      *
-     * @param f dimension size
-     * @return dimension size in millimeters
+     * @param point point in dps
      */
-    public float f2mm(final float f) {
-        return 0f == f ? 0f : f2in(f) * 25.4f;
+    public void dp2px(final Point point) {
+        point.x = dp2px((float) point.x);
+        point.y = dp2px((float) point.y);
     }
 
     /**
-     * Convert a dimension to centimeters
+     * Convert a point in pixels to whole dps, in place
      *
-     * @param f dimension size
-     * @return dimension size in centimeters
+     * @param point point in pixels
      */
-    public float f2cm(final float f) {
-        return 0f == f ? 0f : f2in(f) * 2.54f;
+    public void px2dp(final Point point) {
+        point.x = px2dpRounded(point.x);
+        point.y = px2dpRounded(point.y);
     }
 
     /**
-     * Convert a pixel size to dps
+     * Convert insets or padding in dps (e.g. the <code>outRect</code> of an item decoration) to pixels, in place. Unlike
+     * {@link #dp2px(Rect)}, each side is an independent distance and is rounded on its own.
      *
-     * @param px pixel size
-     * @return dp equivalent of the given pixel size.
+     * @param insets left, top, right and bottom insets in dps
      */
-    public float px2dp(final int px) {
-        return f2dp((float) px);
-    }
-
-    /**
-     * Convert a single dp value to pixels
-     *
-     * @param dp dp size
-     * @return pixel equivalent of provided dps
-     */
-    public int dp2px(final float dp) {
-        return 0 == dp ? 0 : Math.round(dp * displayMetrics.density);
-    }
-
-    /**
-     * Convert a pixel size to sps
-     *
-     * @param px pixel size
-     * @return sp equivalent of the given pixel size.
-     */
-    public float px2sp(final int px) {
-        return 0 == px ? 0f : px / displayMetrics.scaledDensity;
-    }
-
-    /**
-     * Convert a single sp value to pixels
-     *
-     * @param sp sp size
-     * @return pixel equivalent of provided sps
-     */
-    public int sp2px(final float sp) {
-        return 0f == sp ? 0 : Math.round(sp * displayMetrics.scaledDensity);
-    }
-
-    /**
-     * Convert at an array of pixel sizes to dps
-     *
-     * @param pxs pixel sizes
-     * @return converted equivalent dp values
-     */
-    public float[] pxs2dps(final int... pxs) {
-        if (null == pxs) return null;
-        if (pxs.length == 0) return new float[0];
-
-        final float[] dps = new float[pxs.length];
-
-        for (int i = 0; i < pxs.length; i++)
-            dps[i] = px2dp(pxs[i]);
-
-        return dps;
-    }
-
-    /**
-     * Convert at an array of dp sizes to pixels
-     *
-     * @param dps dp sizes
-     * @return converted equivalent pixel values
-     */
-    public int[] dps2pxs(final float... dps) {
-        if (null == dps) return null;
-        if (dps.length == 0) return new int[0];
-
-        final int[] pxs = new int[dps.length];
-
-        for (int i = 0; i < dps.length; i++)
-            pxs[i] = dp2px(dps[i]);
-
-        return pxs;
-    }
-
-    /**
-     * Convert at an array of pixel sizes to sps
-     *
-     * @param pxs pixel sizes
-     * @return converted equivalent sp values
-     */
-    public float[] pxs2sps(final int... pxs) {
-        if (null == pxs) return null;
-        if (pxs.length == 0) return new float[0];
-
-        final float[] sps = new float[pxs.length];
-
-        for (int i = 0; i < pxs.length; i++)
-            sps[i] = px2sp(pxs[i]);
-
-        return sps;
-    }
-
-    /**
-     * Convert at an array of sp sizes to pixels
-     *
-     * @param sps sp sizes
-     * @return converted equivalent pixel values
-     */
-    public int[] sps2pxs(final float... sps) {
-        if (null == sps) return null;
-        if (sps.length == 0) return new int[0];
-
-        final int[] pxs = new int[sps.length];
-
-        for (int i = 0; i < sps.length; i++)
-            pxs[i] = sp2px(sps[i]);
-
-        return pxs;
+    public void dp2pxInsets(final Rect insets) {
+        insets.left = dp2px((float) insets.left);
+        insets.top = dp2px((float) insets.top);
+        insets.right = dp2px((float) insets.right);
+        insets.bottom = dp2px((float) insets.bottom);
     }
 
     /* ----------------- Static Methods ----------------- */
@@ -328,7 +216,8 @@ public final class UnitConverter {
      * See {@link #dp2px(float)}
      */
     public static int dp2px(final Context context, final float dp) {
-        return 0f == dp ? 0 : new UnitConverter(context).dp2px(dp);
+        // a throwaway converter would build a lookup table just to use it once
+        return 0f == dp ? 0 : Math.round(dp * getDefaultDisplayMetrics(context).density);
     }
 
     /**
@@ -342,7 +231,7 @@ public final class UnitConverter {
      * See {@link #sp2px(float)}
      */
     public static int sp2px(final Context context, final float sp) {
-        return 0f == sp ? 0 : new UnitConverter(context).sp2px(sp);
+        return 0f == sp ? 0 : Math.round(sp * getDefaultDisplayMetrics(context).scaledDensity);
     }
 
     /**
@@ -373,20 +262,39 @@ public final class UnitConverter {
         return new UnitConverter(context).sps2pxs(sps);
     }
 
-    /* ----------------- Helper Methods ----------------- */
-    private static boolean validUnit(final int toUnit) {
-        switch (toUnit) {
-            case COMPLEX_UNIT_PX:
-            case COMPLEX_UNIT_DIP:
-            case COMPLEX_UNIT_SP:
-            case COMPLEX_UNIT_PT:
-            case COMPLEX_UNIT_IN:
-            case COMPLEX_UNIT_MM:
-                // all valid units
-                return true;
-            default:
-                // masks and others
-                return false;
+    /**
+     * Reads the live fields of a {@link DisplayMetrics} instance
+     */
+    private static final class LiveMetrics implements MetricsSource {
+        private final DisplayMetrics dm;
+
+        LiveMetrics(final DisplayMetrics metrics) {
+            dm = metrics;
+        }
+
+        @Override
+        public float getDensity() {
+            return dm.density;
+        }
+
+        @Override
+        public float getScaledDensity() {
+            return dm.scaledDensity;
+        }
+
+        @Override
+        public float getXdpi() {
+            return dm.xdpi;
+        }
+
+        @Override
+        public boolean isFontScalingNonLinear() {
+            return ApiLevel.atLeast(NON_LINEAR_FONT_SCALING);
+        }
+
+        @Override
+        public float applyFontScaling(final float sp) {
+            return TypedValue.applyDimension(COMPLEX_UNIT_SP, sp, dm);
         }
     }
 }
@@ -0,0 +1,193 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.hardware.display.DisplayManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.view.Display;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static android.os.Build.VERSION_CODES.JELLY_BEAN_MR1;
+
+/**
+ * Keeps one {@link UnitConverter} per display, so conversions for external, presentation or folded/unfolded displays
+ * use that display's metrics. Converters are created on first request and replaced when the display changes.
+ * {@link #get(int)} is safe to call from any thread.
+ */
+@SuppressWarnings({"UnusedDeclaration", "WeakerAccess"})
+public final class UnitConverterRegistry implements DisplayMetricsSource.Listener {
+
+    private final DisplayMetricsSource source;
+    private final ConcurrentHashMap<Integer, UnitConverter> converters = new ConcurrentHashMap<>();
+
+    // bumped on every display event so a converter built from metrics read before the event is not kept
+    private final AtomicInteger changes = new AtomicInteger();
+
+    /**
+     * Create a registry backed by the platform {@link DisplayManager}. Display changes are delivered on the main
+     * thread. Below API 17 only the default display is available.
+     *
+     * @param context active context
+     */
+    public UnitConverterRegistry(final Context context) {
+        this(new PlatformSource(context.getApplicationContext()));
+    }
+
+    /**
+     * Create a registry backed by a custom metrics source
+     *
+     * @param s display metrics source
+     */
+    public UnitConverterRegistry(final DisplayMetricsSource s) {
+        source = s;
+        source.setListener(this);
+    }
+
+    /**
+     * Get the converter for a display
+     *
+     * @param displayId display id
+     * @return a converter using the display's current metrics, or null if there is no such display
+     */
+    public UnitConverter get(final int displayId) {
+        while (true) {
+            final UnitConverter existing = converters.get(displayId);
+            if (null != existing) return existing;
+
+            final int generation = changes.get();
+            final DisplayMetrics dm = source.getMetrics(displayId);
+            if (null == dm) return null;
+
+            final UnitConverter created = new UnitConverter(dm);
+            final UnitConverter raced = converters.putIfAbsent(displayId, created);
+
+            if (null != raced) return raced;
+            if (generation == changes.get()) return created;
+
+            // the display changed while we were reading its metrics
+            converters.remove(displayId, created);
+        }
+    }
+
+    /**
+     * Get the converter for the default display. See {@link #get(int)}.
+     */
+    public UnitConverter getDefault() {
+        return get(Display.DEFAULT_DISPLAY);
+    }
+
+    /**
+     * Stop listening for display changes. Converters already handed out keep working with the metrics they have.
+     */
+    public void release() {
+        source.setListener(null);
+        converters.clear();
+    }
+
+    @Override
+    public void onDisplayChanged(final int displayId) {
+        changes.incrementAndGet();
+
+        if (!converters.containsKey(displayId))
+            return;
+
+        final DisplayMetrics dm = source.getMetrics(displayId);
+
+        if (null == dm)
+            converters.remove(displayId);
+        else
+            converters.put(displayId, new UnitConverter(dm));
+    }
+
+    @Override
+    public void onDisplayRemoved(final int displayId) {
+        changes.incrementAndGet();
+        converters.remove(displayId);
+    }
+
+    /**
+     * {@link DisplayMetricsSource} backed by {@link DisplayManager}
+     */
+    @TargetApi(JELLY_BEAN_MR1)
+    private static final class PlatformSource implements DisplayMetricsSource {
+        private final Context context;
+        private DisplayManager.DisplayListener registered;
+
+        PlatformSource(final Context c) {
+            context = c;
+        }
+
+        @Override
+        public DisplayMetrics getMetrics(final int displayId) {
+            if (ApiLevel.below(JELLY_BEAN_MR1))
+                return Display.DEFAULT_DISPLAY == displayId ? Device.getDefaultDisplayMetrics(context) : null;
+
+            final DisplayManager manager = Device.getSystemService(context, Context.DISPLAY_SERVICE);
+            final Display display = manager.getDisplay(displayId);
+
+            if (null == display)
+                return null;
+
+            final DisplayMetrics dm = new DisplayMetrics();
+            display.getMetrics(dm);
+            return dm;
+        }
+
+        @Override
+        public synchronized void setListener(final Listener listener) {
+            if (ApiLevel.below(JELLY_BEAN_MR1))
+                return;
+
+            final DisplayManager manager = Device.getSystemService(context, Context.DISPLAY_SERVICE);
+
+            if (null != registered) {
+                manager.unregisterDisplayListener(registered);
+                registered = null;
+            }
+
+            if (null == listener)
+                return;
+
+            registered = new DisplayManager.DisplayListener() {
+                @Override
+                public void onDisplayAdded(final int displayId) {
+                    // converters are created on demand
+                }
+
+                @Override
+                public void onDisplayRemoved(final int displayId) {
+                    listener.onDisplayRemoved(displayId);
+                }
+
+                @Override
+                public void onDisplayChanged(final int displayId) {
+                    listener.onDisplayChanged(displayId);
+                }
+            };
+
+            manager.registerDisplayListener(registered, new Handler(Looper.getMainLooper()));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CapabilityCacheTest {
+
+    private static final String KEY = "vendor/device/build:11/RP1A/123:user/release-keys|/data/app/base.apk|42";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static CapabilityCache capabilities(final String hardwareId) {
+        final Map<String, Integer> versions = new HashMap<>();
+        versions.put("android.hardware.camera", 0);
+        versions.put("android.hardware.vulkan.version", 0x401000);
+        versions.put("android.hardware.wifi", 0);
+        return new CapabilityCache(KEY, new DeviceFeatures(versions, true), hardwareId);
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        final File file = new File(folder.getRoot(), CapabilityCache.FILE_NAME);
+        CapabilityCache.write(file, capabilities("9774d56d682e549c"));
+
+        final CapabilityCache read = CapabilityCache.read(file, KEY);
+        assertEquals(KEY, read.getKey());
+        assertEquals("9774d56d682e549c", read.getHardwareId());
+        assertEquals(capabilities(null).getFeatures(), read.getFeatures());
+        assertEquals(0x401000, read.getFeatures().getVersion("android.hardware.vulkan.version"));
+        assertTrue(read.getFeatures().has(DeviceFeatures.CAMERA));
+
+        CapabilityCache.write(file, capabilities(null));
+        assertNull(CapabilityCache.read(file, KEY).getHardwareId());
+        assertEquals("no temporary files left", 1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void staleKey() throws Exception {
+        final File file = new File(folder.getRoot(), CapabilityCache.FILE_NAME);
+        CapabilityCache.write(file, capabilities("id"));
+
+        assertNull(CapabilityCache.read(file, KEY.replace(":11/", ":12/")));
+        assertFalse("stale file should be removed", file.exists());
+    }
+
+    @Test
+    public void corrupt() throws Exception {
+        final byte[] valid = CapabilityCache.encode(capabilities("id"));
+
+        for (int i = 0; i < valid.length; i++) {
+            final byte[] data = valid.clone();
+            data[i] ^= 0x10;
+            assertNull("flipped byte " + i, decodeQuietly(data));
+        }
+
+        for (int length = 0; length < valid.length; length++) {
+            final byte[] data = new byte[length];
+            System.arraycopy(valid, 0, data, 0, length);
+            assertNull("truncated to " + length, decodeQuietly(data));
+        }
+
+        final File file = new File(folder.getRoot(), CapabilityCache.FILE_NAME);
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write(valid, 0, valid.length / 2);
+        out.close();
+
+        assertNull(CapabilityCache.read(file, KEY));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void missingOrOversized() throws Exception {
+        final File file = new File(folder.getRoot(), CapabilityCache.FILE_NAME);
+        assertNull(CapabilityCache.read(file, KEY));
+
+        final RandomAccessFile out = new RandomAccessFile(file, "rw");
+        out.setLength(1024 * 1024);
+        out.close();
+
+        assertNull(CapabilityCache.read(file, KEY));
+    }
+
+    @Test
+    public void hardwareIdHits() throws Exception {
+        final long before = CapabilityCache.hardwareIdQueriesAvoided();
+        final CapabilityCache cached = capabilities("cached");
+        final CapabilityCache queried = new CapabilityCache(KEY, cached.getFeatures(), "queried", true);
+
+        assertEquals("cached", CapabilityCache.hardwareId(cached));
+        assertEquals(before + 1, CapabilityCache.hardwareIdQueriesAvoided());
+
+        // the first answer from a system query is the query itself, the rest are served from memory
+        assertEquals("queried", CapabilityCache.hardwareId(queried));
+        assertEquals("queried", CapabilityCache.hardwareId(queried));
+        assertEquals("queried", CapabilityCache.hardwareId(queried));
+        assertEquals(before + 3, CapabilityCache.hardwareIdQueriesAvoided());
+    }
+
+    private static CapabilityCache decodeQuietly(final byte[] data) {
+        try {
+            return CapabilityCache.decode(data);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
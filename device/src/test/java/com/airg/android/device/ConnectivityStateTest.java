@@ -0,0 +1,252 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.net.ConnectivityManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectivityStateTest {
+
+    private static final ConnectivityState WIFI = new ConnectivityState(true, ConnectivityManager.TYPE_WIFI, false);
+    private static final ConnectivityState MOBILE = new ConnectivityState(true, ConnectivityManager.TYPE_MOBILE, true);
+
+    private final Context context = new TestContext();
+    private FakeSource source;
+
+    @Before
+    public void fakeSource() {
+        source = new FakeSource();
+        ConnectivityState.setSource(source);
+    }
+
+    @After
+    public void restore() {
+        ConnectivityState.setSource(new ConnectivityWatcher());
+    }
+
+    @Test
+    public void fields() throws Exception {
+        assertTrue(WIFI.isConnected());
+        assertTrue(WIFI.isWifi());
+        assertFalse(WIFI.isMobile());
+        assertTrue(MOBILE.isMetered());
+
+        assertFalse(ConnectivityState.DISCONNECTED.isConnected());
+        assertEquals(ConnectivityState.TYPE_NONE, ConnectivityState.DISCONNECTED.getType());
+        assertFalse("not metered while disconnected",
+                new ConnectivityState(false, ConnectivityManager.TYPE_MOBILE, true).isMetered());
+    }
+
+    @Test
+    public void changes() throws Exception {
+        assertEquals(0, WIFI.changes(new ConnectivityState(true, ConnectivityManager.TYPE_WIFI, false)));
+        assertEquals(ConnectivityState.CHANGED_TYPE | ConnectivityState.CHANGED_METERED, MOBILE.changes(WIFI));
+        assertEquals(ConnectivityState.CHANGED_CONNECTED | ConnectivityState.CHANGED_TYPE,
+                ConnectivityState.DISCONNECTED.changes(WIFI));
+    }
+
+    @Test
+    public void registersOnce() throws Exception {
+        source.state = WIFI;
+
+        assertSame(WIFI, ConnectivityState.get(context));
+        assertTrue(Connectivity.online(context));
+        assertTrue(Connectivity.isWifi(context));
+        assertTrue(new Connectivity(context).online());
+
+        assertEquals(1, source.registrations);
+        assertEquals("later reads don't query", 1, source.queries);
+    }
+
+    @Test
+    public void followsEvents() throws Exception {
+        source.state = WIFI;
+        assertTrue(Connectivity.isWifi(context));
+
+        source.change(MOBILE);
+        assertTrue(Connectivity.isMobile(context));
+        assertFalse(Connectivity.isWifi(context));
+
+        source.change(ConnectivityState.DISCONNECTED);
+        assertFalse(Connectivity.online(context));
+    }
+
+    @Test
+    public void listeners() throws Exception {
+        final List<Integer> changes = new ArrayList<>();
+        final SnapshotPublisher.Listener<ConnectivityState> listener =
+                new SnapshotPublisher.Listener<ConnectivityState>() {
+                    @Override
+                    public void onSnapshotChanged(final ConnectivityState previous,
+                                                  final ConnectivityState current,
+                                                  final int changed) {
+                        changes.add(changed);
+                    }
+                };
+
+        source.state = WIFI;
+        ConnectivityState.subscribe(context, listener);
+
+        source.change(new ConnectivityState(true, ConnectivityManager.TYPE_WIFI, false)); // same state, not reported
+        source.change(ConnectivityState.DISCONNECTED);
+        ConnectivityState.unsubscribe(listener);
+        source.change(WIFI);
+
+        assertEquals(1, changes.size());
+        assertEquals(ConnectivityState.CHANGED_CONNECTED | ConnectivityState.CHANGED_TYPE, (int) changes.get(0));
+    }
+
+    @Test
+    public void oneRegistrationForAllListeners() throws Exception {
+        final CountingListener[] listeners = new CountingListener[15];
+        source.state = WIFI;
+
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i] = new CountingListener();
+            Connectivity.subscribe(context, listeners[i]);
+        }
+
+        assertEquals(1, source.registrations);
+        assertEquals(listeners.length, ConnectivityState.listenerCount());
+
+        source.change(MOBILE);
+
+        for (final CountingListener listener : listeners)
+            assertEquals(1, listener.calls);
+
+        for (final CountingListener listener : listeners)
+            assertTrue(Connectivity.unsubscribe(listener));
+
+        assertFalse(Connectivity.unsubscribe(listeners[0]));
+        assertEquals("last listener drops the registration", 1, source.unregistrations);
+        assertEquals(0, ConnectivityState.listenerCount());
+
+        // a late event from the dropped registration is ignored
+        final ConnectivityState.Sink stale = source.sink;
+        source.state = ConnectivityState.DISCONNECTED;
+        stale.changed();
+        stale.changed(MOBILE);
+
+        Connectivity.subscribe(context, listeners[0]);
+        assertEquals(2, source.registrations);
+        assertSame(ConnectivityState.DISCONNECTED, ConnectivityState.get(context));
+        assertEquals("the first state isn't reported", 1, listeners[0].calls);
+        Connectivity.unsubscribe(listeners[0]);
+    }
+
+    @Test
+    public void readersKeepTheRegistration() throws Exception {
+        final CountingListener listener = new CountingListener();
+        source.state = WIFI;
+
+        assertTrue(Connectivity.online(context));
+        Connectivity.subscribe(context, listener);
+        Connectivity.unsubscribe(listener);
+
+        assertEquals(1, source.registrations);
+        assertEquals(0, source.unregistrations);
+
+        source.change(MOBILE);
+        assertTrue(Connectivity.isMobile(context));
+        assertEquals(0, listener.calls);
+    }
+
+    @Test
+    public void newestStateWins() throws Exception {
+        // the first callback lands while the initial query is still running and finishes first
+        ConnectivityState.setSource(new FakeSource() {
+            @Override
+            public ConnectivityState query(final Context context) {
+                if (null != sink && 0 == queries++)
+                    sink.changed(MOBILE);
+
+                return WIFI;
+            }
+        });
+
+        assertSame(MOBILE, ConnectivityState.get(context));
+    }
+
+    /**
+     * Framework methods answer defaults in JVM tests; the state only needs a stable application context
+     */
+    private static final class TestContext extends ContextWrapper {
+        TestContext() {
+            super(null);
+        }
+
+        @Override
+        public Context getApplicationContext() {
+            return this;
+        }
+    }
+
+    private static final class CountingListener implements SnapshotPublisher.Listener<ConnectivityState> {
+        int calls;
+
+        @Override
+        public void onSnapshotChanged(final ConnectivityState previous,
+                                      final ConnectivityState current,
+                                      final int changes) {
+            calls++;
+        }
+    }
+
+    private static class FakeSource implements ConnectivityState.Source {
+        ConnectivityState state = ConnectivityState.DISCONNECTED;
+        ConnectivityState.Sink sink;
+        int registrations;
+        int unregistrations;
+        int queries;
+
+        void change(final ConnectivityState newState) {
+            state = newState;
+            sink.changed();
+        }
+
+        @Override
+        public ConnectivityState query(final Context context) {
+            queries++;
+            return state;
+        }
+
+        @Override
+        public void register(final Context context, final ConnectivityState.Sink changes) {
+            registrations++;
+            sink = changes;
+        }
+
+        @Override
+        public void unregister(final Context context) {
+            unregistrations++;
+        }
+    }
+}
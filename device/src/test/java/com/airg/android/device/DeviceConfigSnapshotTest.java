@@ -0,0 +1,136 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import android.content.res.Configuration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+public class DeviceConfigSnapshotTest {
+
+    private static final float ZERO_DELTA = 0.0f;
+
+    @Before
+    public void kitKat() {
+        // below N the locale comes from Configuration.locale, a plain field
+        ApiLevel.setProvider(new SdkLevelProvider() {
+            @Override
+            public int getSdkLevel() {
+                return 19;
+            }
+        });
+    }
+
+    @After
+    public void restore() {
+        ApiLevel.setProvider(SdkLevelProvider.PLATFORM);
+    }
+
+    private static Configuration configuration() {
+        final Configuration config = new Configuration();
+        config.locale = Locale.CANADA;
+        config.orientation = Configuration.ORIENTATION_PORTRAIT;
+        config.screenWidthDp = 411;
+        config.screenHeightDp = 820;
+        config.densityDpi = 420;
+        config.fontScale = 1f;
+        config.mcc = 302;
+        config.mnc = 720;
+        return config;
+    }
+
+    @Test
+    public void fields() throws Exception {
+        final DeviceConfigSnapshot snapshot = new DeviceConfigSnapshot(configuration());
+
+        assertSame(Locale.CANADA, snapshot.getLocale());
+        assertEquals(0, snapshot.getLayoutDirection());
+        assertEquals(Configuration.ORIENTATION_PORTRAIT, snapshot.getOrientation());
+        assertEquals(411, snapshot.getScreenWidthDp());
+        assertEquals(820, snapshot.getScreenHeightDp());
+        assertEquals(420, snapshot.getDensityDpi());
+        assertEquals(1f, snapshot.getFontScale(), ZERO_DELTA);
+        assertEquals(302, snapshot.getMcc());
+        assertEquals(720, snapshot.getMnc());
+    }
+
+    @Test
+    public void changes() throws Exception {
+        final DeviceConfigSnapshot before = new DeviceConfigSnapshot(configuration());
+        assertEquals(0, new DeviceConfigSnapshot(configuration()).changes(before));
+        assertEquals(before, new DeviceConfigSnapshot(configuration()));
+
+        final Configuration rotated = configuration();
+        rotated.orientation = Configuration.ORIENTATION_LANDSCAPE;
+        rotated.screenWidthDp = 820;
+        rotated.screenHeightDp = 411;
+        assertEquals(DeviceConfigSnapshot.CHANGED_ORIENTATION | DeviceConfigSnapshot.CHANGED_SCREEN_SIZE,
+                new DeviceConfigSnapshot(rotated).changes(before));
+
+        final Configuration swapped = configuration();
+        swapped.mcc = 310;
+        swapped.mnc = 260;
+        swapped.locale = Locale.US;
+        assertEquals(DeviceConfigSnapshot.CHANGED_MCC | DeviceConfigSnapshot.CHANGED_MNC
+                        | DeviceConfigSnapshot.CHANGED_LOCALE,
+                new DeviceConfigSnapshot(swapped).changes(before));
+        assertNotEquals(before, new DeviceConfigSnapshot(swapped));
+    }
+
+    @Test
+    public void subscribers() throws Exception {
+        final int[] received = {-1};
+        final SnapshotPublisher.Listener<DeviceConfigSnapshot> listener =
+                new SnapshotPublisher.Listener<DeviceConfigSnapshot>() {
+                    @Override
+                    public void onSnapshotChanged(final DeviceConfigSnapshot previous,
+                                                  final DeviceConfigSnapshot current,
+                                                  final int changes) {
+                        received[0] = changes;
+                    }
+                };
+
+        DeviceConfigSnapshot.publish(configuration());
+        // a snapshot is published, so no context is needed to read it
+        DeviceConfigSnapshot.subscribe(null, listener);
+
+        try {
+            final Configuration scaled = configuration();
+            scaled.fontScale = 1.3f;
+            assertEquals(DeviceConfigSnapshot.CHANGED_FONT_SCALE, DeviceConfigSnapshot.publish(scaled));
+            assertEquals(DeviceConfigSnapshot.CHANGED_FONT_SCALE, received[0]);
+            assertEquals(1.3f, DeviceConfigSnapshot.get(null).getFontScale(), ZERO_DELTA);
+
+            // unrelated configuration changes are not passed on
+            received[0] = -1;
+            scaled.uiMode = 0x21;
+            assertEquals(0, DeviceConfigSnapshot.publish(scaled));
+            assertEquals(-1, received[0]);
+        } finally {
+            DeviceConfigSnapshot.unsubscribe(listener);
+        }
+    }
+}
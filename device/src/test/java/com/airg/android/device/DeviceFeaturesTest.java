@@ -0,0 +1,100 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import android.content.pm.FeatureInfo;
+import android.content.pm.PackageManager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DeviceFeaturesTest {
+
+    private static final String VULKAN = "android.hardware.vulkan.version";
+
+    private static FeatureInfo feature(final String name, final int version) {
+        final FeatureInfo fi = new FeatureInfo();
+        fi.name = name;
+        fi.version = version;
+        return fi;
+    }
+
+    private static DeviceFeatures snapshot(final boolean versioned) {
+        return new DeviceFeatures(new FeatureInfo[]{
+                feature(PackageManager.FEATURE_CAMERA, 0),
+                feature(PackageManager.FEATURE_WIFI, 0),
+                feature(VULKAN, 0x401000),
+                feature(null, 0) // OpenGL ES version entry
+        }, versioned);
+    }
+
+    @Test
+    public void queries() throws Exception {
+        final DeviceFeatures features = snapshot(true);
+
+        assertEquals(3, features.size());
+        assertTrue(features.has(PackageManager.FEATURE_CAMERA));
+        assertFalse(features.has(PackageManager.FEATURE_NFC));
+        assertTrue(features.hasAll(PackageManager.FEATURE_CAMERA, PackageManager.FEATURE_WIFI));
+        assertFalse(features.hasAll(PackageManager.FEATURE_CAMERA, PackageManager.FEATURE_NFC));
+        assertTrue(features.hasAny(PackageManager.FEATURE_NFC, PackageManager.FEATURE_WIFI));
+        assertFalse(features.hasAny(PackageManager.FEATURE_NFC, PackageManager.FEATURE_TELEPHONY));
+    }
+
+    @Test
+    public void knownIds() throws Exception {
+        final DeviceFeatures features = snapshot(true);
+
+        assertTrue(features.has(DeviceFeatures.CAMERA));
+        assertTrue(features.has(DeviceFeatures.WIFI));
+        assertFalse(features.has(DeviceFeatures.CAMERA_FRONT));
+        assertFalse(features.has(DeviceFeatures.LEANBACK));
+
+        for (final int bad : new int[]{-1, 64, DeviceFeatures.LEANBACK + 1})
+            try {
+                features.has(bad);
+                fail(bad + " is not a feature id");
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+    }
+
+    @Test
+    public void versions() throws Exception {
+        final DeviceFeatures versioned = snapshot(true);
+        assertEquals(0x401000, versioned.getVersion(VULKAN));
+        assertEquals(Device.VERSION_NONE, versioned.getVersion(PackageManager.FEATURE_NFC));
+        assertTrue(versioned.has(VULKAN, 0x400000));
+        assertFalse(versioned.has(VULKAN, 0x402000));
+
+        final DeviceFeatures legacy = snapshot(false);
+        assertEquals(Device.VERSION_NONE, legacy.getVersion(VULKAN));
+        assertTrue(legacy.has(VULKAN, 0));
+        assertFalse(legacy.has(VULKAN, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noFeatures() throws Exception {
+        snapshot(true).hasAny();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+package com.airg.android.device;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class PerformanceTierCacheTest {
+
+    private static final String BUILD = "airg/sample/device:12/SP1A/1234:user/release-keys|1";
+
+    @Test
+    public void roundTrip() throws Exception {
+        final MapBackend store = new MapBackend();
+        PerformanceTierCache.save(store, BUILD, PerformanceClassifier.TIER_MID, 55, false);
+
+        assertEquals(PerformanceClassifier.TIER_MID, PerformanceTierCache.restore(store, BUILD, false));
+        assertEquals(55L, store.getLong(PerformanceTierCache.KEY_SCORE, -1));
+    }
+
+    @Test
+    public void otherBuild() throws Exception {
+        final MapBackend store = new MapBackend();
+        assertEquals(-1, PerformanceTierCache.restore(store, BUILD, false));
+
+        PerformanceTierCache.save(store, BUILD, PerformanceClassifier.TIER_HIGH, 80, true);
+        assertEquals(-1, PerformanceTierCache.restore(store, BUILD.replace("SP1A", "SP2A"), false));
+    }
+
+    @Test
+    public void calibration() throws Exception {
+        final MapBackend store = new MapBackend();
+        PerformanceTierCache.save(store, BUILD, PerformanceClassifier.TIER_LOW, 20, false);
+
+        // the two tiers are kept apart, so neither answers for the other
+        assertEquals(-1, PerformanceTierCache.restore(store, BUILD, true));
+
+        PerformanceTierCache.save(store, BUILD, PerformanceClassifier.TIER_MID, 40, true);
+        assertEquals(PerformanceClassifier.TIER_MID, PerformanceTierCache.restore(store, BUILD, true));
+        assertEquals(PerformanceClassifier.TIER_LOW, PerformanceTierCache.restore(store, BUILD, false));
+        assertEquals(20L, store.getLong(PerformanceTierCache.KEY_SCORE, -1));
+
+        // a new build invalidates each tier when it is next saved, without touching the other
+        final String update = BUILD.replace("SP1A", "SP2A");
+        PerformanceTierCache.save(store, update, PerformanceClassifier.TIER_HIGH, 70, false);
+        assertEquals(PerformanceClassifier.TIER_HIGH, PerformanceTierCache.restore(store, update, false));
+        assertEquals(-1, PerformanceTierCache.restore(store, update, true));
+    }
+
+    private static final class MapBackend implements KeyValueBackend, KeyValueBackend.Writer {
+        private final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public boolean contains(final String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public String getString(final String key, final String defValue) {
+            return values.containsKey(key) ? (String) values.get(key) : defValue;
+        }
+
+        @Override
+        public long getLong(final String key, final long defValue) {
+            return values.containsKey(key) ? (Long) values.get(key) : defValue;
+        }
+
+        @Override
+        public Writer putString(final String key, final String value) {
+            values.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Writer putLong(final String key, final long value) {
+            values.put(key, value);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import android.content.res.Configuration;
+import android.util.DisplayMetrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ScreenSnapshotTest {
+
+    private static final float ZERO_DELTA = 0.0f;
+
+    private static Configuration configuration() {
+        final Configuration config = new Configuration();
+        config.orientation = Configuration.ORIENTATION_PORTRAIT;
+        config.screenWidthDp = 411;
+        config.screenHeightDp = 820;
+        return config;
+    }
+
+    @Test
+    public void fields() throws Exception {
+        final DisplayMetrics dm = UnitConverterTest.metrics(2.625f, 1.15f, 403.411f);
+        dm.widthPixels = 1080;
+        dm.heightPixels = 2220;
+
+        final ScreenSnapshot screen = new ScreenSnapshot(dm, configuration(), true);
+        assertEquals(1080, screen.getWidthPx());
+        assertEquals(2220, screen.getHeightPx());
+        assertEquals(411, screen.getWidthDp());
+        assertEquals(820, screen.getHeightDp());
+        assertEquals(2.625f, screen.getDensity(), ZERO_DELTA);
+        assertEquals(2.625f * 1.15f, screen.getScaledDensity(), ZERO_DELTA);
+        assertEquals(420, screen.getDensityDpi());
+        assertEquals(Configuration.ORIENTATION_PORTRAIT, screen.getOrientation());
+
+        // changing the source metrics afterwards doesn't change the snapshot
+        dm.widthPixels = 2220;
+        assertEquals(1080, screen.getWidthPx());
+    }
+
+    @Test
+    public void legacyDpSize() throws Exception {
+        final DisplayMetrics dm = UnitConverterTest.metrics(1.5f, 1f, 240f);
+        dm.widthPixels = 480;
+        dm.heightPixels = 799;
+
+        final ScreenSnapshot screen = new ScreenSnapshot(dm, configuration(), false);
+        assertEquals(320, screen.getWidthDp());
+        assertEquals(532, screen.getHeightDp());
+    }
+
+    @Test
+    public void packedSizes() throws Exception {
+        final DisplayMetrics dm = UnitConverterTest.metrics(2f, 1f, 320f);
+        dm.widthPixels = 1440;
+        dm.heightPixels = 2560;
+
+        final ScreenSnapshot screen = new ScreenSnapshot(dm, configuration(), true);
+        assertEquals(1440, ScreenSnapshot.unpackWidth(screen.getSizePx()));
+        assertEquals(2560, ScreenSnapshot.unpackHeight(screen.getSizePx()));
+        assertEquals(411, ScreenSnapshot.unpackWidth(screen.getSizeDp()));
+        assertEquals(820, ScreenSnapshot.unpackHeight(screen.getSizeDp()));
+
+        final int[][] sizes = {{0, 0}, {-1, 7}, {7, -1}, {Integer.MIN_VALUE, Integer.MAX_VALUE}};
+
+        for (final int[] size : sizes) {
+            final long packed = ScreenSnapshot.pack(size[0], size[1]);
+            assertEquals(size[0], ScreenSnapshot.unpackWidth(packed));
+            assertEquals(size[1], ScreenSnapshot.unpackHeight(packed));
+        }
+    }
+}
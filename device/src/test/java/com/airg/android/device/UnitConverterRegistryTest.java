@@ -0,0 +1,162 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import android.util.DisplayMetrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class UnitConverterRegistryTest {
+
+    private static final int EXTERNAL = 2;
+
+    private FakeDisplaySource displays;
+    private UnitConverterRegistry registry;
+
+    @Before
+    public void initialize() {
+        displays = new FakeDisplaySource();
+        displays.put(0, 2.625f);
+        displays.put(EXTERNAL, 1f);
+        registry = new UnitConverterRegistry(displays);
+    }
+
+    @Test
+    public void lazilyPopulated() throws Exception {
+        assertEquals(0, displays.queries.get());
+
+        final UnitConverter main = registry.getDefault();
+        assertEquals(2.625f, main.getDisplayMetrics().density, 0f);
+        assertSame(main, registry.get(0));
+        assertEquals(1, displays.queries.get());
+
+        assertEquals(1f, registry.get(EXTERNAL).getDisplayMetrics().density, 0f);
+        assertNull(registry.get(7));
+    }
+
+    @Test
+    public void displayChanges() throws Exception {
+        final UnitConverter before = registry.get(EXTERNAL);
+        assertEquals(10, before.dp2px(10f));
+
+        displays.put(EXTERNAL, 2f);
+        displays.listener.onDisplayChanged(EXTERNAL);
+
+        final UnitConverter after = registry.get(EXTERNAL);
+        assertNotSame(before, after);
+        assertEquals(20, after.dp2px(10f));
+
+        displays.remove(EXTERNAL);
+        displays.listener.onDisplayRemoved(EXTERNAL);
+        assertNull(registry.get(EXTERNAL));
+
+        // changes to displays nobody asked for are ignored until requested
+        final int queries = displays.queries.get();
+        displays.listener.onDisplayChanged(0);
+        assertEquals(queries, displays.queries.get());
+    }
+
+    @Test
+    public void release() throws Exception {
+        assertNotNull(displays.listener);
+        registry.release();
+        assertNull(displays.listener);
+    }
+
+    @Test
+    public void concurrentReads() throws Exception {
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread[] readers = new Thread[4];
+
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (!done.get()) {
+                            final float density = registry.get(EXTERNAL).getDisplayMetrics().density;
+
+                            if (density != 1f && density != 2f)
+                                throw new AssertionError("unexpected density " + density);
+                        }
+                    } catch (Throwable t) {
+                        failure.set(t);
+                    }
+                }
+            });
+            readers[i].start();
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            displays.put(EXTERNAL, (i & 1) == 0 ? 2f : 1f);
+            displays.listener.onDisplayChanged(EXTERNAL);
+        }
+
+        done.set(true);
+
+        for (final Thread reader : readers)
+            reader.join();
+
+        assertNull(failure.get());
+        assertEquals(1f, registry.get(EXTERNAL).getDisplayMetrics().density, 0f);
+    }
+
+    /**
+     * In-memory stand-in for the platform display manager
+     */
+    static final class FakeDisplaySource implements DisplayMetricsSource {
+        final Map<Integer, Float> densities = new ConcurrentHashMap<>();
+        final AtomicInteger queries = new AtomicInteger();
+        volatile Listener listener;
+
+        void put(final int displayId, final float density) {
+            densities.put(displayId, density);
+        }
+
+        void remove(final int displayId) {
+            densities.remove(displayId);
+        }
+
+        @Override
+        public DisplayMetrics getMetrics(final int displayId) {
+            queries.incrementAndGet();
+            final Float density = densities.get(displayId);
+            return null == density ? null : UnitConverterTest.metrics(density, 1f, density * 160f);
+        }
+
+        @Override
+        public void setListener(final Listener l) {
+            listener = l;
+        }
+    }
+}
@@ -0,0 +1,572 @@
+/*
+ * ****************************************************************************
+ *   Copyright  2016 airG Inc.                                                 *
+ *                                                                             *
+ *   Licensed under the Apache License, Version 2.0 (the "License");           *
+ *   you may not use this file except in compliance with the License.          *
+ *   You may obtain a copy of the License at                                   *
+ *                                                                             *
+ *       http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                             *
+ *   Unless required by applicable law or agreed to in writing, software       *
+ *   distributed under the License is distributed on an "AS IS" BASIS,         *
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *   See the License for the specific language governing permissions and       *
+ *   limitations under the License.                                            *
+ * ***************************************************************************
+ */
+
+package com.airg.android.device;
+
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.DisplayMetrics;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static android.util.TypedValue.COMPLEX_UNIT_DIP;
+import static android.util.TypedValue.COMPLEX_UNIT_IN;
+import static android.util.TypedValue.COMPLEX_UNIT_MM;
+import static android.util.TypedValue.COMPLEX_UNIT_PT;
+import static android.util.TypedValue.COMPLEX_UNIT_PX;
+import static android.util.TypedValue.COMPLEX_UNIT_SP;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * JVM counterpart of the UnitConverterAndroidTest conversions, run against synthetic {@link DisplayMetrics}.
+ */
+public class UnitConverterTest {
+
+    private static final float TIGHT_DELTA = 0.01f;
+    private static final float ZERO_DELTA = 0.0f;
+
+    private static final int[] UNITS = {
+            COMPLEX_UNIT_PX,
+            COMPLEX_UNIT_DIP,
+            COMPLEX_UNIT_SP,
+            COMPLEX_UNIT_PT,
+            COMPLEX_UNIT_IN,
+            COMPLEX_UNIT_MM
+    };
+
+    // ldpi through xxxhdpi plus a few odd real-world densities
+    private static final float[] DENSITIES = {0.75f, 1f, 1.5f, 2f, 2.625f, 2.75f, 3f, 3.5f, 4f};
+    private static final float[] FONT_SCALES = {0.85f, 1f, 1.15f, 1.3f};
+    private static final float[] XDPIS = {120f, 160.15f, 240f, 320.12f, 403.411f, 515.154f, 640f};
+
+    private static final float[] VALUES = {
+            0f, -0f, 1f, -1f, 0.5f, 5f, 12f, 23f, 25.4f, 33f, 40f, 55f, 69f, 72f, 90f, 101f, 123f, 169f, 182f, 467f,
+            666f, 1003f, 1234f, 21345f, 1e-30f, -7.25f, Float.MIN_VALUE, Float.MAX_VALUE
+    };
+
+    static DisplayMetrics metrics(final float density, final float fontScale, final float xdpi) {
+        final DisplayMetrics dm = new DisplayMetrics();
+        dm.density = density;
+        dm.scaledDensity = density * fontScale;
+        dm.xdpi = xdpi;
+        dm.ydpi = xdpi;
+        dm.densityDpi = (int) (density * 160);
+        dm.widthPixels = (int) (360 * density);
+        dm.heightPixels = (int) (640 * density);
+        return dm;
+    }
+
+    @Test
+    public void convertMatchesApplyDimension() throws Exception {
+        for (final float density : DENSITIES)
+            for (final float fontScale : FONT_SCALES)
+                for (final float xdpi : XDPIS) {
+                    final DisplayMetrics dm = metrics(density, fontScale, xdpi);
+                    final UnitConverter converter = new UnitConverter(dm);
+
+                    for (final int from : UNITS)
+                        for (final int to : UNITS)
+                            for (final float value : VALUES)
+                                assertBitsEqual(reference(dm, value, from, to), converter.convert(value, from, to));
+                }
+    }
+
+    @Test
+    public void convertRebuildsOnMetricsChange() throws Exception {
+        final DisplayMetrics dm = metrics(2f, 1f, 320f);
+        final UnitConverter converter = new UnitConverter(dm);
+
+        assertEquals(20f, converter.convert(10f, COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX), ZERO_DELTA);
+
+        dm.density = 3f;
+        dm.scaledDensity = 4.5f;
+        dm.xdpi = 480f;
+
+        assertEquals(30f, converter.convert(10f, COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX), ZERO_DELTA);
+        assertEquals(45f, converter.convert(10f, COMPLEX_UNIT_SP, COMPLEX_UNIT_PX), ZERO_DELTA);
+        assertEquals(4800f, converter.convert(10f, COMPLEX_UNIT_IN, COMPLEX_UNIT_PX), ZERO_DELTA);
+        assertBitsEqual(reference(dm, 17f, COMPLEX_UNIT_MM, COMPLEX_UNIT_SP),
+                converter.convert(17f, COMPLEX_UNIT_MM, COMPLEX_UNIT_SP));
+    }
+
+    @Test
+    public void convert() throws Exception {
+        final UnitConverter converter = new UnitConverter(metrics(2.625f, 1.15f, 403.411f));
+
+        assertEquals(5f, converter.convert(5f, COMPLEX_UNIT_DIP, COMPLEX_UNIT_DIP), ZERO_DELTA);
+        assertEquals(21345f, converter.convert(21345f, COMPLEX_UNIT_PX, COMPLEX_UNIT_PX), ZERO_DELTA);
+        assertEquals(668f, converter.convert(668f, COMPLEX_UNIT_SP, COMPLEX_UNIT_SP), ZERO_DELTA);
+        assertEquals(33f, converter.convert(33f, COMPLEX_UNIT_PT, COMPLEX_UNIT_PT), ZERO_DELTA);
+        assertEquals(50f, converter.convert(50f, COMPLEX_UNIT_IN, COMPLEX_UNIT_IN), ZERO_DELTA);
+        assertEquals(1003f, converter.convert(1003f, COMPLEX_UNIT_MM, COMPLEX_UNIT_MM), ZERO_DELTA);
+
+        assertEquals(72f, converter.convert(1f, COMPLEX_UNIT_IN, COMPLEX_UNIT_PT), TIGHT_DELTA);
+        assertEquals(1f, converter.convert(72f, COMPLEX_UNIT_PT, COMPLEX_UNIT_IN), TIGHT_DELTA);
+
+        assertEquals(1f, converter.convert(25.4f, COMPLEX_UNIT_MM, COMPLEX_UNIT_IN), TIGHT_DELTA);
+        assertEquals(25.4f, converter.convert(1f, COMPLEX_UNIT_IN, COMPLEX_UNIT_MM), TIGHT_DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convertUnknownSource() throws Exception {
+        new UnitConverter(metrics(1f, 1f, 160f)).convert(1f, COMPLEX_UNIT_MM + 1, COMPLEX_UNIT_PX);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convertUnknownTarget() throws Exception {
+        new UnitConverter(metrics(1f, 1f, 160f)).convert(1f, COMPLEX_UNIT_PX, -1);
+    }
+
+    @Test
+    public void bulkMatchesScalar() throws Exception {
+        final UnitConverter converter = new UnitConverter(metrics(2.625f, 1.15f, 403.411f));
+        final int[] pxs = {0, 1, 3, 13, 60, 144, 1226, -8};
+        final float[] fs = {0f, 0.5f, 5f, 12f, 23f, 55.5f, 467f, -3f};
+
+        final float[] dps = new float[pxs.length + 2];
+        converter.pxs2dps(pxs, 1, dps, 2, pxs.length - 1);
+        for (int i = 1; i < pxs.length; i++)
+            assertBitsEqual(converter.px2dp(pxs[i]), dps[i + 1]);
+
+        final float[] sps = new float[pxs.length];
+        converter.pxs2sps(pxs, 0, sps, 0, pxs.length);
+        for (int i = 0; i < pxs.length; i++)
+            assertBitsEqual(converter.px2sp(pxs[i]), sps[i]);
+
+        final int[] out = new int[fs.length];
+        converter.dps2pxs(fs, 0, out, 0, fs.length);
+        for (int i = 0; i < fs.length; i++)
+            assertEquals(converter.dp2px(fs[i]), out[i]);
+
+        converter.sps2pxs(fs, 0, out, 0, fs.length);
+        for (int i = 0; i < fs.length; i++)
+            assertEquals(converter.sp2px(fs[i]), out[i]);
+
+        assertArrayEquals(converter.dps2pxs(fs), converter.dps2pxs(fs));
+    }
+
+    @Test
+    public void convertInPlace() throws Exception {
+        final UnitConverter converter = new UnitConverter(metrics(3f, 1.3f, 515.154f));
+
+        for (final int from : UNITS)
+            for (final int to : UNITS) {
+                final float[] values = VALUES.clone();
+                converter.convert(values, 0, values.length, from, to);
+
+                for (int i = 0; i < values.length; i++)
+                    assertBitsEqual(converter.convert(VALUES[i], from, to), values[i]);
+            }
+    }
+
+    @Test
+    public void convertOverlapping() throws Exception {
+        final UnitConverter converter = new UnitConverter(metrics(2f, 1f, 320f));
+        final float[] values = {1f, 2f, 3f, 4f, 5f};
+
+        converter.convert(values, 0, values, 1, 4, COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX);
+        assertArrayEquals(new float[]{1f, 2f, 4f, 6f, 8f}, values, ZERO_DELTA);
+
+        converter.convert(values, 1, values, 0, 4, COMPLEX_UNIT_PX, COMPLEX_UNIT_DIP);
+        assertArrayEquals(new float[]{1f, 2f, 3f, 4f, 8f}, values, ZERO_DELTA);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void bulkOutOfRange() throws Exception {
+        new UnitConverter(metrics(1f, 1f, 160f)).dps2pxs(new float[4], 2, new int[4], 0, 3);
+    }
+
+    @Test
+    public void convertFloatBuffers() throws Exception {
+        final UnitConverter converter = new UnitConverter(metrics(2.75f, 1.15f, 403.411f));
+
+        for (final int from : UNITS)
+            for (final int to : UNITS) {
+                final float[] expected = VALUES.clone();
+                converter.convert(expected, 0, expected.length, from, to);
+
+                final FloatBuffer heap = FloatBuffer.wrap(VALUES.clone());
+                converter.convert(heap, from, to);
+                assertEquals(0, heap.position());
+                assertBuffer(expected, heap);
+
+                final FloatBuffer direct = directFloats(VALUES.length);
+                direct.put(VALUES).flip();
+                converter.convert(direct, from, to);
+                assertBuffer(expected, direct);
+
+                final FloatBuffer src = directFloats(VALUES.length);
+                src.put(VALUES).flip();
+                final FloatBuffer dst = FloatBuffer.allocate(VALUES.length);
+                converter.convert(src, dst, from, to);
+                assertEquals(0, src.remaining());
+                assertEquals(0, dst.remaining());
+                dst.flip();
+                assertBuffer(expected, dst);
+            }
+    }
+
+    @Test
+    public void convertIntBuffers() throws Exception {
+        final UnitConverter converter = new UnitConverter(metrics(2.625f, 1f, 403.411f));
+        final int[] pxs = {0, 1, 3, 13, 60, 144, 1226, -8};
+        final float[] dps = {0f, 0.5f, 5f, 12f, 23f, 55.5f, 467f, -3f};
+
+        final FloatBuffer asDps = directFloats(pxs.length);
+        converter.convert(IntBuffer.wrap(pxs), asDps, COMPLEX_UNIT_PX, COMPLEX_UNIT_DIP);
+        asDps.flip();
+        assertBuffer(converter.pxs2dps(pxs), asDps);
+
+        final IntBuffer asPxs = ByteBuffer.allocateDirect(dps.length * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        converter.convert(FloatBuffer.wrap(dps), asPxs, COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX);
+        asPxs.flip();
+        for (final int px : converter.dps2pxs(dps))
+            assertEquals(px, asPxs.get());
+
+        final IntBuffer inPlace = IntBuffer.wrap(new int[]{5, 12, 23, 467});
+        converter.convert(inPlace, COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX);
+        assertArrayEquals(converter.dps2pxs(5f, 12f, 23f, 467f), inPlace.array());
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void convertBufferOverflow() throws Exception {
+        new UnitConverter(metrics(1f, 1f, 160f))
+                .convert(FloatBuffer.allocate(4), FloatBuffer.allocate(3), COMPLEX_UNIT_DIP, COMPLEX_UNIT_PX);
+    }
+
+    @Test
+    public void dp2pxFixedMatchesFloat() throws Exception {
+        final DisplayMetrics dm = metrics(1f, 1f, 160f);
+        final UnitConverter converter = new UnitConverter(dm);
+
+        // every whole densityDpi from 100 to 640 plus the odd ones devices actually report
+        final float[] extra = {1.33125f, 2.625f, 2.75f, 3.0625f, 3.4375f, 0.85f, 1.1f, 2.2f, 3.2f};
+
+        for (int dpi = 100; dpi <= 640 + extra.length; dpi++) {
+            dm.density = dpi <= 640 ? dpi / 160f : extra[dpi - 641];
+
+            for (int dp = -2048; dp <= 65536; dp++)
+                assertEquals("density " + dm.density + ", dp " + dp, converter.dp2px(dp), converter.dp2pxFixed(dp));
+        }
+    }
+
+    @Test
+    public void sp2pxFixedMatchesFloat() throws Exception {
+        final DisplayMetrics dm = metrics(1f, 1f, 160f);
+        final UnitConverter converter = new UnitConverter(dm);
+
+        for (final float density : DENSITIES)
+            for (int scale = 50; scale <= 300; scale++) {
+                dm.density = density;
+                dm.scaledDensity = density * (scale / 100f);
+
+                for (int sp = -512; sp <= 4096; sp++)
+                    assertEquals("scaledDensity " + dm.scaledDensity + ", sp " + sp,
+                            converter.sp2px(sp), converter.sp2pxFixed(sp));
+            }
+    }
+
+    @Test
+    public void fixedPointEdges() throws Exception {
+        final DisplayMetrics dm = metrics(2.625f, 1.3f, 403.411f);
+        final UnitConverter converter = new UnitConverter(dm);
+        final int[] edges = {0, 1, -1, (1 << 24) - 1, 1 << 24, (1 << 24) + 1, -(1 << 24), 123456789, -98765432};
+
+        for (final int dp : edges) {
+            assertEquals(converter.dp2px(dp), converter.dp2pxFixed(dp));
+            assertEquals(converter.sp2px(dp), converter.sp2pxFixed(dp));
+        }
+
+        // not representable as fixed point, falls back to the float path
+        dm.density = Float.MIN_VALUE;
+        assertEquals(converter.dp2px(1000), converter.dp2pxFixed(1000));
+        dm.density = 0f;
+        assertEquals(0, converter.dp2pxFixed(1000));
+
+        dm.density = 2f;
+        final int[] dps = {0, 5, 12, 23, 467};
+        final int[] pxs = new int[dps.length];
+        converter.dps2pxsFixed(dps, 0, pxs, 0, dps.length);
+        assertArrayEquals(new int[]{0, 10, 24, 46, 934}, pxs);
+    }
+
+    @Test
+    public void lookupMatchesDirect() throws Exception {
+        final DisplayMetrics dm = metrics(2.625f, 1.15f, 403.411f);
+        final UnitConverter converter = new UnitConverter(dm);
+        converter.setLookupStatsEnabled(true);
+
+        // twice, so the second pass is answered from the filled tables
+        for (int pass = 0; pass < 2; pass++)
+            for (int i = -16; i <= UnitConverter.LOOKUP_MAX + 16; i++) {
+                assertEquals(Math.round(i * dm.density), converter.dp2px(i));
+                assertEquals(Math.round(i * dm.scaledDensity), converter.sp2px(i));
+                assertEquals(Math.round((i + 0.5f) * dm.density), converter.dp2px(i + 0.5f));
+            }
+
+        final UnitConverter.LookupStats stats = converter.getLookupStats();
+        assertEquals(2 * UnitConverter.LOOKUP_MAX, stats.getFills());
+        assertEquals(2 * UnitConverter.LOOKUP_MAX, stats.getHits());
+        assertEquals(2 * UnitConverter.LookupStats.TABLE_BYTES, stats.getMemoryBytes());
+        assertTrue(stats.getHitRate() > 0f && stats.getHitRate() < 1f);
+    }
+
+    @Test
+    public void lookupInvalidatedOnMetricsChange() throws Exception {
+        final DisplayMetrics dm = metrics(2f, 1f, 320f);
+        final UnitConverter converter = new UnitConverter(dm);
+        converter.setLookupStatsEnabled(true);
+
+        assertEquals(0, converter.getLookupStats().getMemoryBytes());
+        assertEquals(0f, converter.getLookupStats().getHitRate(), ZERO_DELTA);
+        assertEquals(24, converter.dp2px(12f));
+        assertEquals(24, converter.dp2px(12f));
+
+        dm.density = 3f;
+
+        assertEquals(36, converter.dp2px(12f));
+
+        final UnitConverter.LookupStats stats = converter.getLookupStats();
+        assertEquals(1, stats.getInvalidations());
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getFills());
+        assertEquals(UnitConverter.LookupStats.TABLE_BYTES, stats.getMemoryBytes());
+    }
+
+    @Test
+    public void rectsKeepTheirSize() throws Exception {
+        final UnitConverter converter = new UnitConverter(metrics(2.625f, 1f, 403.411f));
+        final int[] packed = new int[4 * 64];
+
+        for (int i = 0; i < 64; i++) {
+            final int left = i * 7 - 100;
+            final int top = i * 3;
+            final Rect rect = rect(left, top, left + 48, top + 17);
+            converter.dp2px(rect);
+
+            assertEquals(converter.dp2px(48f), rect.right - rect.left);
+            assertEquals(converter.dp2px(17f), rect.bottom - rect.top);
+            assertEquals(converter.dp2px((float) left), rect.left);
+            assertEquals(converter.dp2px((float) top), rect.top);
+
+            packed[i * 4] = left;
+            packed[i * 4 + 1] = top;
+            packed[i * 4 + 2] = left + 48;
+            packed[i * 4 + 3] = top + 17;
+        }
+
+        converter.dpRects2px(packed, 0, 64);
+
+        for (int i = 0; i < 64; i++) {
+            assertEquals(converter.dp2px(48f), packed[i * 4 + 2] - packed[i * 4]);
+            assertEquals(converter.dp2px(17f), packed[i * 4 + 3] - packed[i * 4 + 1]);
+        }
+
+        converter.pxRects2dp(packed, 0, 64);
+
+        for (int i = 0; i < 64; i++) {
+            assertEquals(48, packed[i * 4 + 2] - packed[i * 4]);
+            assertEquals(17, packed[i * 4 + 3] - packed[i * 4 + 1]);
+        }
+
+        final Rect back = rect(10, 20, 58, 37);
+        converter.dp2px(back);
+        converter.px2dp(back);
+        assertEquals(10, back.left);
+        assertEquals(20, back.top);
+        assertEquals(58, back.right);
+        assertEquals(37, back.bottom);
+    }
+
+    @Test
+    public void geometry() throws Exception {
+        final UnitConverter converter = new UnitConverter(metrics(1.5f, 1f, 240f));
+
+        final Rect insets = rect(1, 3, 5, 7);
+        converter.dp2pxInsets(insets);
+        assertEquals(2, insets.left);
+        assertEquals(5, insets.top);
+        assertEquals(8, insets.right);
+        assertEquals(11, insets.bottom);
+
+        final int[] packed = {0, 1, 3, 5, 7, 0};
+        converter.dpInsets2px(packed, 1, 1);
+        assertArrayEquals(new int[]{0, 2, 5, 8, 11, 0}, packed);
+
+        final Point point = new Point();
+        point.x = 3;
+        point.y = -5;
+        converter.dp2px(point);
+        assertEquals(5, point.x);
+        assertEquals(-7, point.y);
+        converter.px2dp(point);
+        assertEquals(3, point.x);
+        assertEquals(-5, point.y);
+
+        final RectF rectF = new RectF();
+        rectF.left = 1f;
+        rectF.top = 2f;
+        rectF.right = 11f;
+        rectF.bottom = 4f;
+        converter.dp2px(rectF);
+        assertEquals(1.5f, rectF.left, ZERO_DELTA);
+        assertEquals(3f, rectF.top, ZERO_DELTA);
+        assertEquals(15f, rectF.right - rectF.left, ZERO_DELTA);
+        assertEquals(3f, rectF.bottom - rectF.top, ZERO_DELTA);
+        converter.px2dp(rectF);
+        assertEquals(1f, rectF.left, ZERO_DELTA);
+        assertEquals(11f, rectF.right, ZERO_DELTA);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void packedRectsOutOfRange() throws Exception {
+        new UnitConverter(metrics(1f, 1f, 160f)).dpRects2px(new int[8], 4, 2);
+    }
+
+    @Test
+    public void bulkDoesNotAllocate() throws Exception {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        final UnitConverter converter = new UnitConverter(metrics(2.625f, 1.15f, 403.411f));
+        final int[] pxs = new int[1024];
+        final float[] fs = new float[1024];
+
+        for (int i = 0; i < pxs.length; i++) {
+            pxs[i] = i;
+            fs[i] = i * 0.75f;
+        }
+
+        // warm up so class loading and the first table build do not count
+        bulkConvert(converter, pxs, fs, 100);
+
+        final long id = Thread.currentThread().getId();
+        final long overhead = -threads.getThreadAllocatedBytes(id) + threads.getThreadAllocatedBytes(id);
+
+        final long before = threads.getThreadAllocatedBytes(id);
+        bulkConvert(converter, pxs, fs, 10000);
+        final long allocated = threads.getThreadAllocatedBytes(id) - before - overhead;
+
+        // a single array or boxed value per call would show up as well over 10000 * 16 bytes
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private static void bulkConvert(final UnitConverter converter,
+                                    final int[] pxs,
+                                    final float[] fs,
+                                    final int iterations) {
+        for (int n = 0; n < iterations; n++) {
+            converter.pxs2dps(pxs, 0, fs, 0, pxs.length);
+            converter.dps2pxs(fs, 0, pxs, 0, fs.length);
+            converter.pxs2sps(pxs, 0, fs, 0, pxs.length);
+            converter.sps2pxs(fs, 0, pxs, 0, fs.length);
+            converter.convert(fs, 0, fs.length, COMPLEX_UNIT_MM, COMPLEX_UNIT_SP);
+        }
+    }
+
+    // Rect's constructors are stubbed out in JVM tests, only its fields are usable
+    private static Rect rect(final int left, final int top, final int right, final int bottom) {
+        final Rect rect = new Rect();
+        rect.left = left;
+        rect.top = top;
+        rect.right = right;
+        rect.bottom = bottom;
+        return rect;
+    }
+
+    private static FloatBuffer directFloats(final int length) {
+        return ByteBuffer.allocateDirect(length * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    private static void assertBuffer(final float[] expected, final FloatBuffer actual) {
+        assertEquals(expected.length, actual.remaining());
+
+        for (int i = 0; i < expected.length; i++)
+            assertBitsEqual(expected[i], actual.get(actual.position() + i));
+    }
+
+    static void assertBitsEqual(final float expected, final float actual) {
+        assertEquals(expected + " != " + actual, Float.floatToRawIntBits(expected), Float.floatToRawIntBits(actual));
+    }
+
+    /**
+     * The pre-table implementation: {@link android.util.TypedValue#applyDimension(int, float, DisplayMetrics)}
+     * followed by the matching <code>f2*</code> inversion.
+     */
+    static float reference(final DisplayMetrics dm, final float f, final int fromUnit, final int toUnit) {
+        if (0f == f) return 0;
+        if (fromUnit == toUnit) return f;
+
+        final float value;
+
+        switch (fromUnit) {
+            case COMPLEX_UNIT_PX:
+                value = f;
+                break;
+            case COMPLEX_UNIT_DIP:
+                value = f * dm.density;
+                break;
+            case COMPLEX_UNIT_SP:
+                value = f * dm.scaledDensity;
+                break;
+            case COMPLEX_UNIT_PT:
+                value = f * dm.xdpi * (1.0f / 72);
+                break;
+            case COMPLEX_UNIT_IN:
+                value = f * dm.xdpi;
+                break;
+            case COMPLEX_UNIT_MM:
+                value = f * dm.xdpi * (1.0f / 25.4f);
+                break;
+            default:
+                throw new IllegalArgumentException();
+        }
+
+        switch (toUnit) {
+            case COMPLEX_UNIT_PX:
+                return value;
+            case COMPLEX_UNIT_DIP:
+                return 0f == value ? 0f : value / dm.density;
+            case COMPLEX_UNIT_SP:
+                return 0f == value ? 0f : value / dm.scaledDensity;
+            case COMPLEX_UNIT_PT:
+                return 0f == value ? 0f : (value * 72f) / dm.xdpi;
+            case COMPLEX_UNIT_IN:
+                return 0f == value ? 0f : value / dm.xdpi;
+            case COMPLEX_UNIT_MM:
+                return 0f == value ? 0f : (value / dm.xdpi) * 25.4f;
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+}